@@ -46,6 +46,11 @@ public final class ApiKeyProvider {
      */
     private final Scheduler scheduler;
 
+    /**
+     * The pooled HTTP clients.
+     */
+    private final HttpClientPool pool;
+
     /**
      * Setup and schedule this provider.
      * @throws IOException See {@link #collect()}
@@ -82,7 +87,7 @@ public final class ApiKeyProvider {
             this.config.getString(String.format("auth.%s.password", this.id));
         final String name =
             this.config.getString(String.format("auth.%s.input", this.id));
-        final String data = new Request(Collections.emptyList(), new URL(url))
+        final String data = new Request(Collections.emptyList(), new URL(url), this.pool)
             .withCredentials(username, password)
             .data();
         final String token = new XpathValue(data, selector).singleValue();
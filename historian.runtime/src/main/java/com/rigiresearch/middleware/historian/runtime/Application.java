@@ -37,7 +37,7 @@ public final class Application {
             Runtime.getRuntime()
                 .addShutdownHook(new Thread(monitor::stop));
         } catch (final ConfigurationException | JAXBException | IOException
-            | UnexpectedResponseCodeException exception) {
+            | UnexpectedResponseCodeException | GraphValidationException exception) {
             Application.LOGGER.error(exception.getMessage(), exception);
         }
     }
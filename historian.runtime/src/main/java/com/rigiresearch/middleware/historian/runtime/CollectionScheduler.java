@@ -0,0 +1,334 @@
+package com.rigiresearch.middleware.historian.runtime;
+
+import it.sauronsoftware.cron4j.Scheduler;
+import java.util.Locale;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import org.apache.commons.configuration2.Configuration;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Schedules the collection cycles so that they never overlap, since the
+ * collection algorithm is not meant to be used by two cycles at once.
+ * <p>
+ * In the {@code skip} and {@code coalesce} modes, cycles are triggered by a
+ * cron expression. A trigger arriving while a cycle is running is either
+ * discarded ({@code skip}) or recorded so that one more cycle runs as soon
+ * as the current one finishes, regardless of how many triggers arrived
+ * ({@code coalesce}). In the {@code fixed-delay} mode, the cron expression
+ * is ignored and each cycle starts a fixed delay after the previous one
+ * finished.
+ * <p>
+ * Optionally, each cycle is delayed by a random jitter, to spread the load
+ * of monitors sharing the same schedule, and the periodicity adapts to the
+ * measured duration of the cycles: cycles do not start more often than a
+ * factor of their average duration.
+ * @author Miguel Jimenez (miguel@uvic.ca)
+ * @version $Id$
+ * @since 0.1.0
+ */
+public final class CollectionScheduler {
+
+    /**
+     * The logger.
+     */
+    private static final Logger LOGGER =
+        LoggerFactory.getLogger(CollectionScheduler.class);
+
+    /**
+     * The default delay between cycles, in seconds.
+     */
+    private static final long DEFAULT_DELAY = 60L;
+
+    /**
+     * The weight of the last cycle in the average duration.
+     */
+    private static final double WEIGHT = 0.3;
+
+    /**
+     * The cron scheduler triggering the cycles.
+     */
+    private final Scheduler cron;
+
+    /**
+     * The collection cycle.
+     */
+    private final Runnable task;
+
+    /**
+     * How to deal with triggers arriving while a cycle is running.
+     */
+    private final CollectionScheduler.Mode mode;
+
+    /**
+     * The delay between cycles in the fixed-delay mode, in milliseconds.
+     */
+    private final long delay;
+
+    /**
+     * The maximum jitter, in milliseconds.
+     */
+    private final long jitter;
+
+    /**
+     * The factor of the average duration under which cycles do not start
+     * (0 disables the adaptive periodicity).
+     */
+    private final double factor;
+
+    /**
+     * The thread running the cycles.
+     */
+    private final ScheduledExecutorService executor;
+
+    /**
+     * Whether a cycle is running or about to run.
+     */
+    private final AtomicBoolean running;
+
+    /**
+     * Whether a trigger arrived while a cycle was running.
+     */
+    private final AtomicBoolean pending;
+
+    /**
+     * The number of discarded triggers.
+     */
+    private final AtomicLong skipped;
+
+    /**
+     * The start time of the last cycle, in nanoseconds.
+     */
+    private volatile long started;
+
+    /**
+     * The average duration of the cycles, in milliseconds.
+     */
+    private volatile double average;
+
+    /**
+     * Default constructor.
+     * @param config The configuration properties
+     * @param cron The cron scheduler triggering the cycles
+     * @param task The collection cycle
+     */
+    public CollectionScheduler(final Configuration config, final Scheduler cron,
+        final Runnable task) {
+        this.cron = cron;
+        this.task = task;
+        this.mode = CollectionScheduler.Mode.valueOf(
+            config.getString("collection.mode", "skip")
+                .toUpperCase(Locale.ENGLISH)
+                .replace('-', '_')
+        );
+        this.delay = TimeUnit.SECONDS.toMillis(
+            config.getLong("collection.delay", CollectionScheduler.DEFAULT_DELAY)
+        );
+        this.jitter = TimeUnit.SECONDS.toMillis(config.getLong("collection.jitter", 0L));
+        this.factor = config.getDouble("collection.adaptive.factor", 0.0);
+        this.executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            final Thread thread = new Thread(runnable, "collection-scheduler");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.running = new AtomicBoolean();
+        this.pending = new AtomicBoolean();
+        this.skipped = new AtomicLong();
+    }
+
+    /**
+     * Starts scheduling the cycles. The cron scheduler must be started
+     * separately.
+     * @param expression The cron expression triggering the cycles (ignored
+     *  in the fixed-delay mode)
+     */
+    public void start(final String expression) {
+        if (this.mode == CollectionScheduler.Mode.FIXED_DELAY) {
+            this.executor.schedule(this::loop, this.jitter(), TimeUnit.MILLISECONDS);
+        } else {
+            this.cron.schedule(expression, this::trigger);
+        }
+    }
+
+    /**
+     * Stops scheduling the cycles, interrupting the current one.
+     */
+    public void stop() {
+        this.executor.shutdownNow();
+    }
+
+    /**
+     * The number of triggers discarded because a cycle was running or, with
+     * the adaptive periodicity, because the last cycle started too recently.
+     * @return A positive number or zero
+     */
+    public long skipped() {
+        return this.skipped.get();
+    }
+
+    /**
+     * The average duration of the cycles.
+     * @return The duration in milliseconds, or zero if no cycle has finished
+     */
+    public double average() {
+        return this.average;
+    }
+
+    /**
+     * Handles a trigger from the cron scheduler.
+     */
+    void trigger() {
+        if (this.isTooSoon()) {
+            this.skip();
+        } else if (this.mode == CollectionScheduler.Mode.COALESCE) {
+            this.pending.set(true);
+            this.drain();
+        } else if (this.running.compareAndSet(false, true)) {
+            this.executor.schedule(this::run, this.jitter(), TimeUnit.MILLISECONDS);
+        } else {
+            this.skip();
+        }
+    }
+
+    /**
+     * Runs a cycle unless there is one running already.
+     */
+    private void drain() {
+        if (this.running.compareAndSet(false, true)) {
+            this.executor.schedule(this::run, this.jitter(), TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Runs a cycle and, in the coalesce mode, one more if any trigger
+     * arrived in the meantime.
+     */
+    private void run() {
+        try {
+            do {
+                this.pending.set(false);
+                this.execute();
+            } while (this.mode == CollectionScheduler.Mode.COALESCE
+                && this.pending.get() && !this.executor.isShutdown());
+        } finally {
+            this.running.set(false);
+        }
+        if (this.pending.get() && !this.executor.isShutdown()) {
+            this.drain();
+        }
+    }
+
+    /**
+     * Runs a cycle and schedules the next one (fixed-delay mode).
+     */
+    private void loop() {
+        try {
+            this.execute();
+        } finally {
+            if (!this.executor.isShutdown()) {
+                long next = this.delay;
+                if (this.factor > 0.0) {
+                    next = Math.max(next, (long) (this.factor * this.average));
+                }
+                this.executor.schedule(
+                    this::loop,
+                    next + this.jitter(),
+                    TimeUnit.MILLISECONDS
+                );
+            }
+        }
+    }
+
+    /**
+     * Runs a cycle, measuring its duration. Failures are logged, since an
+     * exception escaping the executor's task would be lost and, in the
+     * coalesce mode, would also discard the pending cycle.
+     */
+    @SuppressWarnings("PMD.AvoidCatchingGenericException")
+    private void execute() {
+        final long start = System.nanoTime();
+        this.started = start;
+        try {
+            this.task.run();
+        } catch (final RuntimeException exception) {
+            CollectionScheduler.LOGGER.error(exception.getMessage(), exception);
+        } finally {
+            final double duration =
+                (double) TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+            if (this.average == 0.0) {
+                this.average = duration;
+            } else {
+                this.average = CollectionScheduler.WEIGHT * duration
+                    + (1.0 - CollectionScheduler.WEIGHT) * this.average;
+            }
+            CollectionScheduler.LOGGER.debug(
+                "Cycle finished in {} ms (average: {} ms)",
+                duration,
+                this.average
+            );
+        }
+    }
+
+    /**
+     * Whether the last cycle started too recently, according to the
+     * adaptive periodicity.
+     * @return Whether to discard a trigger
+     */
+    private boolean isTooSoon() {
+        return this.factor > 0.0 && this.started != 0L
+            && TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - this.started)
+            < this.factor * this.average;
+    }
+
+    /**
+     * Discards a trigger.
+     */
+    private void skip() {
+        this.skipped.incrementAndGet();
+        CollectionScheduler.LOGGER.warn(
+            "Skipping a collection cycle because the previous one is still running"
+                + " or started too recently"
+        );
+    }
+
+    /**
+     * A random delay within the maximum jitter.
+     * @return A delay in milliseconds
+     */
+    private long jitter() {
+        long random = 0L;
+        if (this.jitter > 0L) {
+            random = ThreadLocalRandom.current().nextLong(this.jitter + 1L);
+        }
+        return random;
+    }
+
+    /**
+     * How to deal with triggers arriving while a cycle is running.
+     * @author Miguel Jimenez (miguel@uvic.ca)
+     * @version $Id$
+     * @since 0.1.0
+     */
+    enum Mode {
+        /**
+         * Discard the trigger.
+         */
+        SKIP,
+
+        /**
+         * Run one more cycle after the current one.
+         */
+        COALESCE,
+
+        /**
+         * Ignore the triggers and wait a fixed delay between cycles.
+         */
+        FIXED_DELAY
+    }
+
+}
@@ -0,0 +1,341 @@
+package com.rigiresearch.middleware.historian.runtime;
+
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import org.apache.commons.configuration2.Configuration;
+import org.apache.commons.configuration2.PropertiesConfiguration;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A limit on the number of tasks running at the same time. Asynchronous tasks
+ * exceeding the limit are queued and started as soon as a running task
+ * completes; no thread waits in the meantime. Blocking tasks wait for a free
+ * slot with {@link #acquire()} instead.
+ * <p>
+ * When property {@code http.limit.adaptive} is true, the limit adapts to the
+ * target's response (additive increase, multiplicative decrease). Each
+ * successful task raises the limit by roughly one slot per full window of
+ * tasks, up to the configured maximum, whereas a task signaling overload
+ * (i.e., a 429 or 503 response code, a timeout, a connection reset, or a
+ * latency above {@code http.limit.latency} milliseconds) multiplies the
+ * limit by {@code http.limit.backoff}, down to {@code http.limit.min}. Other
+ * failures, such as unknown hosts or malformed responses, do not change the
+ * limit. Only tasks started after the last decrease can decrease the limit
+ * again, so a burst of failures counts once.
+ * @author Miguel Jimenez (miguel@uvic.ca)
+ * @version $Id$
+ * @since 0.1.0
+ */
+public final class ConcurrencyLimiter {
+
+    /**
+     * The logger.
+     */
+    private static final Logger LOGGER =
+        LoggerFactory.getLogger(ConcurrencyLimiter.class);
+
+    /**
+     * HTTP 429 status code.
+     */
+    private static final int TOO_MANY_REQUESTS = 429;
+
+    /**
+     * HTTP 503 status code.
+     */
+    private static final int SERVICE_UNAVAILABLE = 503;
+
+    /**
+     * The default factor applied to the limit on overload.
+     */
+    private static final double DEFAULT_BACKOFF = 0.5;
+
+    /**
+     * The maximum number of tasks running at the same time.
+     */
+    private final int maximum;
+
+    /**
+     * The minimum limit.
+     */
+    private final int minimum;
+
+    /**
+     * Whether the limit adapts to the target's response.
+     */
+    private final boolean adaptive;
+
+    /**
+     * The latency above which a task signals overload, in nanoseconds (0
+     * disables it).
+     */
+    private final long latency;
+
+    /**
+     * The factor applied to the limit on overload.
+     */
+    private final double backoff;
+
+    /**
+     * Tasks waiting for a free slot.
+     */
+    private final Queue<Runnable> queue;
+
+    /**
+     * Lock for the queue, the number of active tasks and the limit.
+     */
+    private final Object lock;
+
+    /**
+     * The number of tasks currently running.
+     */
+    private int active;
+
+    /**
+     * The current limit.
+     */
+    private double limit;
+
+    /**
+     * The last time the limit was decreased, in nanoseconds.
+     */
+    private long decreased;
+
+    /**
+     * Secondary constructor. The limit is fixed.
+     * @param limit The maximum number of tasks running at the same time
+     */
+    public ConcurrencyLimiter(final int limit) {
+        this(limit, new PropertiesConfiguration());
+    }
+
+    /**
+     * Default constructor.
+     * @param maximum The maximum number of tasks running at the same time
+     * @param config The configuration properties
+     */
+    public ConcurrencyLimiter(final int maximum, final Configuration config) {
+        this.maximum = maximum;
+        this.minimum = Math.min(maximum, Math.max(1, config.getInt("http.limit.min", 1)));
+        this.adaptive = config.getBoolean("http.limit.adaptive", false);
+        this.latency = TimeUnit.MILLISECONDS.toNanos(
+            config.getLong("http.limit.latency", 0L)
+        );
+        this.backoff = config.getDouble(
+            "http.limit.backoff",
+            ConcurrencyLimiter.DEFAULT_BACKOFF
+        );
+        this.queue = new ArrayDeque<>(maximum);
+        this.lock = new Object();
+        this.limit = maximum;
+        this.decreased = System.nanoTime();
+    }
+
+    /**
+     * Runs a task as soon as there is a free slot.
+     * @param task A supplier that starts the task
+     * @param <T> The type of the task's result
+     * @return A future that completes as the task's future does
+     */
+    public <T> CompletableFuture<T> submit(
+        final Supplier<CompletableFuture<T>> task) {
+        final CompletableFuture<T> result = new CompletableFuture<>();
+        synchronized (this.lock) {
+            this.queue.add(() -> this.run(task, result));
+        }
+        this.drain();
+        return result;
+    }
+
+    /**
+     * Takes a slot, waiting until there is a free one. The slot must be
+     * released with {@link #release(long, boolean)}.
+     * @return The time at which the task starts, in nanoseconds
+     * @throws InterruptedException If the current thread is interrupted
+     *  while waiting
+     */
+    public long acquire() throws InterruptedException {
+        synchronized (this.lock) {
+            while (this.active >= this.current()) {
+                this.lock.wait();
+            }
+            this.active += 1;
+        }
+        return System.nanoTime();
+    }
+
+    /**
+     * Releases a slot taken with {@link #acquire()}.
+     * @param start The time at which the task started, as returned by
+     *  {@link #acquire()}
+     * @param overloaded Whether the task signaled that the target is
+     *  overloaded
+     */
+    public void release(final long start, final boolean overloaded) {
+        synchronized (this.lock) {
+            this.active -= 1;
+            this.adapt(start, overloaded);
+            this.lock.notifyAll();
+        }
+        this.drain();
+    }
+
+    /**
+     * The current limit.
+     * @return A number between the minimum and maximum limits
+     */
+    public int limit() {
+        synchronized (this.lock) {
+            return this.current();
+        }
+    }
+
+    /**
+     * The number of tasks currently running.
+     * @return A positive number or zero
+     */
+    public int active() {
+        synchronized (this.lock) {
+            return this.active;
+        }
+    }
+
+    /**
+     * The number of tasks waiting for a free slot.
+     * @return A positive number or zero
+     */
+    public int waiting() {
+        synchronized (this.lock) {
+            return this.queue.size();
+        }
+    }
+
+    /**
+     * Whether the failure of a task signals that the target is overloaded,
+     * that is, a timeout, a connection reset, or a 429 or 503 response code.
+     * Other failures (e.g., unknown hosts or malformed responses) do not
+     * depend on the target's load.
+     * @param error The failure, or null if the task succeeded
+     * @return Whether the limit should decrease
+     */
+    static boolean isOverload(final Throwable error) {
+        return Failures.isTimeout(error)
+            || Failures.isReset(error)
+            || Failures.hasCode(
+                error,
+                ConcurrencyLimiter.TOO_MANY_REQUESTS,
+                ConcurrencyLimiter.SERVICE_UNAVAILABLE
+            );
+    }
+
+    /**
+     * Starts a task and releases its slot when it completes. Tasks whose
+     * result was completed (e.g., cancelled) while waiting are not started.
+     * @param task A supplier that starts the task
+     * @param result The future to complete with the task's result
+     * @param <T> The type of the task's result
+     */
+    private <T> void run(final Supplier<CompletableFuture<T>> task,
+        final CompletableFuture<T> result) {
+        if (result.isDone()) {
+            synchronized (this.lock) {
+                this.active -= 1;
+                this.lock.notifyAll();
+            }
+        } else {
+            this.start(task, result);
+        }
+    }
+
+    /**
+     * Starts a task and releases its slot when it completes.
+     * @param task A supplier that starts the task
+     * @param result The future to complete with the task's result
+     * @param <T> The type of the task's result
+     */
+    private <T> void start(final Supplier<CompletableFuture<T>> task,
+        final CompletableFuture<T> result) {
+        final long start = System.nanoTime();
+        CompletableFuture.completedFuture(task)
+            .thenCompose(Supplier::get)
+            .whenComplete((value, error) -> {
+                synchronized (this.lock) {
+                    this.active -= 1;
+                    this.adapt(start, ConcurrencyLimiter.isOverload(error));
+                    this.lock.notifyAll();
+                }
+                if (error == null) {
+                    result.complete(value);
+                } else if (error instanceof CompletionException
+                    && error.getCause() != null) {
+                    result.completeExceptionally(error.getCause());
+                } else {
+                    result.completeExceptionally(error);
+                }
+                this.drain();
+            });
+    }
+
+    /**
+     * Adapts the limit to the outcome of a task. The caller must hold the
+     * lock.
+     * @param start The time at which the task started, in nanoseconds
+     * @param overloaded Whether the task signaled overload
+     */
+    private void adapt(final long start, final boolean overloaded) {
+        if (this.adaptive) {
+            final long now = System.nanoTime();
+            if (overloaded || this.latency > 0L && now - start > this.latency) {
+                if (start - this.decreased >= 0L) {
+                    this.limit = Math.max(this.minimum, this.limit * this.backoff);
+                    this.decreased = now;
+                    ConcurrencyLimiter.LOGGER.debug(
+                        "Concurrency limit decreased to {}",
+                        this.current()
+                    );
+                }
+            } else {
+                this.limit = Math.min(this.maximum, this.limit + 1.0 / this.limit);
+            }
+        }
+    }
+
+    /**
+     * The current limit, as a number of slots. The caller must hold the lock.
+     * @return A positive number
+     */
+    private int current() {
+        return Math.max(1, (int) this.limit);
+    }
+
+    /**
+     * Starts queued tasks while there are free slots.
+     */
+    private void drain() {
+        Runnable next = this.next();
+        while (next != null) {
+            next.run();
+            next = this.next();
+        }
+    }
+
+    /**
+     * Takes the next queued task, if there is a free slot.
+     * @return The next task or null
+     */
+    private Runnable next() {
+        Runnable next = null;
+        synchronized (this.lock) {
+            if (this.active < this.current() && !this.queue.isEmpty()) {
+                next = this.queue.poll();
+                this.active += 1;
+            }
+        }
+        return next;
+    }
+
+}
@@ -0,0 +1,96 @@
+package com.rigiresearch.middleware.historian.runtime;
+
+import java.net.ConnectException;
+import java.net.SocketException;
+import java.net.SocketTimeoutException;
+import java.util.concurrent.CompletionException;
+import org.apache.http.ConnectionClosedException;
+import org.apache.http.NoHttpResponseException;
+import org.apache.http.conn.ConnectTimeoutException;
+
+/**
+ * Classifies the failures of requests. Only failures related to the
+ * connection with the target host (i.e., timeouts, resets and refused
+ * connections) and some response codes depend on the host's state; other
+ * failures, such as unknown hosts, TLS problems and malformed responses,
+ * occur again if the request is repeated.
+ * @author Miguel Jimenez (miguel@uvic.ca)
+ * @version $Id$
+ * @since 0.1.0
+ */
+final class Failures {
+
+    /**
+     * Utility class.
+     */
+    private Failures() {
+        // Nothing to do here
+    }
+
+    /**
+     * Unwraps the cause of a failed asynchronous task.
+     * @param error The failure
+     * @return The cause, if the failure is a completion exception
+     */
+    static Throwable unwrap(final Throwable error) {
+        Throwable cause = error;
+        if (cause instanceof CompletionException && cause.getCause() != null) {
+            cause = cause.getCause();
+        }
+        return cause;
+    }
+
+    /**
+     * Whether a request failed because connecting to the host or reading its
+     * response took too long.
+     * @param error The failure
+     * @return Whether the failure is a connect or read timeout
+     */
+    static boolean isTimeout(final Throwable error) {
+        final Throwable cause = Failures.unwrap(error);
+        return cause instanceof SocketTimeoutException
+            || cause instanceof ConnectTimeoutException;
+    }
+
+    /**
+     * Whether the host dropped the connection before responding. Subclasses
+     * of {@link SocketException} (e.g., refused connections) are not resets.
+     * @param error The failure
+     * @return Whether the connection was reset or closed
+     */
+    static boolean isReset(final Throwable error) {
+        final Throwable cause = Failures.unwrap(error);
+        return cause instanceof NoHttpResponseException
+            || cause instanceof ConnectionClosedException
+            || cause != null && SocketException.class.equals(cause.getClass());
+    }
+
+    /**
+     * Whether the host refused the connection.
+     * @param error The failure
+     * @return Whether the failure is a refused connection
+     */
+    static boolean isRefused(final Throwable error) {
+        return Failures.unwrap(error) instanceof ConnectException;
+    }
+
+    /**
+     * Whether a request returned one of the given response codes.
+     * @param error The failure
+     * @param codes The HTTP status codes
+     * @return Whether the failure is an unexpected response code among the
+     *  given ones
+     */
+    static boolean hasCode(final Throwable error, final int... codes) {
+        final Throwable cause = Failures.unwrap(error);
+        boolean result = false;
+        if (cause instanceof UnexpectedResponseCodeException) {
+            final int code = ((UnexpectedResponseCodeException) cause).getCode();
+            for (final int candidate : codes) {
+                result |= code == candidate;
+            }
+        }
+        return result;
+    }
+
+}
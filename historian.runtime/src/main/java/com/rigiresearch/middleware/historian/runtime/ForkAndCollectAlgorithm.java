@@ -3,38 +3,108 @@ package com.rigiresearch.middleware.historian.runtime;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.MissingNode;
 import com.fasterxml.jackson.databind.node.ObjectNode;
 import com.rigiresearch.middleware.graph.Graph;
 import com.rigiresearch.middleware.graph.Input;
 import com.rigiresearch.middleware.graph.Node;
 import com.rigiresearch.middleware.graph.Output;
-import com.rigiresearch.middleware.graph.Parameter;
+import com.rigiresearch.middleware.graph.Property;
 import com.rigiresearch.middleware.historian.runtime.graph.Augmentation;
 import com.rigiresearch.middleware.historian.runtime.graph.Monitor;
+import com.rigiresearch.middleware.historian.runtime.graph.Refresh;
 import com.rigiresearch.middleware.historian.runtime.graph.Transformation;
+import com.rigiresearch.middleware.historian.runtime.json.JsonSelector;
+import com.rigiresearch.middleware.historian.runtime.json.JsonStreamReader;
+import com.rigiresearch.middleware.historian.runtime.json.SelectorCache;
 import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.AbstractMap;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
 import java.util.stream.Collectors;
+import lombok.AllArgsConstructor;
 import lombok.Getter;
+import lombok.Value;
 import org.apache.commons.configuration2.Configuration;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 /**
  * An implementation of the Fork and Collect algorithm.
+ * <p>
+ * When property {@code fork.parallelism} is greater than one, the content of
+ * each branch is collected on a bounded thread pool as soon as the branch is
+ * forked, that is, as soon as the branch it depends on has been processed.
+ * Forking decisions and the assembly of the result still happen on the
+ * calling thread, in the same order as in the sequential mode, so both modes
+ * produce the same Json document.
+ * <p>
+ * {@link #dataAsync()} is a non-blocking variant. Requests are issued through
+ * the asynchronous HTTP clients as soon as branches are forked, and each
+ * collect/fork step is chained off the completion of the corresponding
+ * request. No thread waits for a response; the steps run one at a time on a
+ * single processing thread, in the same order as in {@link #data()}. The
+ * number of in-flight requests per host is limited by
+ * {@code http.async.max-per-host} (see {@link HttpClientPool}). The
+ * conditional, refresh and partial modes described below apply to both
+ * variants.
+ * <p>
+ * When property {@code fork.streaming} is true, {@link #data()} parses each
+ * response as it is received instead of buffering it into a string, and
+ * evaluates the selectors of multivalued outputs while the tree is built.
+ * <p>
+ * When property {@code fork.conditional} is true, {@link #data()} keeps the
+ * revision of each branch's content (see {@link Revision}), indexed by the
+ * branch's identifier, and collects it again with a conditional request. If
+ * the content did not change, the branch's previous result is reused without
+ * parsing it again. Moreover, the whole subtree of an unchanged branch (i.e.,
+ * the content of the branches forked from it) is reused without issuing the
+ * dependent requests for up to {@code fork.conditional.reuse} consecutive
+ * cycles; afterwards, the dependent branches are revalidated as well.
+ * <p>
+ * Monitors with a {@link Refresh} mapping are collected by {@link #data()} at
+ * most once per refresh interval. In the cycles in between, the previous
+ * result of their branches is spliced into the result without issuing any
+ * request, and the branches depending on them are forked from the values
+ * located last. Such dependent branches are collected according to their own
+ * refresh interval, if any, or in every cycle otherwise.
+ * <p>
+ * When property {@code fork.partial} is true, a branch that cannot be
+ * collected (e.g., after exhausting its retries, see {@link RetryPolicy})
+ * does not make {@link #data()} fail. Instead, the last known content of the
+ * branch and of the branches forked from it is spliced into the result, for
+ * up to {@code fork.partial.budget} consecutive failures; afterwards, or if
+ * there is no such content, the failed subtree is omitted from the result.
+ * <p>
+ * The duration of the cycles, the number of branches forked from each branch
+ * and the time spent evaluating selectors are recorded in the metrics of the
+ * HTTP client pool (see {@link HttpClientPool#metrics()}), along with the
+ * metrics of the requests.
  * @author Miguel Jimenez (miguel@uvic.ca)
  * @version $Id$
  * @since 0.1.0
  */
 @SuppressWarnings("PMD.TooManyMethods")
-public final class ForkAndCollectAlgorithm {
+public final class ForkAndCollectAlgorithm implements AutoCloseable {
 
     /**
      * The logger.
@@ -47,38 +117,218 @@ public final class ForkAndCollectAlgorithm {
      */
     private static final ObjectMapper MAPPER = new ObjectMapper();
 
+    /**
+     * The default number of threads collecting branches (i.e., sequential).
+     */
+    private static final int DEFAULT_PARALLELISM = 1;
+
+    /**
+     * The default maximum number of compiled selectors.
+     */
+    private static final int DEFAULT_SELECTORS = 256;
+
+    /**
+     * The default number of consecutive failures tolerated per branch.
+     */
+    private static final int DEFAULT_BUDGET = 3;
+
     /**
      * The configuration properties.
      */
     private final Configuration config;
 
     /**
-     * A graph instance configured with input/output dependencies.
+     * A graph instance configured with input/output dependencies. It only
+     * contains the template monitors; it does not change once created.
      */
     @Getter
     private final Graph<Monitor> graph;
 
+    /**
+     * The template of each branch forked in the current collection cycle,
+     * indexed by the branch's identifier. It is discarded once the cycle
+     * ends.
+     */
+    private final Map<String, Monitor> arena;
+
+    /**
+     * The topological levels of the graph, computed once. The first level
+     * contains the initial branches.
+     */
+    private final List<Set<Monitor>> levels;
+
     /**
      * Monitors for which the collection processed.
      */
-    private final Collection<Monitor> released;
+    private final List<Monitor> released;
 
     /**
-     * Default constructor.
+     * The released monitors, indexed for constant-time membership checks.
+     */
+    private final Set<Monitor> lookup;
+
+    /**
+     * The names of the released monitors, to check whether the dependencies
+     * of a node were released.
+     */
+    private final Set<String> names;
+
+    /**
+     * The content contributed by each released branch, indexed by the
+     * branch's identifier.
+     */
+    private final Map<String, JsonNode> contents;
+
+    /**
+     * The compiled selectors of outputs and transformations, shared by all
+     * the branches and collection cycles.
+     */
+    @Getter
+    private final SelectorCache selectors;
+
+    /**
+     * The pooled HTTP clients used to collect the branches.
+     */
+    private final HttpClientPool pool;
+
+    /**
+     * A bounded executor to collect branches concurrently. It is only present
+     * in parallel mode.
+     */
+    private final Optional<ExecutorService> executor;
+
+    /**
+     * Whether to parse the responses as they are received.
+     */
+    private final boolean streaming;
+
+    /**
+     * Whether to collect the branches using conditional requests.
+     */
+    private final boolean conditional;
+
+    /**
+     * The number of consecutive cycles in which the subtree of an unchanged
+     * branch can be reused without revalidating the dependent branches.
+     */
+    private final int reuse;
+
+    /**
+     * The results of the branches collected in previous cycles, indexed by
+     * the branch's identifier.
+     */
+    private final Map<String, ForkAndCollectAlgorithm.Memo> memos;
+
+    /**
+     * Whether to keep the results of the branches, that is, in conditional or
+     * partial mode, or if a node has a refresh interval.
+     */
+    private final boolean remembering;
+
+    /**
+     * The time at which the branches with a refresh interval must be
+     * collected again.
+     */
+    private final RefreshSchedule schedule;
+
+    /**
+     * Whether to return a partial result when some branches fail.
+     */
+    private final boolean partial;
+
+    /**
+     * The number of consecutive cycles in which the last known content of a
+     * failed branch replaces its content.
+     */
+    private final int budget;
+
+    /**
+     * The number of consecutive failures of each branch, indexed by the
+     * branch's identifier. Only used in partial mode.
+     */
+    private final Map<String, Integer> failures;
+
+    /**
+     * Collection tasks of branches that were forked but not processed yet.
+     */
+    private final Map<Monitor, Future<ForkAndCollectAlgorithm.Collected>> pending;
+
+    /**
+     * A single thread running the collect and fork steps of the asynchronous
+     * mode.
+     */
+    private final ExecutorService processor;
+
+    /**
+     * Asynchronous requests of branches that were forked but not processed
+     * yet. Only accessed from the processing thread.
+     */
+    private final Map<Monitor, CompletableFuture<Revision>> requests;
+
+    /**
+     * Secondary constructor. It creates its own pooled HTTP clients.
      * @param graph The dependency graph
      * @param config The configuration properties
      * @param <T> The subtype of {@link Node}
      */
     public <T extends Node> ForkAndCollectAlgorithm(final Graph<T> graph,
         final Configuration config) {
+        this(graph, config, new HttpClientPool(config));
+    }
+
+    /**
+     * Default constructor.
+     * @param graph The dependency graph
+     * @param config The configuration properties
+     * @param pool The pooled HTTP clients
+     * @param <T> The subtype of {@link Node}
+     */
+    public <T extends Node> ForkAndCollectAlgorithm(final Graph<T> graph,
+        final Configuration config, final HttpClientPool pool) {
         this.config = config;
+        this.pool = pool;
         this.graph = new Graph<>(
             graph.getNodes()
                 .stream()
                 .map(node -> new Monitor(node, config))
                 .collect(Collectors.toSet())
         );
+        this.levels = this.graph.levels();
+        this.arena = new HashMap<>(0);
         this.released = new ArrayList<>(this.graph.getNodes().size());
+        this.lookup = new HashSet<>(this.graph.getNodes().size());
+        this.names = new HashSet<>(this.graph.getNodes().size());
+        this.contents = new LinkedHashMap<>();
+        this.selectors = new SelectorCache(
+            config.getInt(
+                "selectors.cache-size",
+                ForkAndCollectAlgorithm.DEFAULT_SELECTORS
+            )
+        ).warm(ForkAndCollectAlgorithm.expressions(this.graph));
+        this.executor = ForkAndCollectAlgorithm.executor(
+            config.getInt(
+                "fork.parallelism",
+                ForkAndCollectAlgorithm.DEFAULT_PARALLELISM
+            )
+        );
+        this.streaming = config.getBoolean("fork.streaming", false);
+        this.conditional = config.getBoolean("fork.conditional", false);
+        this.reuse = config.getInt("fork.conditional.reuse", 0);
+        this.memos = new ConcurrentHashMap<>();
+        this.schedule = new RefreshSchedule();
+        this.partial = config.getBoolean("fork.partial", false);
+        this.budget = config.getInt(
+            "fork.partial.budget",
+            ForkAndCollectAlgorithm.DEFAULT_BUDGET
+        );
+        this.failures = new HashMap<>(0);
+        this.remembering = this.conditional || this.partial
+            || ForkAndCollectAlgorithm.refreshing(this.graph);
+        this.pending = new IdentityHashMap<>(0);
+        this.processor = Executors.newSingleThreadExecutor(
+            ForkAndCollectAlgorithm.daemon("fork-and-collect-async")
+        );
+        this.requests = new IdentityHashMap<>(0);
     }
 
     /**
@@ -92,14 +342,153 @@ public final class ForkAndCollectAlgorithm {
      */
     public JsonNode data() throws IOException, UnexpectedResponseCodeException,
         ConfigurationException {
-        // TODO Validate the graph. Look for cycles. Move to Graph?
+        final long start = System.nanoTime();
+        final Collection<Monitor> branches = this.roots();
+        this.schedule.advance();
+        try {
+            this.prefetch(branches);
+            final JsonNode result = this.data(branches);
+            this.forget();
+            return result;
+        } finally {
+            this.pending.values().forEach(future -> future.cancel(true));
+            this.pending.clear();
+            this.arena.clear();
+            this.pool.metrics().cycle(System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * Validates the graph, looking for inputs based on nodes that do not
+     * exist and for dependency cycles. Nodes in either situation would never
+     * be collected. It should be called before the first collection cycle.
+     * @throws GraphValidationException If the graph is not valid
+     */
+    public void validate() throws GraphValidationException {
+        final Set<Node> unresolved = this.graph.unresolved();
+        if (!unresolved.isEmpty()) {
+            throw new GraphValidationException(
+                "Inputs are based on nodes not found in the graph: %s",
+                ForkAndCollectAlgorithm.names(unresolved)
+            );
+        }
+        final Set<Monitor> cycles = this.graph.cycles();
+        if (!cycles.isEmpty()) {
+            throw new GraphValidationException(
+                "Nodes are part of, or depend on, a dependency cycle: %s",
+                ForkAndCollectAlgorithm.names(cycles)
+            );
+        }
+        ForkAndCollectAlgorithm.LOGGER.debug(
+            "Graph levels: {}",
+            this.levels.stream()
+                .map(ForkAndCollectAlgorithm::names)
+                .collect(Collectors.toList())
+        );
+    }
+
+    /**
+     * Non-blocking variant of {@link #data()}.
+     * @return A future completing with a Json object representing the
+     *  collected content, or exceptionally with one of the exceptions
+     *  described in {@link #data()}
+     */
+    public CompletableFuture<JsonNode> dataAsync() {
+        final long start = System.nanoTime();
+        return CompletableFuture.supplyAsync(this::roots, this.processor)
+            .thenCompose(branches -> {
+                this.schedule.advance();
+                this.fetch(branches);
+                return this.dataAsync(branches);
+            })
+            .thenApplyAsync(
+                result -> {
+                    this.forget();
+                    return result;
+                },
+                this.processor
+            )
+            .whenCompleteAsync(
+                (result, error) -> {
+                    this.requests.values().forEach(future -> future.cancel(false));
+                    this.requests.clear();
+                    this.arena.clear();
+                    this.pool.metrics().cycle(System.nanoTime() - start);
+                },
+                this.processor
+            );
+    }
+
+    /**
+     * The content collected in the last cycle, as the subtree contributed by
+     * each branch once transformed, indexed by the branch's identifier. The
+     * subtrees do not include the content of forked branches.
+     * @return A non-null copy, in the order in which branches were released
+     */
+    public Map<String, JsonNode> getContents() {
+        return Collections.unmodifiableMap(new LinkedHashMap<>(this.contents));
+    }
+
+    /**
+     * The number of forked branches kept for the current cycle. Forked
+     * branches are discarded once the cycle ends, so it is zero in between
+     * cycles.
+     * @return A positive number or zero
+     */
+    public int forked() {
+        return this.arena.size();
+    }
+
+    /**
+     * Shuts down the thread pools, if any.
+     */
+    @Override
+    public void close() {
+        this.executor.ifPresent(ExecutorService::shutdownNow);
+        this.processor.shutdownNow();
+    }
+
+    /**
+     * Resets the released branches and finds the initial branches (i.e., the
+     * initial fork step).
+     * @return The monitors without dependencies
+     */
+    private Collection<Monitor> roots() {
         this.released.clear();
-        // Initial fork step
-        final Collection<Monitor> branches = this.graph.getNodes()
-            .stream()
-            .filter(node -> node.dependencies().isEmpty())
-            .collect(Collectors.toSet());
-        return this.data(branches);
+        this.lookup.clear();
+        this.names.clear();
+        this.contents.clear();
+        this.arena.clear();
+        final Collection<Monitor> roots =
+            new HashSet<>(this.graph.getNodes().size());
+        if (!this.levels.isEmpty()) {
+            roots.addAll(this.levels.get(0));
+        }
+        return roots;
+    }
+
+    /**
+     * Forgets the state kept for the branches that were not released in the
+     * last cycle, as they no longer exist.
+     */
+    private void forget() {
+        this.memos.keySet().retainAll(this.contents.keySet());
+        this.schedule.retain(this.contents.keySet());
+        this.failures.keySet().retainAll(this.contents.keySet());
+        ForkAndCollectAlgorithm.LOGGER.debug(
+            "Branches waiting for their refresh interval: {}",
+            this.schedule.size()
+        );
+    }
+
+    /**
+     * Marks a branch as released.
+     * @param branch The branch
+     */
+    private void released(final Monitor branch) {
+        this.released.add(branch);
+        this.lookup.add(branch);
+        this.names.add(branch.getName());
     }
 
     /**
@@ -115,22 +504,28 @@ public final class ForkAndCollectAlgorithm {
     @SuppressWarnings("checkstyle:NestedForDepth")
     private JsonNode data(final Collection<Monitor> branches)
         throws IOException, UnexpectedResponseCodeException, ConfigurationException {
-        ForkAndCollectAlgorithm.LOGGER.info(
-            "Branches: {} Endpoints: {}",
-            branches.size(),
-            branches.stream()
-                .map(Monitor::getName)
-                .distinct()
-                .collect(Collectors.joining(", "))
-        );
+        ForkAndCollectAlgorithm.log(branches);
         final JsonNode result = this.node(branches);
         for (final Monitor branch : branches) {
             // Collect step
-            final String content = branch.collect();
-            this.applyMappingsAndAdd(branch, content, result);
-            this.released.add(branch);
+            final ForkAndCollectAlgorithm.Collected collected;
+            try {
+                collected = this.collected(branch);
+            } catch (final IOException | UnexpectedResponseCodeException exception) {
+                if (!this.partial || exception instanceof InterruptedIOException) {
+                    throw exception;
+                }
+                this.substitute(branch, exception, result);
+                continue;
+            }
+            this.failures.remove(branch.getIdentifier());
             final Collection<ResultSet<String, String>> located =
-                this.collectedValues(branch, content);
+                this.release(branch, collected, result);
+            if (this.replay(branch, collected, result)) {
+                continue;
+            }
+            final List<Map.Entry<String, JsonNode>> forks = new ArrayList<>(0);
+            final List<Monitor> children = new ArrayList<>(0);
             final Collection<ResultSet<String, String>> singletons = located.stream()
                 .filter(ResultSet::isSingleton)
                 .collect(Collectors.toList());
@@ -141,10 +536,12 @@ public final class ForkAndCollectAlgorithm {
                 // Fork step
                 final Collection<Monitor> next =
                     this.branches(branch, singletons, values);
+                this.pool.metrics().fanOut(branch.getName(), next.size());
                 // Recursive call
                 if (next.isEmpty()) {
                     continue;
                 }
+                this.prefetch(next);
                 // At this point, if two or more branches produce an object
                 // because they are different, they should not be processed
                 // together. That is possible only for the root object. Then,
@@ -155,12 +552,786 @@ public final class ForkAndCollectAlgorithm {
                     final JsonNode data = this.data(batch);
                     final String name = batch.iterator().next().getName();
                     this.add(result, name, data);
+                    forks.add(new AbstractMap.SimpleImmutableEntry<>(name, data));
+                    children.addAll(batch);
                 }
             }
+            this.remember(branch, collected, forks, children);
         }
         return result;
     }
 
+    /**
+     * Asynchronous variant of {@link #data(Collection)}.
+     * @param branches The current branches
+     * @return A future completing with a Json object representing the
+     *  collected content
+     */
+    private CompletableFuture<JsonNode> dataAsync(
+        final Collection<Monitor> branches) {
+        ForkAndCollectAlgorithm.log(branches);
+        final JsonNode result =
+            ForkAndCollectAlgorithm.unchecked(() -> this.node(branches));
+        CompletableFuture<Void> chain = CompletableFuture.completedFuture(null);
+        for (final Monitor branch : branches) {
+            chain = chain.thenComposeAsync(
+                nothing -> this.processAsync(branch, result),
+                this.processor
+            );
+        }
+        return chain.thenApply(nothing -> result);
+    }
+
+    /**
+     * Collect step of the asynchronous mode, followed by the fork steps. In
+     * partial mode, a branch that cannot be collected is replaced as in
+     * {@link #data(Collection)}.
+     * @param branch The branch
+     * @param result The Json node to which the content is added
+     * @return A future completing once all the forked branches are processed
+     */
+    private CompletableFuture<Void> processAsync(final Monitor branch,
+        final JsonNode result) {
+        return this.collectedAsync(branch)
+            .handleAsync(
+                (collected, error) -> this.tolerate(branch, collected, error, result),
+                this.processor
+            )
+            .thenComposeAsync(
+                collected -> collected
+                    .map(value -> this.forkAsync(branch, value, result))
+                    .orElseGet(() -> CompletableFuture.completedFuture(null)),
+                this.processor
+            );
+    }
+
+    /**
+     * Handles the outcome of the collect step of the asynchronous mode.
+     * @param branch The branch
+     * @param collected The branch's collected content, or null if it failed
+     * @param error The cause of the failure, or null
+     * @param result The Json node to which the content is added
+     * @return The collected content, or empty if the branch was replaced
+     * @throws CompletionException If the branch failed and cannot be replaced
+     */
+    @SuppressWarnings("checkstyle:ParameterNumber")
+    private Optional<ForkAndCollectAlgorithm.Collected> tolerate(
+        final Monitor branch, final ForkAndCollectAlgorithm.Collected collected,
+        final Throwable error, final JsonNode result) {
+        final Optional<ForkAndCollectAlgorithm.Collected> tolerated;
+        if (error == null) {
+            tolerated = Optional.of(collected);
+        } else {
+            final Throwable cause = Failures.unwrap(error);
+            if (!this.partial || cause instanceof InterruptedIOException
+                || !(cause instanceof IOException
+                || cause instanceof UnexpectedResponseCodeException)) {
+                throw new CompletionException(cause);
+            }
+            ForkAndCollectAlgorithm.unchecked(() -> {
+                this.substitute(branch, (Exception) cause, result);
+                return null;
+            });
+            tolerated = Optional.empty();
+        }
+        return tolerated;
+    }
+
+    /**
+     * Adds the content of a collected branch to the result, followed by the
+     * fork steps for each multivalued output.
+     * @param branch The branch
+     * @param collected The branch's parsed content and located values
+     * @param result The Json node to which the content is added
+     * @return A future completing once all the forked branches are processed
+     */
+    private CompletableFuture<Void> forkAsync(final Monitor branch,
+        final ForkAndCollectAlgorithm.Collected collected, final JsonNode result) {
+        this.reschedule(branch);
+        this.failures.remove(branch.getIdentifier());
+        final Collection<ResultSet<String, String>> located =
+            ForkAndCollectAlgorithm.unchecked(
+                () -> this.release(branch, collected, result)
+            );
+        CompletableFuture<Void> chain = CompletableFuture.completedFuture(null);
+        if (!this.replay(branch, collected, result)) {
+            final List<Map.Entry<String, JsonNode>> forks = new ArrayList<>(0);
+            final List<Monitor> children = new ArrayList<>(0);
+            final Collection<ResultSet<String, String>> singletons = located.stream()
+                .filter(ResultSet::isSingleton)
+                .collect(Collectors.toList());
+            for (final ResultSet<String, String> values : located) {
+                if (!values.isSingleton()) {
+                    chain = chain.thenCompose(
+                        nothing -> this.forkAsync(
+                            branch,
+                            singletons,
+                            values,
+                            forks,
+                            children
+                        )
+                    );
+                }
+            }
+            chain = chain.thenRunAsync(
+                () -> {
+                    forks.forEach(fork -> this.add(result, fork.getKey(), fork.getValue()));
+                    this.remember(branch, collected, forks, children);
+                },
+                this.processor
+            );
+        }
+        return chain;
+    }
+
+    /**
+     * Fork step of the asynchronous mode.
+     * @param branch The branch
+     * @param singletons Values corresponding to single-value outputs
+     * @param values Values corresponding to a multivalued output
+     * @param forks The list to which the forked content is added, indexed by
+     *  name
+     * @param children The list to which the forked branches are added
+     * @return A future completing once the forked branches are processed
+     */
+    @SuppressWarnings("checkstyle:ParameterNumber")
+    private CompletableFuture<Void> forkAsync(final Monitor branch,
+        final Collection<ResultSet<String, String>> singletons,
+        final ResultSet<String, String> values,
+        final List<Map.Entry<String, JsonNode>> forks,
+        final List<Monitor> children) {
+        final Collection<Monitor> next = this.branches(branch, singletons, values);
+        this.pool.metrics().fanOut(branch.getName(), next.size());
+        this.fetch(next);
+        CompletableFuture<Void> chain = CompletableFuture.completedFuture(null);
+        for (final List<Monitor> batch : this.splitBranches(next).values()) {
+            final String name = batch.iterator().next().getName();
+            chain = chain
+                .thenCompose(nothing -> this.dataAsync(batch))
+                .thenAccept(
+                    data -> {
+                        forks.add(new AbstractMap.SimpleImmutableEntry<>(name, data));
+                        children.addAll(batch);
+                    }
+                );
+        }
+        return chain;
+    }
+
+    /**
+     * Adds the content of a branch to the result and marks the branch as
+     * released.
+     * @param branch The branch
+     * @param collected The branch's parsed content and located values
+     * @param result The Json node to which the content is added
+     * @return The values located for the branch's outputs
+     * @throws ConfigurationException See
+     *  {@link #applyMappingsAndAdd(Monitor, JsonNode, JsonNode)}
+     */
+    private Collection<ResultSet<String, String>> release(final Monitor branch,
+        final ForkAndCollectAlgorithm.Collected collected, final JsonNode result)
+        throws ConfigurationException {
+        if (collected.isModified()) {
+            this.applyMappingsAndAdd(branch, collected.getTree(), result);
+        } else {
+            this.append(
+                branch,
+                this.memos.get(branch.getIdentifier()).getSubtree(),
+                result
+            );
+        }
+        this.released(branch);
+        return collected.getLocated();
+    }
+
+    /**
+     * Adds the content of the branches forked from an unchanged branch, as
+     * collected in a previous cycle, unless the dependent branches must be
+     * revalidated.
+     * @param branch The branch
+     * @param collected The branch's collected content
+     * @param result The Json node to which the content is added
+     * @return Whether the previous content was reused
+     */
+    private boolean replay(final Monitor branch,
+        final ForkAndCollectAlgorithm.Collected collected, final JsonNode result) {
+        boolean replayed = false;
+        if (!collected.isModified()) {
+            final ForkAndCollectAlgorithm.Memo memo =
+                this.memos.get(branch.getIdentifier());
+            if (memo.getAge() < this.reuse && !this.isExpired(memo)) {
+                memo.getForks()
+                    .forEach(fork -> this.add(result, fork.getKey(), fork.getValue()));
+                this.restore(memo);
+                this.memos.put(branch.getIdentifier(), memo.older());
+                replayed = true;
+            }
+        }
+        return replayed;
+    }
+
+    /**
+     * Replaces the content of a branch that could not be collected with its
+     * last known content, including the content of the branches forked from
+     * it, unless the branch exhausted its error budget. Otherwise, the branch
+     * and its subtree are left out of the result.
+     * @param branch The failed branch
+     * @param error The cause of the failure
+     * @param result The Json node to which the content is added
+     * @throws ConfigurationException See
+     *  {@link #append(Monitor, JsonNode, JsonNode)}
+     */
+    private void substitute(final Monitor branch, final Exception error,
+        final JsonNode result) throws ConfigurationException {
+        final int count = this.failures.merge(branch.getIdentifier(), 1, Integer::sum);
+        final ForkAndCollectAlgorithm.Memo memo =
+            this.memos.get(branch.getIdentifier());
+        if (count <= this.budget && memo != null
+            && memo.getInputs().equals(branch.allValues())) {
+            ForkAndCollectAlgorithm.LOGGER.warn(
+                "Could not collect {} ({} consecutive failures), using its last known content",
+                branch.getIdentifier(),
+                count,
+                error
+            );
+            this.append(branch, memo.getSubtree(), result);
+            memo.getForks()
+                .forEach(fork -> this.add(result, fork.getKey(), fork.getValue()));
+            this.released(branch);
+            this.restore(memo);
+        } else {
+            ForkAndCollectAlgorithm.LOGGER.warn(
+                "Could not collect {} ({} consecutive failures), leaving it out",
+                branch.getIdentifier(),
+                count,
+                error
+            );
+        }
+    }
+
+    /**
+     * Keeps the result of a branch, along with the content of the forked
+     * branches and the forked branches that were released. The results of
+     * the latter are kept in their own memos.
+     * @param branch The branch
+     * @param collected The branch's collected content
+     * @param forks The content of the forked branches, indexed by name
+     * @param children The forked branches
+     */
+    @SuppressWarnings("checkstyle:ParameterNumber")
+    private void remember(final Monitor branch,
+        final ForkAndCollectAlgorithm.Collected collected,
+        final List<Map.Entry<String, JsonNode>> forks,
+        final List<Monitor> children) {
+        if (this.remembering) {
+            this.memos.put(
+                branch.getIdentifier(),
+                new ForkAndCollectAlgorithm.Memo(
+                    branch.allValues(),
+                    collected.getRevision(),
+                    collected.getLocated(),
+                    this.contents.get(branch.getIdentifier()),
+                    forks,
+                    children.stream()
+                        .filter(child -> this.contents.containsKey(child.getIdentifier()))
+                        .collect(Collectors.toList()),
+                    0
+                )
+            );
+        }
+    }
+
+    /**
+     * Marks the branches forked from a branch, and recursively the branches
+     * forked from them, as released, restoring their content as collected in
+     * a previous cycle.
+     * @param memo The branch's memo
+     */
+    private void restore(final ForkAndCollectAlgorithm.Memo memo) {
+        for (final Monitor child : memo.getChildren()) {
+            final ForkAndCollectAlgorithm.Memo previous =
+                this.memos.get(child.getIdentifier());
+            this.contents.put(child.getIdentifier(), previous.getSubtree());
+            this.released(child);
+            this.restore(previous);
+        }
+    }
+
+    /**
+     * Collects the content of a branch and locates the values of its outputs.
+     * @param branch The branch
+     * @return The parsed content and the located values
+     * @throws IOException See {@link Monitor#collect(HttpClientPool)}
+     * @throws UnexpectedResponseCodeException See
+     *  {@link Monitor#collect(HttpClientPool)}
+     */
+    private ForkAndCollectAlgorithm.Collected collect(final Monitor branch)
+        throws IOException, UnexpectedResponseCodeException {
+        final ForkAndCollectAlgorithm.Collected collected;
+        if (this.conditional) {
+            collected = this.revalidate(branch);
+        } else if (this.streaming) {
+            collected = this.stream(branch);
+        } else {
+            collected = this.parse(branch, branch.collect(this.pool));
+        }
+        return collected;
+    }
+
+    /**
+     * Collects the content of a branch with a conditional request, based on
+     * the revision collected in the previous cycle, provided that the
+     * branch's inputs did not change.
+     * @param branch The branch
+     * @return The parsed content and the located values, or the values
+     *  located in the previous cycle if the content did not change
+     * @throws IOException If there is a problem collecting or parsing the
+     *  content
+     * @throws UnexpectedResponseCodeException See
+     *  {@link Monitor#collect(HttpClientPool, Revision)}
+     */
+    private ForkAndCollectAlgorithm.Collected revalidate(final Monitor branch)
+        throws IOException, UnexpectedResponseCodeException {
+        final Revision previous = this.previous(branch);
+        return this.revalidated(
+            branch,
+            previous,
+            branch.collect(this.pool, previous)
+        );
+    }
+
+    /**
+     * Finds the revision on which the request of a branch is conditional,
+     * that is, the revision collected in the previous cycle, provided that
+     * the branch's inputs did not change.
+     * @param branch The branch
+     * @return The previous revision, or null if there is none or the
+     *  conditional mode is disabled
+     */
+    private Revision previous(final Monitor branch) {
+        Revision previous = null;
+        final ForkAndCollectAlgorithm.Memo memo =
+            this.memos.get(branch.getIdentifier());
+        if (this.conditional && memo != null
+            && memo.getInputs().equals(branch.allValues())) {
+            previous = memo.getRevision();
+        }
+        return previous;
+    }
+
+    /**
+     * Parses a revision of a branch's content, unless it is the same as the
+     * previous one.
+     * @param branch The branch
+     * @param previous The revision on which the request was conditional, or
+     *  null
+     * @param revision The collected revision
+     * @return The parsed content and the located values, or the values
+     *  located in the previous cycle if the content did not change
+     * @throws IOException If there is a problem parsing the content
+     */
+    private ForkAndCollectAlgorithm.Collected revalidated(final Monitor branch,
+        final Revision previous, final Revision revision) throws IOException {
+        final ForkAndCollectAlgorithm.Collected collected;
+        if (previous != null && revision.isSameAs(previous)) {
+            Revision current = previous;
+            if (revision.isModified()) {
+                current = revision.validators();
+            }
+            collected = new ForkAndCollectAlgorithm.Collected(
+                MissingNode.getInstance(),
+                this.memos.get(branch.getIdentifier()).getLocated(),
+                current,
+                false
+            );
+        } else if (this.conditional) {
+            final ForkAndCollectAlgorithm.Collected parsed =
+                this.parse(branch, revision.getContent());
+            collected = new ForkAndCollectAlgorithm.Collected(
+                parsed.getTree(),
+                parsed.getLocated(),
+                revision.validators(),
+                true
+            );
+        } else {
+            collected = this.parse(branch, revision.getContent());
+        }
+        return collected;
+    }
+
+    /**
+     * Parses the content of a branch and locates the values of its outputs.
+     * The content is parsed only once; the transformation and the outputs'
+     * selectors are evaluated on the same tree.
+     * @param branch The branch
+     * @param content The branch's collected content
+     * @return The parsed content and the located values
+     * @throws IOException If there is a problem parsing the content
+     */
+    private ForkAndCollectAlgorithm.Collected parse(final Monitor branch,
+        final String content) throws IOException {
+        final JsonNode tree = ForkAndCollectAlgorithm.MAPPER.readTree(content);
+        return new ForkAndCollectAlgorithm.Collected(
+            tree,
+            this.collectedValues(branch, tree, Collections.emptyMap())
+        );
+    }
+
+    /**
+     * Collects the content of a branch, parsing it as it is received. The
+     * values of multivalued outputs are located while the tree is built.
+     * @param branch The branch
+     * @return The parsed content and the located values
+     * @throws IOException If there is a problem collecting or parsing the
+     *  content
+     * @throws UnexpectedResponseCodeException See
+     *  {@link Monitor#collect(HttpClientPool)}
+     */
+    private ForkAndCollectAlgorithm.Collected stream(final Monitor branch)
+        throws IOException, UnexpectedResponseCodeException {
+        final Map<String, JsonSelector> multivalued = new HashMap<>();
+        final Map<String, Collection<String>> values = new HashMap<>();
+        for (final Output output : branch.getOutputs()) {
+            if (output.isMultivalued()) {
+                multivalued.put(
+                    output.getName(),
+                    this.selectors.selector(output.getSelector())
+                );
+                values.put(output.getName(), new HashSet<>());
+            }
+        }
+        final JsonNode tree = branch.collectTree(
+            this.pool,
+            new JsonStreamReader(multivalued),
+            (name, node) -> values.get(name).add(node.asText())
+        );
+        return new ForkAndCollectAlgorithm.Collected(
+            tree,
+            this.collectedValues(branch, tree, values)
+        );
+    }
+
+    /**
+     * Issues the asynchronous requests of the given branches, except for
+     * those that are not due.
+     * @param branches The branches to collect
+     */
+    private void fetch(final Collection<Monitor> branches) {
+        for (final Monitor branch : branches) {
+            if (this.isDue(branch)) {
+                this.requests.put(branch, this.request(branch));
+            }
+        }
+    }
+
+    /**
+     * Issues the asynchronous request of a branch, which is conditional in
+     * conditional mode.
+     * @param branch The branch
+     * @return A future completing with the collected revision
+     */
+    private CompletableFuture<Revision> request(final Monitor branch) {
+        return branch.collectAsync(this.pool, this.previous(branch));
+    }
+
+    /**
+     * Asynchronous variant of {@link #collected(Monitor)}. It finds the
+     * asynchronous request of a branch, or issues it if there is none, unless
+     * the branch is not due.
+     * @param branch The branch
+     * @return A future completing with the parsed content and the located
+     *  values
+     */
+    private CompletableFuture<ForkAndCollectAlgorithm.Collected> collectedAsync(
+        final Monitor branch) {
+        final CompletableFuture<ForkAndCollectAlgorithm.Collected> future;
+        if (this.isDue(branch)) {
+            final Revision previous = this.previous(branch);
+            CompletableFuture<Revision> request = this.requests.remove(branch);
+            if (request == null) {
+                request = this.request(branch);
+            }
+            future = request.thenApplyAsync(
+                revision -> ForkAndCollectAlgorithm.unchecked(
+                    () -> this.revalidated(branch, previous, revision)
+                ),
+                this.processor
+            );
+        } else {
+            future = CompletableFuture.completedFuture(this.unchanged(branch));
+        }
+        return future;
+    }
+
+    /**
+     * Starts collecting the content of the given branches in the background.
+     * This method does nothing in sequential mode.
+     * @param branches The branches to collect
+     */
+    private void prefetch(final Collection<Monitor> branches) {
+        if (this.executor.isPresent()) {
+            final ExecutorService service = this.executor.get();
+            for (final Monitor branch : branches) {
+                if (this.isDue(branch)) {
+                    this.pending.put(
+                        branch,
+                        service.submit(() -> this.collect(branch))
+                    );
+                }
+            }
+        }
+    }
+
+    /**
+     * Collects the content of a branch, or waits for it in case it was
+     * prefetched.
+     * @param branch The branch
+     * @return The parsed content and the located values
+     * @throws IOException See {@link Monitor#collect(HttpClientPool)}
+     * @throws UnexpectedResponseCodeException See
+     *  {@link Monitor#collect(HttpClientPool)}
+     */
+    private ForkAndCollectAlgorithm.Collected collected(final Monitor branch)
+        throws IOException, UnexpectedResponseCodeException {
+        final Future<ForkAndCollectAlgorithm.Collected> future =
+            this.pending.remove(branch);
+        final ForkAndCollectAlgorithm.Collected collected;
+        if (!this.isDue(branch)) {
+            collected = this.unchanged(branch);
+        } else if (future == null) {
+            collected = this.collect(branch);
+        } else {
+            collected = ForkAndCollectAlgorithm.await(future);
+        }
+        this.reschedule(branch);
+        return collected;
+    }
+
+    /**
+     * Creates the result of a branch that is not due, based on the values
+     * located in the previous cycle.
+     * @param branch The branch
+     * @return The values located in the previous cycle
+     */
+    private ForkAndCollectAlgorithm.Collected unchanged(final Monitor branch) {
+        final ForkAndCollectAlgorithm.Memo memo =
+            this.memos.get(branch.getIdentifier());
+        return new ForkAndCollectAlgorithm.Collected(
+            MissingNode.getInstance(),
+            memo.getLocated(),
+            memo.getRevision(),
+            false
+        );
+    }
+
+    /**
+     * Sets the time at which a branch with a refresh interval must be
+     * collected again, if it was collected in the current cycle.
+     * @param branch The branch
+     */
+    private void reschedule(final Monitor branch) {
+        final long interval = ForkAndCollectAlgorithm.interval(branch);
+        if (interval > 0L && this.schedule.isDue(branch.getIdentifier())) {
+            this.schedule.collected(branch.getIdentifier(), interval);
+        }
+    }
+
+    /**
+     * Whether a branch must be collected in the current cycle. A branch with
+     * a refresh interval is not due until its deadline passes, provided that
+     * its previous result is known and its inputs did not change.
+     * @param branch The branch
+     * @return Whether to collect the branch
+     */
+    private boolean isDue(final Monitor branch) {
+        boolean due = true;
+        if (ForkAndCollectAlgorithm.interval(branch) > 0L
+            && !this.schedule.isDue(branch.getIdentifier())) {
+            final ForkAndCollectAlgorithm.Memo memo =
+                this.memos.get(branch.getIdentifier());
+            due = memo == null || !memo.getInputs().equals(branch.allValues());
+        }
+        return due;
+    }
+
+    /**
+     * Whether the refresh interval of a branch forked from a branch, or
+     * recursively from them, elapsed.
+     * @param memo The branch's memo
+     * @return Whether any of the forked branches is due
+     */
+    private boolean isExpired(final ForkAndCollectAlgorithm.Memo memo) {
+        return memo.getChildren().stream().anyMatch(
+            child -> this.isExpired(child)
+                || this.isExpired(this.memos.get(child.getIdentifier()))
+        );
+    }
+
+    /**
+     * Whether the refresh interval of a branch elapsed.
+     * @param branch The branch
+     * @return Whether the branch has a refresh interval and is due
+     */
+    private boolean isExpired(final Monitor branch) {
+        return ForkAndCollectAlgorithm.interval(branch) > 0L
+            && this.schedule.isDue(branch.getIdentifier());
+    }
+
+    /**
+     * Finds the refresh interval of a branch.
+     * @param branch The branch
+     * @return The interval in seconds, or zero if the branch must be collected
+     *  in every cycle
+     */
+    private static long interval(final Monitor branch) {
+        long interval = 0L;
+        for (final Property property : branch.getMetadata()) {
+            if (property instanceof Refresh) {
+                interval = Math.max(interval, ((Refresh) property).getInterval());
+            }
+        }
+        return interval;
+    }
+
+    /**
+     * Waits for a collection task to complete.
+     * @param future The collection task
+     * @param <T> The type of the task's result
+     * @return The task's result
+     * @throws IOException If the task failed with an I/O error or the current
+     *  thread was interrupted
+     * @throws UnexpectedResponseCodeException If the task failed due to an
+     *  unexpected response code
+     */
+    private static <T> T await(final Future<T> future)
+        throws IOException, UnexpectedResponseCodeException {
+        try {
+            return future.get();
+        } catch (final InterruptedException exception) {
+            Thread.currentThread().interrupt();
+            final InterruptedIOException error =
+                new InterruptedIOException("Interrupted while collecting a branch");
+            error.initCause(exception);
+            throw error;
+        } catch (final ExecutionException exception) {
+            final Throwable cause = exception.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            if (cause instanceof UnexpectedResponseCodeException) {
+                throw (UnexpectedResponseCodeException) cause;
+            }
+            throw new IllegalStateException(cause);
+        }
+    }
+
+    /**
+     * Runs a step of the asynchronous mode, wrapping checked exceptions.
+     * @param step The step
+     * @param <T> The type of the step's result
+     * @return The step's result
+     * @throws CompletionException If the step fails
+     */
+    private static <T> T unchecked(final ForkAndCollectAlgorithm.Step<T> step) {
+        try {
+            return step.run();
+        } catch (final IOException | UnexpectedResponseCodeException
+            | ConfigurationException exception) {
+            throw new CompletionException(exception);
+        }
+    }
+
+    /**
+     * Logs the current branches.
+     * @param branches The current branches
+     */
+    private static void log(final Collection<Monitor> branches) {
+        ForkAndCollectAlgorithm.LOGGER.info(
+            "Branches: {} Endpoints: {}",
+            branches.size(),
+            branches.stream()
+                .map(Monitor::getName)
+                .distinct()
+                .collect(Collectors.joining(", "))
+        );
+    }
+
+    /**
+     * Lists the names of some nodes.
+     * @param nodes The nodes
+     * @return A sorted, comma-separated list of names
+     */
+    private static String names(final Collection<? extends Node> nodes) {
+        return nodes.stream()
+            .map(Node::getName)
+            .sorted()
+            .collect(Collectors.joining(", "));
+    }
+
+    /**
+     * Creates a factory of daemon threads.
+     * @param name The name of the threads
+     * @return A non-null factory
+     */
+    private static ThreadFactory daemon(final String name) {
+        return runnable -> {
+            final Thread thread = new Thread(runnable, name);
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    /**
+     * Whether a node of a graph has a refresh interval.
+     * @param graph The dependency graph
+     * @return Whether any monitor is refreshed periodically
+     */
+    private static boolean refreshing(final Graph<Monitor> graph) {
+        return graph.getNodes()
+            .stream()
+            .anyMatch(monitor -> ForkAndCollectAlgorithm.interval(monitor) > 0L);
+    }
+
+    /**
+     * Finds the selectors of the outputs and transformations in a graph.
+     * @param graph The dependency graph
+     * @return A non-null set of Xpath expressions
+     */
+    private static Set<String> expressions(final Graph<Monitor> graph) {
+        final Set<String> expressions = new HashSet<>(graph.getNodes().size());
+        for (final Monitor monitor : graph.getNodes()) {
+            monitor.getOutputs()
+                .forEach(output -> expressions.add(output.getSelector()));
+            monitor.getMetadata()
+                .stream()
+                .filter(Transformation.class::isInstance)
+                .map(Transformation.class::cast)
+                .forEach(transf -> expressions.add(transf.getSelector()));
+        }
+        return expressions;
+    }
+
+    /**
+     * Creates the executor for the parallel mode.
+     * @param parallelism The maximum number of concurrent collection tasks
+     * @return An executor if the parallelism is greater than one, or an empty
+     *  optional otherwise
+     */
+    private static Optional<ExecutorService> executor(final int parallelism) {
+        final Optional<ExecutorService> optional;
+        if (parallelism > ForkAndCollectAlgorithm.DEFAULT_PARALLELISM) {
+            optional = Optional.of(
+                Executors.newFixedThreadPool(
+                    parallelism,
+                    ForkAndCollectAlgorithm.daemon("fork-and-collect")
+                )
+            );
+        } else {
+            optional = Optional.empty();
+        }
+        return optional;
+    }
+
     /**
      * Creates monitor instances (i.e., branches) based on the collected values
      * for a branch's outputs.
@@ -174,23 +1345,21 @@ public final class ForkAndCollectAlgorithm {
         final ResultSet<String, String> values) {
         final Collection<Monitor> branches =
             new HashSet<>(this.graph.getNodes().size());
-        this.graph.dependents(branch)
+        this.graph.dependents(this.arena.getOrDefault(branch.getIdentifier(), branch))
             .stream()
-            .filter(node -> !this.released.contains(node))
-            .filter(node -> this.released.containsAll(node.dependencies()))
+            .filter(node -> !this.lookup.contains(node))
+            .filter(node -> this.isReady(node))
             .forEach(node ->
                 values.forEach(entry -> {
                     final String name = entry.getKey();
                     final String value = entry.getValue();
-                    final Monitor tmp = new Monitor(node, this.config);
-                    final String bid = branch.getIdentifier();
-                    final String tid = tmp.getIdentifier();
-                    tmp.setIdentifier("%s-%s-%s", bid, tid, value);
+                    final Monitor tmp = node.fork(
+                        String.join("-", branch.getIdentifier(), node.getName(), value),
+                        branch
+                    );
                     // Update the input that depends on this value
-                    final Optional<Input> optional = tmp.getParameters(true)
+                    final Optional<Input> optional = tmp.getInputs()
                         .stream()
-                        .filter(Input.class::isInstance)
-                        .map(Input.class::cast)
                         .filter(Input::hasSource)
                         .filter(input ->
                             input.getSource().getName().equals(branch.getName())
@@ -202,15 +1371,30 @@ public final class ForkAndCollectAlgorithm {
                             tmp.setContextValue(e.getKey(), e.getValue())
                         )
                     );
-                    // Transfer the context from the previous branch
-                    branch.getContextValues().forEach(tmp::setContextValue);
-                    branches.add(tmp);
+                    if (branches.add(tmp)) {
+                        this.arena.put(tmp.getIdentifier(), node);
+                    }
                 })
             );
-        this.graph.getNodes().addAll(branches);
         return branches;
     }
 
+    /**
+     * Whether the dependencies of a node were released.
+     * @param node The node
+     * @return Whether a branch can be forked from the node
+     */
+    private boolean isReady(final Monitor node) {
+        boolean ready = true;
+        for (final Node dependency : this.graph.dependencies(node)) {
+            if (!this.names.contains(dependency.getName())) {
+                ready = false;
+                break;
+            }
+        }
+        return ready;
+    }
+
     /**
      * Splits a collection of branches into batches of branches based on their
      * name.
@@ -233,31 +1417,38 @@ public final class ForkAndCollectAlgorithm {
     /**
      * Locates outputs for a given branch in the collected content.
      * @param branch The branch
-     * @param content The collected content
+     * @param tree The parsed content
+     * @param located Values already located for multivalued outputs, indexed
+     *  by output name
      * @return A set of result sets containing key-vaue pairs, where the key is
      *  the name of the output
-     * @throws IOException In case there is a problem locating an Xpath selector
      */
     private Collection<ResultSet<String, String>> collectedValues(
-        final Monitor branch, final String content) throws IOException {
+        final Monitor branch, final JsonNode tree,
+        final Map<String, Collection<String>> located) {
+        final long start = System.nanoTime();
         final Collection<ResultSet<String, String>> collections =
             new ArrayList<>(0);
-        for (final Parameter parameter : branch.getParameters(true)) {
-            if (parameter instanceof Output) {
-                final Output output = (Output) parameter;
-                final XpathValue value = new XpathValue(content, output.getSelector());
-                if (output.isMultivalued()) {
-                    final Collection<String> values = value.values();
-                    final ResultSet<String, String> set = new ResultSet<>(false);
-                    values.forEach(str -> set.addEntry(output.getName(), str));
-                    collections.add(set);
-                } else {
-                    collections.add(
-                        new ResultSet<>(output.getName(), value.singleValue())
-                    );
+        for (final Output output : branch.getOutputs()) {
+            final XpathValue value = new XpathValue(
+                tree,
+                this.selectors.selector(output.getSelector())
+            );
+            if (output.isMultivalued()) {
+                Collection<String> values = located.get(output.getName());
+                if (values == null) {
+                    values = value.values();
                 }
+                final ResultSet<String, String> set = new ResultSet<>(false);
+                values.forEach(str -> set.addEntry(output.getName(), str));
+                collections.add(set);
+            } else {
+                collections.add(
+                    new ResultSet<>(output.getName(), value.singleValue())
+                );
             }
         }
+        this.pool.metrics().selectors(branch.getName(), System.nanoTime() - start);
         return collections;
     }
 
@@ -321,17 +1512,29 @@ public final class ForkAndCollectAlgorithm {
      * Applies the mappings associated with {@code branch} and add the
      * transformed node into {@code result}.
      * @param branch The branch
-     * @param content The JSON string to transform and add
+     * @param tree The parsed content to transform and add
      * @param result The result JSON node
-     * @throws IOException If there is a problem parsing the string into a JSON
-     *  node
      * @throws ConfigurationException If there is a configuration problem
      */
-    private void applyMappingsAndAdd(final Monitor branch, final String content,
-        final JsonNode result) throws IOException, ConfigurationException {
-        final JsonNode object = ForkAndCollectAlgorithm.MAPPER.readTree(content);
-        final JsonNode transformed = this.transform(object, branch);
+    private void applyMappingsAndAdd(final Monitor branch, final JsonNode tree,
+        final JsonNode result) throws ConfigurationException {
+        final long start = System.nanoTime();
+        final JsonNode transformed = this.transform(tree, branch);
+        this.pool.metrics().selectors(branch.getName(), System.nanoTime() - start);
         this.augment(transformed, branch);
+        this.append(branch, transformed, result);
+    }
+
+    /**
+     * Adds the transformed content of a branch into {@code result}.
+     * @param branch The branch
+     * @param transformed The transformed content
+     * @param result The result JSON node
+     * @throws ConfigurationException If there is a configuration problem
+     */
+    private void append(final Monitor branch, final JsonNode transformed,
+        final JsonNode result) throws ConfigurationException {
+        this.contents.put(branch.getIdentifier(), transformed);
         // This is necessary to avoid having an array of grouped objects.
         // Instead, we transfer all those objects to the result directly
         final Optional<Transformation> transf = this.transformation(branch);
@@ -361,8 +1564,7 @@ public final class ForkAndCollectAlgorithm {
         for (final Augmentation augmentation : collection) {
             for (final String input : augmentation.getInputs()) {
                 final JsonNode object = ForkAndCollectAlgorithm.MAPPER.valueToTree(
-                    monitor.getContextValues()
-                        .get(input)
+                    monitor.getContextValue(input)
                 );
                 this.add(node, input, object);
             }
@@ -372,44 +1574,40 @@ public final class ForkAndCollectAlgorithm {
     /**
      * Transforms the given node according to the monitor's metadata
      * configuration. Specifically, it uses {@link Transformation} instances.
-     * @param node The JSON node to transform
+     * @param tree The parsed content to transform
      * @param monitor The monitor
      * @return The transformed node
-     * @throws IOException If there is a problem parsing the node to String or
-     *  evaluating the transformation's selector
      * @throws ConfigurationException If there is more than one transformation
      *  mapping for the given monitor
      */
     @SuppressWarnings("checkstyle:NestedIfDepth")
-    private JsonNode transform(final JsonNode node, final Monitor monitor)
-        throws IOException, ConfigurationException {
+    private JsonNode transform(final JsonNode tree, final Monitor monitor)
+        throws ConfigurationException {
         final JsonNode transformed;
         final Optional<Transformation> optional = this.transformation(monitor);
         if (optional.isPresent()) {
             final Transformation transf = optional.get();
             final XpathValue value = new XpathValue(
-                ForkAndCollectAlgorithm.MAPPER.writeValueAsString(node),
-                transf.getSelector()
+                tree,
+                this.selectors.selector(transf.getSelector())
             );
             if (transf.getMultivalued() && transf.shouldGroupByInput()) {
                 final Input input =
                     monitor.getParameter(true, transf.getGroupByInput(), Input.class);
-                transformed = ForkAndCollectAlgorithm.MAPPER.readTree(
-                    String.format(
-                        "{\"%s\":%s}",
-                        monitor.allValues().get(input.getName()),
-                        ForkAndCollectAlgorithm.equivalentNode(value.nodeArray())
-                    )
+                final ObjectNode object =
+                    ForkAndCollectAlgorithm.MAPPER.createObjectNode();
+                object.set(
+                    String.valueOf(monitor.value(input.getName())),
+                    value.nodeArray()
                 );
+                transformed = object;
             } else if (transf.getMultivalued()) {
-                transformed =
-                    ForkAndCollectAlgorithm.equivalentNode(value.nodeArray());
+                transformed = value.nodeArray();
             } else {
-                transformed =
-                    ForkAndCollectAlgorithm.equivalentNode(value.singleNode());
+                transformed = value.singleNode();
             }
         } else {
-            transformed = node;
+            transformed = tree;
         }
         return transformed;
     }
@@ -443,31 +1641,135 @@ public final class ForkAndCollectAlgorithm {
     }
 
     /**
-     * Transforms a Json node from Jackson version 1 to 2.
-     * @param original The v1 node
-     * @return The v2 node
-     * @throws IOException If there is a problem reading/writing the Json
-     *  strings
+     * The parsed content of a branch and the values located for its outputs.
+     * The values are located before the content is transformed, as the
+     * mappings may augment the tree.
+     * @author Miguel Jimenez (miguel@uvic.ca)
+     * @version $Id$
+     * @since 0.1.0
      */
-    private static JsonNode equivalentNode(
-        final org.codehaus.jackson.JsonNode original) throws IOException {
-        final JsonNode transformed;
-        final org.codehaus.jackson.map.ObjectMapper mapper =
-            new org.codehaus.jackson.map.ObjectMapper();
-        if (original instanceof org.codehaus.jackson.node.ArrayNode) {
-            final ArrayNode array = ForkAndCollectAlgorithm.MAPPER.createArrayNode();
-            for (final org.codehaus.jackson.JsonNode tmp : original) {
-                final String json = mapper.writeValueAsString(tmp);
-                array.add(ForkAndCollectAlgorithm.MAPPER.readTree(json));
-            }
-            transformed = array;
-        } else  {
-            transformed = ForkAndCollectAlgorithm.MAPPER.readTree(
-                mapper.writeValueAsString(original)
+    @Value
+    @AllArgsConstructor
+    private static class Collected {
+
+        /**
+         * The parsed content, or a missing node if it did not change.
+         */
+        private final JsonNode tree;
+
+        /**
+         * The values located for the branch's outputs.
+         */
+        private final Collection<ResultSet<String, String>> located;
+
+        /**
+         * The revision of the content, only present in conditional mode.
+         */
+        private final Revision revision;
+
+        /**
+         * Whether the content changed since the previous cycle.
+         */
+        private final boolean modified;
+
+        /**
+         * Secondary constructor.
+         * @param tree The parsed content
+         * @param located The values located for the branch's outputs
+         */
+        Collected(final JsonNode tree,
+            final Collection<ResultSet<String, String>> located) {
+            this(tree, located, null, true);
+        }
+
+    }
+
+    /**
+     * The result of a branch collected in a previous cycle, including the
+     * content of the branches forked from it and the forked branches.
+     * @author Miguel Jimenez (miguel@uvic.ca)
+     * @version $Id$
+     * @since 0.1.0
+     */
+    @Value
+    private static class Memo {
+
+        /**
+         * The branch's input values.
+         */
+        private final Map<String, String> inputs;
+
+        /**
+         * The revision of the branch's content.
+         */
+        private final Revision revision;
+
+        /**
+         * The values located for the branch's outputs.
+         */
+        private final Collection<ResultSet<String, String>> located;
+
+        /**
+         * The branch's transformed content.
+         */
+        private final JsonNode subtree;
+
+        /**
+         * The content of the forked branches, indexed by name.
+         */
+        private final List<Map.Entry<String, JsonNode>> forks;
+
+        /**
+         * The forked branches that were released. Their results are kept in
+         * their own memos.
+         */
+        private final List<Monitor> children;
+
+        /**
+         * The number of consecutive cycles in which the forked branches were
+         * reused without revalidating them.
+         */
+        private final int age;
+
+        /**
+         * Creates a copy of this memo that is one cycle older.
+         * @return A new memo
+         */
+        public ForkAndCollectAlgorithm.Memo older() {
+            return new ForkAndCollectAlgorithm.Memo(
+                this.inputs,
+                this.revision,
+                this.located,
+                this.subtree,
+                this.forks,
+                this.children,
+                this.age + 1
             );
         }
 
-        return transformed;
+    }
+
+    /**
+     * A step of the algorithm that may fail with a checked exception.
+     * @param <T> The type of the step's result
+     * @author Miguel Jimenez (miguel@uvic.ca)
+     * @version $Id$
+     * @since 0.1.0
+     */
+    @FunctionalInterface
+    private interface Step<T> {
+
+        /**
+         * Runs the step.
+         * @return The step's result
+         * @throws IOException If there is an I/O problem
+         * @throws UnexpectedResponseCodeException If a request returns an
+         *  unexpected response code
+         * @throws ConfigurationException If there is a configuration problem
+         */
+        T run() throws IOException, UnexpectedResponseCodeException,
+            ConfigurationException;
+
     }
 
 }
@@ -1,14 +1,23 @@
 package com.rigiresearch.middleware.historian.runtime;
 
 import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
 import com.rigiresearch.middleware.graph.Graph;
 import com.rigiresearch.middleware.graph.GraphParser;
+import com.rigiresearch.middleware.graph.GraphSnapshot;
+import com.rigiresearch.middleware.graph.Node;
 import com.rigiresearch.middleware.historian.runtime.graph.Monitor;
+import com.rigiresearch.middleware.historian.runtime.metrics.MetricsRegistry;
 import it.sauronsoftware.cron4j.Scheduler;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletionException;
 import java.util.function.Consumer;
 import javax.xml.bind.JAXBException;
 import org.apache.commons.configuration2.CompositeConfiguration;
@@ -38,15 +47,26 @@ public final class HistorianMonitor {
         LoggerFactory.getLogger(HistorianMonitor.class);
 
     /**
-     * A JSON object mapper.
+     * The size of the buffer used to read resources.
      */
-    private static final ObjectMapper MAPPER = new ObjectMapper();
+    private static final int BUFFER_SIZE = 8192;
+
+    /**
+     * The object name of the metrics exported through JMX.
+     */
+    private static final String METRICS =
+        "com.rigiresearch.middleware.historian:type=Metrics";
 
     /**
      * A list of consumers for reporting run-time changes.
      */
     private final List<Consumer<JsonNode>> consumers;
 
+    /**
+     * A list of consumers for reporting the changed subtrees only.
+     */
+    private final List<Consumer<JsonDelta>> listeners;
+
     /**
      * The configuration generated by Historian.
      */
@@ -58,9 +78,29 @@ public final class HistorianMonitor {
     private final Scheduler scheduler;
 
     /**
-     * The current JSON object.
+     * The pooled HTTP clients shared by all the requests.
+     */
+    private final HttpClientPool pool;
+
+    /**
+     * The metrics recorded by the collection cycles.
+     */
+    private final MetricsRegistry metrics;
+
+    /**
+     * The content of the last reported cycle, indexed by branch identifier.
+     */
+    private Map<String, JsonNode> previous;
+
+    /**
+     * The collection algorithm, once this monitor has started.
      */
-    private JsonNode previous;
+    private ForkAndCollectAlgorithm algorithm;
+
+    /**
+     * The scheduler of the collection cycles, once this monitor has started.
+     */
+    private CollectionScheduler collection;
 
     /**
      * Default constructor.
@@ -69,9 +109,12 @@ public final class HistorianMonitor {
      */
     public HistorianMonitor() throws ConfigurationException {
         this.consumers = new ArrayList<>(1);
+        this.listeners = new ArrayList<>(1);
         this.config = HistorianMonitor.initialize();
         this.scheduler = new Scheduler();
-        this.previous = HistorianMonitor.MAPPER.createObjectNode();
+        this.metrics = new MetricsRegistry();
+        this.pool = new HttpClientPool(this.config, this.metrics);
+        this.previous = Collections.emptyMap();
     }
 
     /**
@@ -83,6 +126,16 @@ public final class HistorianMonitor {
         return this.consumers.add(consumer);
     }
 
+    /**
+     * Subscribes a consumer to listen for run-time changes, receiving only the
+     * added, changed and removed subtrees.
+     * @param consumer The consumer
+     * @return Whether the consumer was subscribed.
+     */
+    public boolean subscribeChanges(final Consumer<JsonDelta> consumer) {
+        return this.listeners.add(consumer);
+    }
+
     /**
      * Loads the configuration file.
      * @return A {@link Configuration} instance.
@@ -118,25 +171,87 @@ public final class HistorianMonitor {
      * @throws JAXBException If anything fails reading the configuration graph
      * @throws IOException If the authentication URL is malformed
      * @throws UnexpectedResponseCodeException If there is an authentication problem
+     * @throws GraphValidationException If the configuration graph is not valid
      */
     public void start() throws JAXBException, IOException,
-        UnexpectedResponseCodeException {
-        final ForkAndCollectAlgorithm algorithm =
-            new ForkAndCollectAlgorithm(
+        UnexpectedResponseCodeException, GraphValidationException {
+        this.algorithm = new ForkAndCollectAlgorithm(
+            HistorianMonitor.graph(),
+            this.config,
+            this.pool
+        );
+        this.algorithm.validate();
+        this.setupAuthProviders(this.algorithm.getGraph());
+        this.collection = new CollectionScheduler(
+            this.config,
+            this.scheduler,
+            () -> this.collect(this.algorithm)
+        );
+        if (this.config.getBoolean("metrics.jmx", false)) {
+            this.metrics.register(HistorianMonitor.METRICS);
+        }
+        this.collection.start(this.config.getString("periodicity"));
+        this.scheduler.start();
+    }
+
+    /**
+     * Loads the configuration graph. The binary snapshot generated by
+     * Historian is preferred, unless it is missing, unreadable (e.g.,
+     * truncated or written with incompatible classes), or the XML
+     * configuration was modified after generating it.
+     * @return The configuration graph
+     * @throws JAXBException If anything fails reading the configuration graph
+     * @throws IOException If there's an I/O error
+     */
+    private static Graph<Node> graph() throws JAXBException, IOException {
+        final ClassLoader loader = Thread.currentThread().getContextClassLoader();
+        final byte[] xml =
+            HistorianMonitor.bytes(loader.getResourceAsStream("configuration.xml"));
+        Optional<Graph<Node>> graph = Optional.empty();
+        final InputStream snapshot = loader.getResourceAsStream("configuration.bin");
+        if (snapshot != null) {
+            try {
+                graph = new GraphSnapshot().read(snapshot, xml);
+            } catch (final IOException exception) {
+                HistorianMonitor.LOGGER.warn(
+                    "The configuration snapshot could not be read, reading the XML",
+                    exception
+                );
+            }
+        }
+        if (!graph.isPresent()) {
+            HistorianMonitor.LOGGER.debug(
+                "The configuration snapshot is missing or outdated, reading the XML"
+            );
+            graph = Optional.of(
                 new GraphParser()
                     .withBindings("bindings.xml")
-                    .instance(
-                        Thread.currentThread()
-                            .getContextClassLoader()
-                            .getResourceAsStream("configuration.xml")
-                    ),
-                this.config
+                    .instance(new ByteArrayInputStream(xml))
             );
-        this.setupAuthProviders(algorithm.getGraph());
-        this.scheduler.schedule(
-            this.config.getString("periodicity"), () -> this.collect(algorithm)
-        );
-        this.scheduler.start();
+        }
+        return graph.get();
+    }
+
+    /**
+     * Reads the contents of a stream. The stream is closed afterwards.
+     * @param input The input stream
+     * @return The bytes read
+     * @throws IOException If there's an I/O error
+     */
+    private static byte[] bytes(final InputStream input) throws IOException {
+        if (input == null) {
+            throw new IllegalArgumentException("Input stream is null");
+        }
+        final ByteArrayOutputStream output = new ByteArrayOutputStream();
+        try (InputStream stream = input) {
+            final byte[] buffer = new byte[HistorianMonitor.BUFFER_SIZE];
+            int read = stream.read(buffer);
+            while (read != -1) {
+                output.write(buffer, 0, read);
+                read = stream.read(buffer);
+            }
+        }
+        return output.toByteArray();
     }
 
     /**
@@ -144,6 +259,30 @@ public final class HistorianMonitor {
      */
     public void stop() {
         this.scheduler.stop();
+        if (this.collection != null) {
+            this.collection.stop();
+        }
+        if (this.algorithm != null) {
+            this.algorithm.close();
+        }
+        this.pool.close();
+        this.metrics.unregister(HistorianMonitor.METRICS);
+    }
+
+    /**
+     * The pooled HTTP clients used by this monitor.
+     * @return A non-null pool
+     */
+    public HttpClientPool getPool() {
+        return this.pool;
+    }
+
+    /**
+     * The metrics recorded by the collection cycles.
+     * @return A non-null registry
+     */
+    public MetricsRegistry getMetrics() {
+        return this.metrics;
     }
 
     /**
@@ -159,8 +298,13 @@ public final class HistorianMonitor {
             final String type =
                 this.config.getString(String.format("auth.%s.type", method));
             if ("key".equals(type)) {
-                new ApiKeyProvider(method, this.config, graph, this.scheduler)
-                    .setup();
+                new ApiKeyProvider(
+                    method,
+                    this.config,
+                    graph,
+                    this.scheduler,
+                    this.pool
+                ).setup();
             } else {
                 throw new UnsupportedOperationException(
                     String.format(
@@ -178,16 +322,30 @@ public final class HistorianMonitor {
      */
     private void collect(final ForkAndCollectAlgorithm algorithm) {
         try {
-            final JsonNode result = algorithm.data();
-            if (result.equals(this.previous)) {
+            final JsonNode result;
+            if (this.config.getBoolean("fork.async", false)) {
+                result = algorithm.dataAsync().join();
+            } else {
+                result = algorithm.data();
+            }
+            HistorianMonitor.LOGGER.debug("{}", algorithm.getSelectors());
+            HistorianMonitor.LOGGER.debug("{}", this.pool.cache());
+            HistorianMonitor.LOGGER.debug("{}", this.metrics);
+            final Map<String, JsonNode> current = algorithm.getContents();
+            final JsonDelta delta = new JsonDelta(this.previous, current);
+            if (delta.isEmpty()) {
                 HistorianMonitor.LOGGER.info("The monitored resources have not changed");
             } else {
-                this.previous = result;
+                HistorianMonitor.LOGGER.info("{}", delta);
+                this.previous = current;
+                this.listeners.forEach(consumer -> consumer.accept(delta));
                 this.consumers.forEach(consumer -> consumer.accept(result));
             }
         } catch (final UnexpectedResponseCodeException | IOException
             | com.rigiresearch.middleware.historian.runtime.ConfigurationException exception) {
             throw new IllegalStateException(exception);
+        } catch (final CompletionException exception) {
+            throw new IllegalStateException(exception.getCause());
         }
     }
 
@@ -0,0 +1,550 @@
+package com.rigiresearch.middleware.historian.runtime;
+
+import com.rigiresearch.middleware.historian.runtime.metrics.Metrics;
+import com.rigiresearch.middleware.historian.runtime.metrics.MetricsRegistry;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.net.URL;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import lombok.Value;
+import org.apache.commons.configuration2.Configuration;
+import org.apache.commons.configuration2.PropertiesConfiguration;
+import org.apache.http.HttpResponse;
+import org.apache.http.conn.ConnectionKeepAliveStrategy;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.DefaultConnectionKeepAliveStrategy;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.impl.nio.client.CloseableHttpAsyncClient;
+import org.apache.http.impl.nio.client.HttpAsyncClients;
+import org.apache.http.impl.nio.conn.PoolingNHttpClientConnectionManager;
+import org.apache.http.impl.nio.reactor.DefaultConnectingIOReactor;
+import org.apache.http.impl.nio.reactor.IOReactorConfig;
+import org.apache.http.nio.reactor.IOReactorException;
+import org.apache.http.pool.PoolStats;
+import org.apache.http.protocol.HttpContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A set of pooled HTTP clients, one per target host. Connections are kept
+ * alive and reused across requests, and idle connections are evicted in the
+ * background.
+ * <p>
+ * The pools are configured through the following (optional) properties:
+ * {@code http.pool.max-per-route}, {@code http.pool.idle-timeout} (seconds)
+ * and {@code http.pool.keep-alive} (seconds). Asynchronous (non-blocking)
+ * clients are limited to {@code http.async.max-per-host} in-flight requests
+ * per host; additional requests wait in a queue without blocking any
+ * thread. Up to {@code http.cache.size} responses are cached and revalidated
+ * with conditional requests (see {@link ResponseCache}); the cache is
+ * disabled by default. The requests record their metrics in the pool's
+ * {@link Metrics}.
+ * <p>
+ * Requests sent to each host, both blocking and asynchronous, are limited to
+ * {@code http.rate.limit} requests per second, in bursts of up to
+ * {@code http.rate.burst} requests (see {@link TokenBucket}); the rate limit
+ * is disabled by default. The number of concurrent requests per host can
+ * adapt to the host's response (see {@link ConcurrencyLimiter}), and requests
+ * failing due to transient problems are retried (see {@link RetryPolicy}).
+ * @author Miguel Jimenez (miguel@uvic.ca)
+ * @version $Id$
+ * @since 0.1.0
+ */
+public final class HttpClientPool implements Closeable {
+
+    /**
+     * The logger.
+     */
+    private static final Logger LOGGER =
+        LoggerFactory.getLogger(HttpClientPool.class);
+
+    /**
+     * The default maximum number of connections per host.
+     */
+    private static final int DEFAULT_MAX_PER_ROUTE = 20;
+
+    /**
+     * The default number of seconds after which idle connections are closed.
+     */
+    private static final long DEFAULT_IDLE_TIMEOUT = 30L;
+
+    /**
+     * The default number of seconds to keep connections alive, unless the
+     * server asks for less.
+     */
+    private static final long DEFAULT_KEEP_ALIVE = 30L;
+
+    /**
+     * The default maximum number of in-flight asynchronous requests per host.
+     */
+    private static final int DEFAULT_MAX_PER_HOST = 16;
+
+    /**
+     * The default maximum number of cached responses (i.e., disabled).
+     */
+    private static final int DEFAULT_CACHE_SIZE = 0;
+
+    /**
+     * The default port of the HTTP scheme.
+     */
+    private static final int HTTP_PORT = 80;
+
+    /**
+     * The default port of the HTTPS scheme.
+     */
+    private static final int HTTPS_PORT = 443;
+
+    /**
+     * The configuration properties.
+     */
+    private final Configuration config;
+
+    /**
+     * The maximum number of connections per host.
+     */
+    private final int routes;
+
+    /**
+     * The number of seconds after which idle connections are closed.
+     */
+    private final long idle;
+
+    /**
+     * The number of seconds to keep connections alive.
+     */
+    private final long alive;
+
+    /**
+     * The maximum number of in-flight asynchronous requests per host.
+     */
+    private final int hosts;
+
+    /**
+     * The pooled clients, indexed by scheme, host and port.
+     */
+    private final Map<String, HttpClientPool.Pool> pools;
+
+    /**
+     * The pooled asynchronous clients, indexed by scheme, host and port.
+     */
+    private final Map<String, HttpClientPool.AsyncPool> asyncs;
+
+    /**
+     * The responses cached across requests.
+     */
+    private final ResponseCache cache;
+
+    /**
+     * The metrics recorded by the requests.
+     */
+    private final Metrics metrics;
+
+    /**
+     * The rate limit of each host, indexed by scheme, host and port.
+     */
+    private final Map<String, TokenBucket> buckets;
+
+    /**
+     * The timer delaying rate-limited and retried asynchronous requests.
+     */
+    private final ScheduledExecutorService timer;
+
+    /**
+     * The retry policy of the requests.
+     */
+    private final RetryPolicy retries;
+
+    /**
+     * Empty constructor. It uses the default values.
+     */
+    public HttpClientPool() {
+        this(new PropertiesConfiguration());
+    }
+
+    /**
+     * Secondary constructor. Metrics are recorded in a new registry.
+     * @param config The configuration properties
+     */
+    public HttpClientPool(final Configuration config) {
+        this(config, new MetricsRegistry());
+    }
+
+    /**
+     * Default constructor.
+     * @param config The configuration properties
+     * @param metrics The metrics recorded by the requests
+     */
+    public HttpClientPool(final Configuration config, final Metrics metrics) {
+        this.config = config;
+        this.routes = config.getInt(
+            "http.pool.max-per-route",
+            HttpClientPool.DEFAULT_MAX_PER_ROUTE
+        );
+        this.idle = config.getLong(
+            "http.pool.idle-timeout",
+            HttpClientPool.DEFAULT_IDLE_TIMEOUT
+        );
+        this.alive = config.getLong(
+            "http.pool.keep-alive",
+            HttpClientPool.DEFAULT_KEEP_ALIVE
+        );
+        this.hosts = config.getInt(
+            "http.async.max-per-host",
+            HttpClientPool.DEFAULT_MAX_PER_HOST
+        );
+        this.pools = new ConcurrentHashMap<>();
+        this.asyncs = new ConcurrentHashMap<>();
+        this.cache = new ResponseCache(
+            config.getInt("http.cache.size", HttpClientPool.DEFAULT_CACHE_SIZE)
+        );
+        this.metrics = metrics;
+        this.buckets = new ConcurrentHashMap<>();
+        this.timer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            final Thread thread = new Thread(runnable, "http-timer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.retries = new RetryPolicy(config, this.timer);
+    }
+
+    /**
+     * Finds or creates the client associated with the URL's host.
+     * @param url The target URL
+     * @return A non-null, shared HTTP client
+     */
+    public CloseableHttpClient client(final URL url) {
+        return this.pool(
+            HttpClientPool.key(url.getProtocol(), url.getHost(), url.getPort())
+        ).getClient();
+    }
+
+    /**
+     * Finds or creates the client associated with the URI's host.
+     * @param uri The target URI
+     * @return A non-null, shared HTTP client
+     */
+    public CloseableHttpClient client(final URI uri) {
+        return this.pool(HttpClientPool.key(uri)).getClient();
+    }
+
+    /**
+     * Finds or creates the (started) asynchronous client associated with the
+     * URI's host.
+     * @param uri The target URI
+     * @return A non-null, shared asynchronous HTTP client
+     */
+    public CloseableHttpAsyncClient asyncClient(final URI uri) {
+        return this.asyncPool(uri).getClient();
+    }
+
+    /**
+     * Finds or creates the limit of in-flight asynchronous requests for the
+     * URI's host.
+     * @param uri The target URI
+     * @return A non-null limiter
+     */
+    public ConcurrencyLimiter limiter(final URI uri) {
+        return this.asyncPool(uri).getLimiter();
+    }
+
+    /**
+     * Finds or creates the limit of concurrent blocking requests for the
+     * URI's host.
+     * @param uri The target URI
+     * @return A non-null limiter
+     */
+    public ConcurrencyLimiter blockingLimiter(final URI uri) {
+        return this.pool(HttpClientPool.key(uri)).getLimiter();
+    }
+
+    /**
+     * The retry policy of the requests.
+     * @return A non-null policy
+     */
+    public RetryPolicy retries() {
+        return this.retries;
+    }
+
+    /**
+     * Finds or creates the rate limit for the URI's host.
+     * @param uri The target URI
+     * @return A non-null token bucket
+     */
+    public TokenBucket bucket(final URI uri) {
+        return this.buckets.computeIfAbsent(
+            HttpClientPool.key(uri),
+            key -> new TokenBucket(
+                this.config.getDouble("http.rate.limit", 0.0),
+                this.config.getInt("http.rate.burst", 1),
+                this.timer
+            )
+        );
+    }
+
+    /**
+     * The responses cached across requests.
+     * @return A non-null cache
+     */
+    public ResponseCache cache() {
+        return this.cache;
+    }
+
+    /**
+     * The metrics recorded by the requests.
+     * @return A non-null metrics registry
+     */
+    public Metrics metrics() {
+        return this.metrics;
+    }
+
+    /**
+     * Statistics of the connection pools.
+     * @return A map of pool statistics indexed by host
+     */
+    public Map<String, PoolStats> statistics() {
+        return this.pools.entrySet()
+            .stream()
+            .collect(
+                Collectors.toMap(
+                    Map.Entry::getKey,
+                    entry -> entry.getValue().getManager().getTotalStats()
+                )
+            );
+    }
+
+    /**
+     * Statistics of the asynchronous connection pools.
+     * @return A map of pool statistics indexed by host
+     */
+    public Map<String, PoolStats> asyncStatistics() {
+        return this.asyncs.entrySet()
+            .stream()
+            .collect(
+                Collectors.toMap(
+                    Map.Entry::getKey,
+                    entry -> entry.getValue().getManager().getTotalStats()
+                )
+            );
+    }
+
+    /**
+     * Closes all the clients and their connections.
+     */
+    @Override
+    public void close() {
+        for (final Map.Entry<String, HttpClientPool.Pool> entry
+            : this.pools.entrySet()) {
+            try {
+                entry.getValue().getClient().close();
+            } catch (final IOException exception) {
+                HttpClientPool.LOGGER.warn(
+                    String.format("Could not close the client for %s", entry.getKey()),
+                    exception
+                );
+            }
+        }
+        this.pools.clear();
+        for (final Map.Entry<String, HttpClientPool.AsyncPool> entry
+            : this.asyncs.entrySet()) {
+            try {
+                entry.getValue().getClient().close();
+            } catch (final IOException exception) {
+                HttpClientPool.LOGGER.warn(
+                    String.format("Could not close the client for %s", entry.getKey()),
+                    exception
+                );
+            }
+        }
+        this.asyncs.clear();
+        this.timer.shutdownNow();
+    }
+
+    /**
+     * Identifies the host of a URI.
+     * @param uri The target URI
+     * @return A key in the form {@code scheme://host:port}
+     */
+    static String key(final URI uri) {
+        return HttpClientPool.key(uri.getScheme(), uri.getHost(), uri.getPort());
+    }
+
+    /**
+     * Identifies a host. The scheme and host name are case-insensitive, and
+     * an implicit port (i.e., -1) is replaced by the scheme's default port,
+     * so that {@code https://host/} and {@code https://host:443/} share the
+     * same pool and limits.
+     * @param scheme The URL scheme
+     * @param host The host name
+     * @param port The port number, or -1 if it is implicit
+     * @return A key in the form {@code scheme://host:port}
+     */
+    static String key(final String scheme, final String host, final int port) {
+        final String normalized = scheme.toLowerCase(Locale.ENGLISH);
+        int actual = port;
+        if (actual == -1 && "http".equals(normalized)) {
+            actual = HttpClientPool.HTTP_PORT;
+        } else if (actual == -1 && "https".equals(normalized)) {
+            actual = HttpClientPool.HTTPS_PORT;
+        }
+        return String.format(
+            "%s://%s:%d",
+            normalized,
+            host.toLowerCase(Locale.ENGLISH),
+            actual
+        );
+    }
+
+    /**
+     * Finds or creates a pool.
+     * @param key The host's key (see {@link #key(String, String, int)})
+     * @return A non-null pool
+     */
+    private HttpClientPool.Pool pool(final String key) {
+        return this.pools.computeIfAbsent(key, ignored -> this.create());
+    }
+
+    /**
+     * Finds or creates an asynchronous pool.
+     * @param uri The target URI
+     * @return A non-null pool
+     */
+    private HttpClientPool.AsyncPool asyncPool(final URI uri) {
+        return this.asyncs.computeIfAbsent(
+            HttpClientPool.key(uri),
+            key -> this.createAsync()
+        );
+    }
+
+    /**
+     * Creates and starts a new asynchronous connection pool.
+     * @return A non-null pool
+     */
+    private HttpClientPool.AsyncPool createAsync() {
+        try {
+            final PoolingNHttpClientConnectionManager manager =
+                new PoolingNHttpClientConnectionManager(
+                    new DefaultConnectingIOReactor(IOReactorConfig.DEFAULT)
+                );
+            manager.setDefaultMaxPerRoute(this.hosts);
+            manager.setMaxTotal(this.hosts);
+            final CloseableHttpAsyncClient client = HttpAsyncClients.custom()
+                .setConnectionManager(manager)
+                .setKeepAliveStrategy(this.strategy())
+                .build();
+            client.start();
+            return new HttpClientPool.AsyncPool(
+                manager,
+                client,
+                new ConcurrencyLimiter(this.hosts, this.config)
+            );
+        } catch (final IOReactorException exception) {
+            throw new UncheckedIOException(exception);
+        }
+    }
+
+    /**
+     * Creates a new connection pool.
+     * @return A non-null pool
+     */
+    private HttpClientPool.Pool create() {
+        final PoolingHttpClientConnectionManager manager =
+            new PoolingHttpClientConnectionManager();
+        manager.setDefaultMaxPerRoute(this.routes);
+        manager.setMaxTotal(this.routes);
+        final CloseableHttpClient client = HttpClients.custom()
+            .setConnectionManager(manager)
+            .setKeepAliveStrategy(this.strategy())
+            .evictExpiredConnections()
+            .evictIdleConnections(this.idle, TimeUnit.SECONDS)
+            .build();
+        return new HttpClientPool.Pool(
+            manager,
+            client,
+            new ConcurrencyLimiter(this.routes, this.config)
+        );
+    }
+
+    /**
+     * A keep-alive strategy honoring the server's keep-alive header, up to
+     * the configured duration.
+     * @return A non-null strategy
+     */
+    private ConnectionKeepAliveStrategy strategy() {
+        final long maximum = TimeUnit.SECONDS.toMillis(this.alive);
+        return (final HttpResponse response, final HttpContext context) -> {
+            final long duration = DefaultConnectionKeepAliveStrategy.INSTANCE
+                .getKeepAliveDuration(response, context);
+            final long result;
+            if (duration > 0L && duration < maximum) {
+                result = duration;
+            } else {
+                result = maximum;
+            }
+            return result;
+        };
+    }
+
+    /**
+     * A connection manager, the client using it and the limit of concurrent
+     * requests.
+     * @author Miguel Jimenez (miguel@uvic.ca)
+     * @version $Id$
+     * @since 0.1.0
+     */
+    @Value
+    private static class Pool {
+
+        /**
+         * The connection manager.
+         */
+        private final PoolingHttpClientConnectionManager manager;
+
+        /**
+         * The client.
+         */
+        private final CloseableHttpClient client;
+
+        /**
+         * The limit of concurrent requests.
+         */
+        private final ConcurrencyLimiter limiter;
+
+    }
+
+    /**
+     * An asynchronous connection manager, the client using it and the limit
+     * of in-flight requests.
+     * @author Miguel Jimenez (miguel@uvic.ca)
+     * @version $Id$
+     * @since 0.1.0
+     */
+    @Value
+    private static class AsyncPool {
+
+        /**
+         * The connection manager.
+         */
+        private final PoolingNHttpClientConnectionManager manager;
+
+        /**
+         * The client.
+         */
+        private final CloseableHttpAsyncClient client;
+
+        /**
+         * The limit of in-flight requests.
+         */
+        private final ConcurrencyLimiter limiter;
+
+    }
+
+}
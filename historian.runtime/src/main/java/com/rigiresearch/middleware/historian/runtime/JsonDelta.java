@@ -0,0 +1,152 @@
+package com.rigiresearch.middleware.historian.runtime;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * The differences between the content collected in two collection cycles.
+ * The content of each cycle is given as the subtree contributed by each
+ * branch, indexed by the branch's identifier (see
+ * {@link ForkAndCollectAlgorithm#getContents()}). Subtrees are compared
+ * branch by branch, so unchanged branches are not reported, regardless of
+ * where they appear in the assembled Json document.
+ * @author Miguel Jimenez (miguel@uvic.ca)
+ * @version $Id$
+ * @since 0.1.0
+ */
+public final class JsonDelta {
+
+    /**
+     * Subtrees of branches that did not exist in the previous cycle.
+     */
+    private final Map<String, JsonNode> added;
+
+    /**
+     * Current subtrees of branches whose content changed.
+     */
+    private final Map<String, JsonNode> changed;
+
+    /**
+     * Previous subtrees of branches that no longer exist.
+     */
+    private final Map<String, JsonNode> removed;
+
+    /**
+     * Secondary constructor. It computes the differences between two cycles.
+     * @param previous The subtrees of the previous cycle, indexed by branch
+     *  identifier
+     * @param current The subtrees of the current cycle, indexed by branch
+     *  identifier
+     */
+    public JsonDelta(final Map<String, JsonNode> previous,
+        final Map<String, JsonNode> current) {
+        this(
+            JsonDelta.missing(current, previous),
+            JsonDelta.changed(previous, current),
+            JsonDelta.missing(previous, current)
+        );
+    }
+
+    /**
+     * Default constructor.
+     * @param added Subtrees of new branches
+     * @param changed Current subtrees of changed branches
+     * @param removed Previous subtrees of removed branches
+     */
+    private JsonDelta(final Map<String, JsonNode> added,
+        final Map<String, JsonNode> changed, final Map<String, JsonNode> removed) {
+        this.added = Collections.unmodifiableMap(added);
+        this.changed = Collections.unmodifiableMap(changed);
+        this.removed = Collections.unmodifiableMap(removed);
+    }
+
+    /**
+     * Subtrees of branches that did not exist in the previous cycle.
+     * @return A non-null map indexed by branch identifier
+     */
+    public Map<String, JsonNode> getAdded() {
+        return this.added;
+    }
+
+    /**
+     * Current subtrees of branches whose content changed.
+     * @return A non-null map indexed by branch identifier
+     */
+    public Map<String, JsonNode> getChanged() {
+        return this.changed;
+    }
+
+    /**
+     * Previous subtrees of branches that no longer exist.
+     * @return A non-null map indexed by branch identifier
+     */
+    public Map<String, JsonNode> getRemoved() {
+        return this.removed;
+    }
+
+    /**
+     * Whether nothing changed between the two cycles.
+     * @return Whether there are no added, changed or removed subtrees
+     */
+    public boolean isEmpty() {
+        return this.added.isEmpty()
+            && this.changed.isEmpty()
+            && this.removed.isEmpty();
+    }
+
+    /**
+     * A string representation of this delta.
+     * @return A non-null string
+     */
+    @Override
+    public String toString() {
+        return new StringBuilder()
+            .append(this.getClass().getSimpleName())
+            .append("(added: ")
+            .append(this.added.size())
+            .append(", changed: ")
+            .append(this.changed.size())
+            .append(", removed: ")
+            .append(this.removed.size())
+            .append(")")
+            .toString();
+    }
+
+    /**
+     * Finds the subtrees whose identifier is missing in another cycle.
+     * @param source The subtrees to look for
+     * @param target The subtrees in which to look for them
+     * @return The subtrees from source not present in target
+     */
+    private static Map<String, JsonNode> missing(final Map<String, JsonNode> source,
+        final Map<String, JsonNode> target) {
+        final Map<String, JsonNode> map = new LinkedHashMap<>();
+        for (final Map.Entry<String, JsonNode> entry : source.entrySet()) {
+            if (!target.containsKey(entry.getKey())) {
+                map.put(entry.getKey(), entry.getValue());
+            }
+        }
+        return map;
+    }
+
+    /**
+     * Finds the subtrees present in both cycles whose content changed.
+     * @param previous The subtrees of the previous cycle
+     * @param current The subtrees of the current cycle
+     * @return The current version of the changed subtrees
+     */
+    private static Map<String, JsonNode> changed(final Map<String, JsonNode> previous,
+        final Map<String, JsonNode> current) {
+        final Map<String, JsonNode> map = new LinkedHashMap<>();
+        for (final Map.Entry<String, JsonNode> entry : current.entrySet()) {
+            final JsonNode before = previous.get(entry.getKey());
+            if (before != null && !before.equals(entry.getValue())) {
+                map.put(entry.getKey(), entry.getValue());
+            }
+        }
+        return map;
+    }
+
+}
@@ -0,0 +1,139 @@
+package com.rigiresearch.middleware.historian.runtime;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.TimeUnit;
+import lombok.Value;
+
+/**
+ * The time at which each branch must be collected again, for branches with a
+ * refresh interval. Deadlines are kept in a priority queue, so that the
+ * branches that became due are found without looking at the others. A branch
+ * without a pending deadline is due.
+ * <p>
+ * The schedule is not thread-safe; it is meant to be used by the thread
+ * assembling the result of a collection cycle.
+ * @author Miguel Jimenez (miguel@uvic.ca)
+ * @version $Id$
+ * @since 0.1.0
+ */
+final class RefreshSchedule {
+
+    /**
+     * The initial capacity of the queue.
+     */
+    private static final int CAPACITY = 16;
+
+    /**
+     * The deadlines, ordered by time. It may contain deadlines of forgotten
+     * branches, which are discarded once they expire.
+     */
+    private final PriorityQueue<RefreshSchedule.Deadline> queue;
+
+    /**
+     * The pending deadline of each branch, in milliseconds, indexed by the
+     * branch's identifier.
+     */
+    private final Map<String, Long> deadlines;
+
+    /**
+     * The start time of the current cycle, in milliseconds.
+     */
+    private long time;
+
+    /**
+     * Default constructor.
+     */
+    RefreshSchedule() {
+        this.queue = new PriorityQueue<>(RefreshSchedule.CAPACITY);
+        this.deadlines = new HashMap<>(RefreshSchedule.CAPACITY);
+    }
+
+    /**
+     * Starts a collection cycle at the current time.
+     */
+    void advance() {
+        this.advance(TimeUnit.NANOSECONDS.toMillis(System.nanoTime()));
+    }
+
+    /**
+     * Starts a collection cycle, making due the branches whose deadline
+     * passed.
+     * @param now The start time of the cycle, in milliseconds
+     */
+    void advance(final long now) {
+        this.time = now;
+        while (!this.queue.isEmpty() && this.queue.peek().getTime() <= now) {
+            final RefreshSchedule.Deadline deadline = this.queue.poll();
+            final Long pending = this.deadlines.get(deadline.getIdentifier());
+            if (pending != null && pending == deadline.getTime()) {
+                this.deadlines.remove(deadline.getIdentifier());
+            }
+        }
+    }
+
+    /**
+     * Whether a branch must be collected in the current cycle.
+     * @param identifier The branch's identifier
+     * @return Whether the branch has no pending deadline
+     */
+    boolean isDue(final String identifier) {
+        return !this.deadlines.containsKey(identifier);
+    }
+
+    /**
+     * Records that a branch was collected in the current cycle.
+     * @param identifier The branch's identifier
+     * @param interval The branch's refresh interval, in seconds
+     */
+    void collected(final String identifier, final long interval) {
+        final long deadline = this.time + TimeUnit.SECONDS.toMillis(interval);
+        this.deadlines.put(identifier, deadline);
+        this.queue.add(new RefreshSchedule.Deadline(identifier, deadline));
+    }
+
+    /**
+     * Forgets the branches that no longer exist.
+     * @param identifiers The identifiers of the existing branches
+     */
+    void retain(final Collection<String> identifiers) {
+        this.deadlines.keySet().retainAll(identifiers);
+    }
+
+    /**
+     * The number of branches with a pending deadline.
+     * @return A positive number or zero
+     */
+    int size() {
+        return this.deadlines.size();
+    }
+
+    /**
+     * The time at which a branch must be collected again.
+     * @author Miguel Jimenez (miguel@uvic.ca)
+     * @version $Id$
+     * @since 0.1.0
+     */
+    @Value
+    private static class Deadline implements Comparable<RefreshSchedule.Deadline> {
+
+        /**
+         * The branch's identifier.
+         */
+        private final String identifier;
+
+        /**
+         * The deadline, in milliseconds.
+         */
+        private final long time;
+
+        @Override
+        public int compareTo(final RefreshSchedule.Deadline other) {
+            return Long.compare(this.time, other.time);
+        }
+
+    }
+
+}
@@ -1,18 +1,24 @@
 package com.rigiresearch.middleware.historian.runtime;
 
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.rigiresearch.middleware.historian.runtime.json.JsonStreamReader;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InterruptedIOException;
 import java.net.URI;
-import java.net.URISyntaxException;
 import java.net.URL;
 import java.nio.charset.StandardCharsets;
-import java.util.Arrays;
 import java.util.List;
-import java.util.stream.Stream;
-import lombok.RequiredArgsConstructor;
-import org.apache.http.HttpHost;
-import org.apache.http.HttpRequest;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Future;
+import java.util.function.BiConsumer;
+import org.apache.http.Header;
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpHeaders;
+import org.apache.http.HttpResponse;
 import org.apache.http.auth.AuthScope;
 import org.apache.http.auth.UsernamePasswordCredentials;
 import org.apache.http.client.CredentialsProvider;
@@ -21,10 +27,10 @@ import org.apache.http.client.methods.HttpGet;
 import org.apache.http.client.methods.HttpPost;
 import org.apache.http.client.methods.HttpUriRequest;
 import org.apache.http.client.protocol.HttpClientContext;
-import org.apache.http.client.utils.URIBuilder;
+import org.apache.http.concurrent.FutureCallback;
 import org.apache.http.impl.client.BasicCredentialsProvider;
 import org.apache.http.impl.client.CloseableHttpClient;
-import org.apache.http.impl.client.HttpClients;
+import org.apache.http.util.EntityUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -35,7 +41,6 @@ import org.slf4j.LoggerFactory;
  * @since 0.1.0
  */
 @SuppressWarnings("checkstyle:ClassDataAbstractionCoupling")
-@RequiredArgsConstructor
 public final class Request {
 
     /**
@@ -54,21 +59,84 @@ public final class Request {
      */
     private static final int OK_CODE = 200;
 
+    /**
+     * HTTP 304 status code.
+     */
+    private static final int NOT_MODIFIED_CODE = 304;
+
+    /**
+     * A factory of streaming Json parsers.
+     */
+    private static final JsonFactory FACTORY = new JsonFactory();
+
     /**
      * The request inputs.
      */
     private final List<Input> inputs;
 
     /**
-     * The url from which this collector collects the data.
+     * The endpoint from which this collector collects the data.
+     */
+    private final RequestTemplate template;
+
+    /**
+     * The pooled HTTP clients.
+     */
+    private final HttpClientPool pool;
+
+    /**
+     * The name of the monitor issuing this request, which tags its metrics.
      */
-    private final URL url;
+    private String monitor;
 
     /**
      * A credentials provider (optional).
      */
     private CredentialsProvider provider;
 
+    /**
+     * The revision collected previously, to issue a conditional request
+     * (optional).
+     */
+    private Revision revision;
+
+    /**
+     * Secondary constructor.
+     * @param inputs The request inputs
+     * @param url The url from which this collector collects the data
+     * @param pool The pooled HTTP clients
+     */
+    public Request(final List<Input> inputs, final URL url,
+        final HttpClientPool pool) {
+        this(inputs, new RequestTemplate(url), pool);
+    }
+
+    /**
+     * Default constructor.
+     * @param inputs The request inputs
+     * @param template The endpoint from which this collector collects the
+     *  data
+     * @param pool The pooled HTTP clients
+     */
+    public Request(final List<Input> inputs, final RequestTemplate template,
+        final HttpClientPool pool) {
+        this.inputs = inputs;
+        this.template = template;
+        this.pool = pool;
+        this.monitor = template.getUrl().getPath();
+    }
+
+    /**
+     * Sets the name of the monitor issuing this request, to tag its metrics
+     * (by default, the endpoint's path).
+     * @param name The monitor's name
+     * @return This request
+     */
+    public Request withMonitor(final String name) {
+        this.monitor = name;
+        return this;
+    }
+
     /**
      * Sets a username and password to use basic authentication.
      * @param username The username
@@ -78,112 +146,481 @@ public final class Request {
     public Request withCredentials(final String username, final String password) {
         this.provider = new BasicCredentialsProvider();
         this.provider.setCredentials(
-            new AuthScope(this.url.getHost(), this.url.getPort()),
+            new AuthScope(
+                this.template.getUrl().getHost(),
+                this.template.getUrl().getPort()
+            ),
             new UsernamePasswordCredentials(username, password)
         );
         return this;
     }
 
     /**
-     * Collects data from the associated resource.
+     * Sets the revision collected previously, so that the request is
+     * conditional on the content having been modified.
+     * @param previous The previous revision, or null
+     * @return This request
+     */
+    public Request withRevision(final Revision previous) {
+        this.revision = previous;
+        return this;
+    }
+
+    /**
+     * Collects data from the associated resource. The caller must close the
+     * response to release the connection back to the pool.
      * @return The HTTP response
      * @throws IOException If there is an issue executing the HTTP request
      */
     public CloseableHttpResponse response() throws IOException {
-        final URI uri = this.uri(this.url);
-        final CloseableHttpClient client = HttpClients.createDefault();
-        final CloseableHttpResponse response;
-        if (this.provider == null) {
-            final HttpUriRequest request = new HttpGet(uri);
-            this.parameters(Input.Location.HEADER)
-                .forEach(p -> request.addHeader(p.getName(), p.getValue()));
-            response = client.execute(request);
-        } else {
-            final HttpRequest request = new HttpPost(uri);
-            this.parameters(Input.Location.HEADER)
-                .forEach(p -> request.addHeader(p.getName(), p.getValue()));
-            final HttpClientContext context = HttpClientContext.create();
-            context.setCredentialsProvider(this.provider);
-            final HttpHost host =
-                new HttpHost(uri.getHost(), uri.getPort(), uri.getScheme());
-            response = client.execute(host, request, context);
+        return this.response(this.template.uri(this.inputs), null);
+    }
+
+    /**
+     * Collects the data from the associated URL. If there is a cached
+     * response for the URI, the request is conditional and the cached content
+     * is returned if it was not modified.
+     * @return The collected content
+     * @throws IOException If there is a request execution error
+     * @throws UnexpectedResponseCodeException If the response code is different than 200
+     */
+    public String data() throws IOException, UnexpectedResponseCodeException {
+        return this.fetch(null).getContent();
+    }
+
+    /**
+     * Collects the data from the associated URL, unless it was not modified
+     * since the revision set by {@link #withRevision(Revision)}.
+     * @return A revision with the collected content, or without content if
+     *  it was not modified
+     * @throws IOException If there is a request execution error
+     * @throws UnexpectedResponseCodeException If the response code is
+     *  neither 200 nor, for conditional requests, 304
+     */
+    public Revision revision() throws IOException, UnexpectedResponseCodeException {
+        return this.fetch(this.revision);
+    }
+
+    /**
+     * Collects the data from the associated URL and parses it as it is
+     * received, without buffering the content.
+     * @param reader The reader evaluating selectors on the content
+     * @param listener A listener receiving the nodes selected by the reader
+     * @return The parsed content
+     * @throws IOException If there is a request execution error or the content
+     *  is not valid Json
+     * @throws UnexpectedResponseCodeException If the response code is different than 200
+     */
+    public JsonNode tree(final JsonStreamReader reader,
+        final BiConsumer<String, JsonNode> listener)
+        throws IOException, UnexpectedResponseCodeException {
+        final URI uri = this.template.uri(this.inputs);
+        return this.retried(uri, () -> this.parse(uri, reader, listener));
+    }
+
+    /**
+     * Executes the request and parses the response as it is received.
+     * @param uri The target URI
+     * @param reader The reader evaluating selectors on the content
+     * @param listener A listener receiving the nodes selected by the reader
+     * @return The parsed content
+     * @throws IOException If there is a request execution error or the content
+     *  is not valid Json
+     * @throws UnexpectedResponseCodeException If the response code is different than 200
+     */
+    private JsonNode parse(final URI uri, final JsonStreamReader reader,
+        final BiConsumer<String, JsonNode> listener)
+        throws IOException, UnexpectedResponseCodeException {
+        final long start = System.nanoTime();
+        try (CloseableHttpResponse response = this.response(uri, null);
+            JsonParser parser = Request.FACTORY.createParser(
+                this.verify(response).getContent()
+            )) {
+            final JsonNode tree = reader.read(parser, listener);
+            this.pool.metrics().request(this.monitor, System.nanoTime() - start);
+            if (response.getEntity().getContentLength() >= 0L) {
+                this.pool.metrics().response(
+                    this.monitor,
+                    response.getEntity().getContentLength()
+                );
+            }
+            return tree;
+        } catch (final IOException exception) {
+            this.failure(exception);
+            throw exception;
         }
+    }
+
+    /**
+     * Executes the request.
+     * @param uri The target URI
+     * @param validators The revision on which the request is conditional, or
+     *  null
+     * @return The HTTP response
+     * @throws IOException If there is an issue executing the HTTP request
+     */
+    private CloseableHttpResponse response(final URI uri, final Revision validators)
+        throws IOException {
+        final CloseableHttpClient client = this.pool.client(uri);
+        final HttpClientContext context = HttpClientContext.create();
+        final CloseableHttpResponse response =
+            client.execute(this.request(uri, context, validators), context);
         Request.LOGGER.debug("{}", uri);
         return response;
     }
 
     /**
-     * Collects the data from the associated URL.
-     * @return The collected content
+     * Collects the data from the associated URL, issuing a conditional request
+     * based on the given revision or, if there is none, on the cached
+     * response.
+     * @param previous The previous revision, or null
+     * @return The collected revision
      * @throws IOException If there is a request execution error
+     * @throws UnexpectedResponseCodeException If the response code is
+     *  neither 200 nor, for conditional requests, 304
+     */
+    private Revision fetch(final Revision previous)
+        throws IOException, UnexpectedResponseCodeException {
+        final URI uri = this.template.uri(this.inputs);
+        Revision cached = previous;
+        if (cached == null) {
+            cached = this.cached(uri);
+        }
+        final Revision validators = cached;
+        return this.retried(uri, () -> this.exchange(uri, validators));
+    }
+
+    /**
+     * Executes the request and reads the response.
+     * @param uri The target URI
+     * @param validators The revision on which the request is conditional, or
+     *  null
+     * @return The collected revision
+     * @throws IOException If there is a request execution error
+     * @throws UnexpectedResponseCodeException If the response code is
+     *  neither 200 nor, for conditional requests, 304
+     */
+    private Revision exchange(final URI uri, final Revision validators)
+        throws IOException, UnexpectedResponseCodeException {
+        final long start = System.nanoTime();
+        try (CloseableHttpResponse response = this.response(uri, validators)) {
+            final Revision revision = this.read(uri, validators, response);
+            this.pool.metrics().request(this.monitor, System.nanoTime() - start);
+            return revision;
+        } catch (final IOException exception) {
+            this.failure(exception);
+            throw exception;
+        }
+    }
+
+    /**
+     * Executes a blocking request, retrying it if it fails due to a transient
+     * problem (see {@link RetryPolicy}).
+     * @param uri The target URI
+     * @param call The request
+     * @param <T> The type of the request's result
+     * @return The result of the last attempt
+     * @throws IOException If the last attempt fails with an I/O error or the
+     *  current thread is interrupted while waiting
+     * @throws UnexpectedResponseCodeException If the last attempt returns an
+     *  unexpected response code
+     */
+    private <T> T retried(final URI uri, final Request.Call<T> call)
+        throws IOException, UnexpectedResponseCodeException {
+        final RetryPolicy policy = this.pool.retries();
+        T result = null;
+        boolean done = false;
+        int attempt = 0;
+        while (!done) {
+            try {
+                result = this.throttled(uri, call);
+                done = true;
+            } catch (final IOException | UnexpectedResponseCodeException exception) {
+                if (!policy.shouldRetry(exception, attempt)) {
+                    throw exception;
+                }
+                Request.LOGGER.debug("Retrying {} ({})", uri, exception.getMessage());
+                policy.pause(attempt);
+                attempt += 1;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Executes a blocking request once the rate and concurrency limits of the
+     * target host allow it.
+     * @param uri The target URI
+     * @param call The request
+     * @param <T> The type of the request's result
+     * @return The request's result
+     * @throws IOException If there is a request execution error or the
+     *  current thread is interrupted while waiting
+     * @throws UnexpectedResponseCodeException If the response code is
+     *  unexpected
+     */
+    private <T> T throttled(final URI uri, final Request.Call<T> call)
+        throws IOException, UnexpectedResponseCodeException {
+        this.pool.bucket(uri).acquire();
+        final ConcurrencyLimiter limiter = this.pool.blockingLimiter(uri);
+        final long start;
+        try {
+            start = limiter.acquire();
+        } catch (final InterruptedException exception) {
+            Thread.currentThread().interrupt();
+            final InterruptedIOException error = new InterruptedIOException(
+                "Interrupted while waiting for the concurrency limit"
+            );
+            error.initCause(exception);
+            throw error;
+        }
+        boolean overloaded = false;
+        try {
+            return call.run();
+        } catch (final IOException | UnexpectedResponseCodeException exception) {
+            overloaded = ConcurrencyLimiter.isOverload(exception);
+            throw exception;
+        } finally {
+            limiter.release(start, overloaded);
+        }
+    }
+
+    /**
+     * Records a failed request.
+     * @param exception The cause of the failure
+     */
+    private void failure(final Throwable exception) {
+        this.pool.metrics().error(this.monitor, exception.getClass().getSimpleName());
+    }
+
+    /**
+     * Reads a response, caching it if it includes validators.
+     * @param uri The target URI
+     * @param validators The revision on which the request was conditional, or
+     *  null
+     * @param response The HTTP response
+     * @return The given revision if the content was not modified, or a new
+     *  revision with the collected content otherwise
+     * @throws IOException If the content cannot be read
+     * @throws UnexpectedResponseCodeException If the response code is
+     *  neither 200 nor, for conditional requests, 304
+     */
+    private Revision read(final URI uri, final Revision validators,
+        final HttpResponse response) throws IOException, UnexpectedResponseCodeException {
+        final Revision result;
+        if (validators != null
+            && response.getStatusLine().getStatusCode() == Request.NOT_MODIFIED_CODE) {
+            EntityUtils.consume(response.getEntity());
+            if (validators.isModified()) {
+                this.pool.cache().hit();
+            }
+            result = validators;
+        } else {
+            final ByteArrayOutputStream content =
+                Request.bytes(this.verify(response).getContent());
+            this.pool.metrics().response(this.monitor, content.size());
+            result = new Revision(
+                content.toString(StandardCharsets.UTF_8.toString()),
+                Request.header(response, HttpHeaders.ETAG),
+                Request.header(response, HttpHeaders.LAST_MODIFIED)
+            );
+            if (this.provider == null) {
+                this.pool.cache().store(uri, result);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Finds the cached response of a URI. Only GET requests are cached.
+     * @param uri The target URI
+     * @return The cached revision, or null
+     */
+    private Revision cached(final URI uri) {
+        Revision cached = null;
+        if (this.provider == null) {
+            cached = this.pool.cache().revision(uri);
+        }
+        return cached;
+    }
+
+    /**
+     * Verifies the response code of a response.
+     * @param response The HTTP response
+     * @return The response's entity
+     * @throws IOException If the entity cannot be consumed
      * @throws UnexpectedResponseCodeException If the response code is different than 200
      */
-    public String data() throws IOException, UnexpectedResponseCodeException {
-        final CloseableHttpResponse response = this.response();
+    private HttpEntity verify(final HttpResponse response)
+        throws IOException, UnexpectedResponseCodeException {
         if (response.getStatusLine().getStatusCode() != Request.OK_CODE) {
+            EntityUtils.consume(response.getEntity());
+            this.pool.metrics().error(
+                this.monitor,
+                String.valueOf(response.getStatusLine().getStatusCode())
+            );
             throw new UnexpectedResponseCodeException(
+                response.getStatusLine().getStatusCode(),
                 "Unexpected response code '%s' from URL '%s'.",
                 response.getStatusLine().getStatusCode(),
-                this.url
+                this.template.getUrl()
             );
         }
-        return this.asString(response.getEntity().getContent());
+        return response.getEntity();
     }
 
     /**
-     * Builds the target URI replacing the parameters where corresponds.
-     * @param initial The initial URL
-     * @return A URI with the corresponding parameters set
+     * Collects the data from the associated URL without blocking the calling
+     * thread. The request waits for a free slot if the target host already
+     * has the maximum number of requests in flight, and then for the host's
+     * rate limit, if any. Transient failures are retried.
+     * @return A future completing with the collected content, or
+     *  exceptionally with an {@link IOException} or an
+     *  {@link UnexpectedResponseCodeException}
      */
-    @SuppressWarnings("PMD.AvoidThrowingRawExceptionTypes")
-    private URI uri(final URL initial) {
-        final List<String> flatpath = Arrays.asList(initial.getPath());
-        this.parameters(Input.Location.PATH)
-            .forEach(input -> {
-                flatpath.set(
-                    0,
-                    flatpath.get(0).replaceAll(
-                        String.format("\\{%s\\}", input.getName()),
-                        input.getValue()
-                    )
-                );
-            });
-        final URIBuilder builder = new URIBuilder()
-            .setScheme(initial.getProtocol())
-            .setHost(initial.getHost())
-            .setPath(flatpath.get(0));
-        this.parameters(Input.Location.QUERY, Input.Location.FORM_DATA)
-            .filter(param -> param.getValue() != null)
-            .forEach(param -> {
-                for (final String value : param.getValue().split(",")) {
-                    builder.addParameter(param.getName(), value);
+    public CompletableFuture<String> dataAsync() {
+        return this.fetchAsync(null).thenApply(Revision::getContent);
+    }
+
+    /**
+     * Non-blocking variant of {@link #revision()}.
+     * @return A future completing with the collected revision, or
+     *  exceptionally as described in {@link #dataAsync()}
+     */
+    public CompletableFuture<Revision> revisionAsync() {
+        return this.fetchAsync(this.revision);
+    }
+
+    /**
+     * Collects a revision of the data without blocking the calling thread.
+     * @param previous The revision on which the request is conditional, or
+     *  null to use the cached response, if any
+     * @return A future completing with the collected revision
+     */
+    private CompletableFuture<Revision> fetchAsync(final Revision previous) {
+        final URI uri = this.template.uri(this.inputs);
+        Revision cached = previous;
+        if (cached == null) {
+            cached = this.cached(uri);
+        }
+        final Revision validators = cached;
+        return this.pool.retries().retry(
+            () -> this.pool.limiter(uri).submit(
+                () -> this.pool.bucket(uri).schedule(() -> this.execute(uri, validators))
+            )
+        );
+    }
+
+    /**
+     * Executes the request using the asynchronous client.
+     * @param uri The target URI
+     * @param validators The cached revision on which the request is
+     *  conditional, or null
+     * @return A future completing with the collected revision
+     */
+    private CompletableFuture<Revision> execute(final URI uri,
+        final Revision validators) {
+        final CompletableFuture<Revision> result = new CompletableFuture<>();
+        final HttpClientContext context = HttpClientContext.create();
+        final long start = System.nanoTime();
+        final Future<HttpResponse> call = this.pool.asyncClient(uri).execute(
+            this.request(uri, context, validators),
+            context,
+            new FutureCallback<HttpResponse>() {
+                @Override
+                public void completed(final HttpResponse response) {
+                    try {
+                        final Revision revision =
+                            Request.this.read(uri, validators, response);
+                        Request.this.pool.metrics().request(
+                            Request.this.monitor,
+                            System.nanoTime() - start
+                        );
+                        result.complete(revision);
+                    } catch (final IOException exception) {
+                        Request.this.failure(exception);
+                        result.completeExceptionally(exception);
+                    } catch (final UnexpectedResponseCodeException exception) {
+                        result.completeExceptionally(exception);
+                    }
                 }
-            });
-        try {
-            return builder.build();
-        } catch (final URISyntaxException exception) {
-            Request.LOGGER.error("Malformed URI", exception);
-            throw new RuntimeException(exception);
+
+                @Override
+                public void failed(final Exception exception) {
+                    Request.this.failure(exception);
+                    result.completeExceptionally(exception);
+                }
+
+                @Override
+                public void cancelled() {
+                    result.cancel(false);
+                }
+            }
+        );
+        result.whenComplete((content, error) -> {
+            if (result.isCancelled()) {
+                call.cancel(true);
+            }
+        });
+        Request.LOGGER.debug("{}", uri);
+        return result;
+    }
+
+    /**
+     * Creates the HTTP request: a GET request, or a POST request if there are
+     * credentials.
+     * @param uri The target URI
+     * @param context The context in which the request is executed
+     * @param validators The revision on which the request is conditional, or
+     *  null
+     * @return A non-null request, including the header parameters
+     */
+    private HttpUriRequest request(final URI uri, final HttpClientContext context,
+        final Revision validators) {
+        final HttpUriRequest request;
+        if (this.provider == null) {
+            request = new HttpGet(uri);
+        } else {
+            request = new HttpPost(uri);
+            context.setCredentialsProvider(this.provider);
+        }
+        for (final Input input : this.inputs) {
+            if (input.getLocation() == Input.Location.HEADER) {
+                request.addHeader(input.getName(), input.getValue());
+            }
         }
+        if (validators != null && validators.getEtag() != null) {
+            request.addHeader(HttpHeaders.IF_NONE_MATCH, validators.getEtag());
+        }
+        if (validators != null && validators.getModified() != null) {
+            request.addHeader(HttpHeaders.IF_MODIFIED_SINCE, validators.getModified());
+        }
+        return request;
     }
 
     /**
-     * Filters out the inputs based on the given parameter locations.
-     * @param criteria The filtering criteria
-     * @return A stream of parameters
+     * Finds the value of a response header.
+     * @param response The HTTP response
+     * @param name The name of the header
+     * @return The value of the first header with the given name, or null
      */
-    private Stream<Input> parameters(final Input.Location... criteria) {
-        return this.inputs.stream()
-            .filter(i -> Arrays.asList(criteria).contains(i.getLocation()));
+    private static String header(final HttpResponse response, final String name) {
+        final Header header = response.getFirstHeader(name);
+        String value = null;
+        if (header != null) {
+            value = header.getValue();
+        }
+        return value;
     }
 
     /**
-     * Returns the string representation of the given stream.
+     * Reads the given stream.
      * @param stream The input stream
-     * @return A UTF-8 string
+     * @return The bytes read
      * @throws IOException if something bad happens!
      */
-    private static String asString(final InputStream stream) throws IOException {
+    private static ByteArrayOutputStream bytes(final InputStream stream)
+        throws IOException {
         final ByteArrayOutputStream result = new ByteArrayOutputStream();
         final byte[] buffer = new byte[Request.BUFFER_SIZE];
         int length = stream.read(buffer);
@@ -191,7 +628,28 @@ public final class Request {
             result.write(buffer, 0, length);
             length = stream.read(buffer);
         }
-        return result.toString(StandardCharsets.UTF_8.toString());
+        return result;
+    }
+
+    /**
+     * A blocking request that may fail with a checked exception.
+     * @param <T> The type of the request's result
+     * @author Miguel Jimenez (miguel@uvic.ca)
+     * @version $Id$
+     * @since 0.1.0
+     */
+    @FunctionalInterface
+    private interface Call<T> {
+
+        /**
+         * Executes the request.
+         * @return The request's result
+         * @throws IOException If there is a request execution error
+         * @throws UnexpectedResponseCodeException If the response code is
+         *  unexpected
+         */
+        T run() throws IOException, UnexpectedResponseCodeException;
+
     }
 
 }
@@ -0,0 +1,175 @@
+package com.rigiresearch.middleware.historian.runtime;
+
+import java.net.MalformedURLException;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.List;
+import org.apache.http.client.utils.URIBuilder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The URL of an endpoint, compiled once so that building the URI of each
+ * request does not involve parsing the URL nor regular expressions. The path
+ * is split into literal segments and parameters (e.g., {@code {vm}}), which
+ * are replaced with the value of the path input with the same name.
+ * @author Miguel Jimenez (miguel@uvic.ca)
+ * @version $Id$
+ * @since 0.1.0
+ */
+public final class RequestTemplate {
+
+    /**
+     * The logger.
+     */
+    private static final Logger LOGGER =
+        LoggerFactory.getLogger(RequestTemplate.class);
+
+    /**
+     * The endpoint's URL.
+     */
+    private final URL url;
+
+    /**
+     * The path segments, either literal text or parameter names.
+     */
+    private final String[] segments;
+
+    /**
+     * Whether each segment is a parameter.
+     */
+    private final boolean[] parameters;
+
+    /**
+     * Default constructor.
+     * @param url The endpoint's URL
+     */
+    public RequestTemplate(final URL url) {
+        this.url = url;
+        this.segments = RequestTemplate.split(url.getPath());
+        this.parameters = RequestTemplate.parameters(this.segments);
+    }
+
+    /**
+     * Secondary constructor.
+     * @param url The endpoint's URL
+     * @throws MalformedURLException If the URL is invalid
+     */
+    public RequestTemplate(final String url) throws MalformedURLException {
+        this(new URL(url));
+    }
+
+    /**
+     * The endpoint's URL.
+     * @return The URL, including path parameters
+     */
+    public URL getUrl() {
+        return this.url;
+    }
+
+    /**
+     * Builds the target URI of a request.
+     * @param inputs The request inputs
+     * @return A URI with the path and query parameters set
+     */
+    @SuppressWarnings("PMD.AvoidThrowingRawExceptionTypes")
+    public URI uri(final List<Input> inputs) {
+        final URIBuilder builder = new URIBuilder()
+            .setScheme(this.url.getProtocol())
+            .setHost(this.url.getHost())
+            .setPath(this.path(inputs));
+        for (final Input input : inputs) {
+            if (input.getValue() != null
+                && (input.getLocation() == Input.Location.QUERY
+                || input.getLocation() == Input.Location.FORM_DATA)) {
+                for (final String value : input.getValue().split(",")) {
+                    builder.addParameter(input.getName(), value);
+                }
+            }
+        }
+        try {
+            return builder.build();
+        } catch (final URISyntaxException exception) {
+            RequestTemplate.LOGGER.error("Malformed URI", exception);
+            throw new RuntimeException(exception);
+        }
+    }
+
+    /**
+     * Binds the path parameters. Parameters without a path input are left
+     * as they are.
+     * @param inputs The request inputs
+     * @return The path
+     */
+    private String path(final List<Input> inputs) {
+        final StringBuilder path = new StringBuilder(this.url.getPath().length());
+        for (int idx = 0; idx < this.segments.length; idx += 1) {
+            String segment = this.segments[idx];
+            if (this.parameters[idx]) {
+                segment = RequestTemplate.value(inputs, segment);
+            }
+            path.append(segment);
+        }
+        return path.toString();
+    }
+
+    /**
+     * Finds the value of a path parameter.
+     * @param inputs The request inputs
+     * @param name The parameter's name
+     * @return The value of the first path input with the given name, or the
+     *  parameter itself if there is none or it has no value
+     */
+    private static String value(final List<Input> inputs, final String name) {
+        String value = null;
+        for (int idx = 0; idx < inputs.size() && value == null; idx += 1) {
+            final Input input = inputs.get(idx);
+            if (input.getLocation() == Input.Location.PATH
+                && input.getName().equals(name)) {
+                value = input.getValue();
+            }
+        }
+        if (value == null) {
+            value = String.format("{%s}", name);
+        }
+        return value;
+    }
+
+    /**
+     * Splits a path into literal segments and parameter names.
+     * @param path The path
+     * @return The segments, with literal text at even positions and parameter
+     *  names at odd positions
+     */
+    private static String[] split(final String path) {
+        final List<String> segments = new ArrayList<>(1);
+        int start = 0;
+        int open = path.indexOf('{');
+        int close = path.indexOf('}', open);
+        while (open >= 0 && close > open) {
+            segments.add(path.substring(start, open));
+            segments.add(path.substring(open + 1, close));
+            start = close + 1;
+            open = path.indexOf('{', start);
+            close = path.indexOf('}', open);
+        }
+        segments.add(path.substring(start));
+        return segments.toArray(new String[0]);
+    }
+
+    /**
+     * Marks the segments that are parameters.
+     * @param segments The segments, as returned by {@link #split(String)}
+     * @return An array aligned with the segments
+     */
+    private static boolean[] parameters(final String[] segments) {
+        final boolean[] array = new boolean[segments.length];
+        for (int idx = 1; idx < segments.length; idx += 2) {
+            array[idx] = true;
+        }
+        return array;
+    }
+
+}
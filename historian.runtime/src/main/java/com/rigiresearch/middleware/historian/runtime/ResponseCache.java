@@ -0,0 +1,175 @@
+package com.rigiresearch.middleware.historian.runtime;
+
+import java.net.URI;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A bounded, in-memory cache of responses, indexed by the fully resolved
+ * URI of the request (i.e., after replacing path and query parameters). Only
+ * responses including validators (i.e., an entity tag or a last modification
+ * date) are cached, so that they can be revalidated with conditional
+ * requests. The least recently used responses are evicted once the cache is
+ * full.
+ * @author Miguel Jimenez (miguel@uvic.ca)
+ * @version $Id$
+ * @since 0.1.0
+ */
+public final class ResponseCache {
+
+    /**
+     * The maximum number of responses.
+     */
+    private final int capacity;
+
+    /**
+     * The cached responses.
+     */
+    private final Map<URI, Revision> responses;
+
+    /**
+     * The number of responses served from the cache.
+     */
+    private final AtomicLong hits;
+
+    /**
+     * The number of responses stored in the cache.
+     */
+    private final AtomicLong stores;
+
+    /**
+     * Default constructor.
+     * @param capacity The maximum number of responses (0 disables the cache)
+     */
+    public ResponseCache(final int capacity) {
+        this.capacity = capacity;
+        this.responses = new ResponseCache.Lru(capacity);
+        this.hits = new AtomicLong();
+        this.stores = new AtomicLong();
+    }
+
+    /**
+     * Finds the cached response of a URI.
+     * @param uri The fully resolved URI
+     * @return The cached revision, or null if there is none
+     */
+    public Revision revision(final URI uri) {
+        synchronized (this.responses) {
+            return this.responses.get(uri);
+        }
+    }
+
+    /**
+     * Caches a response, provided that it includes validators.
+     * @param uri The fully resolved URI
+     * @param revision The collected revision, including the content
+     */
+    public void store(final URI uri, final Revision revision) {
+        if (this.capacity > 0 && revision.isModified()
+            && (revision.getEtag() != null || revision.getModified() != null)) {
+            synchronized (this.responses) {
+                this.responses.put(uri, revision);
+            }
+            this.stores.incrementAndGet();
+        }
+    }
+
+    /**
+     * Records that a response was served from the cache.
+     */
+    public void hit() {
+        this.hits.incrementAndGet();
+    }
+
+    /**
+     * The number of responses served from the cache.
+     * @return A positive number or zero
+     */
+    public long hits() {
+        return this.hits.get();
+    }
+
+    /**
+     * The number of responses stored in the cache.
+     * @return A positive number or zero
+     */
+    public long stores() {
+        return this.stores.get();
+    }
+
+    /**
+     * The number of cached responses.
+     * @return A positive number or zero
+     */
+    public int size() {
+        synchronized (this.responses) {
+            return this.responses.size();
+        }
+    }
+
+    /**
+     * A string representation of this cache.
+     * @return A non-null string
+     */
+    @Override
+    public String toString() {
+        return new StringBuilder()
+            .append(this.getClass().getSimpleName())
+            .append("(size: ")
+            .append(this.size())
+            .append(", hits: ")
+            .append(this.hits())
+            .append(", stores: ")
+            .append(this.stores())
+            .append(")")
+            .toString();
+    }
+
+    /**
+     * A map with a maximum size that evicts the least recently accessed
+     * entry.
+     * @author Miguel Jimenez (miguel@uvic.ca)
+     * @version $Id$
+     * @since 0.1.0
+     */
+    @SuppressWarnings("checkstyle:IllegalType")
+    private static final class Lru extends LinkedHashMap<URI, Revision> {
+
+        /**
+         * Serial version UID.
+         */
+        private static final long serialVersionUID = 3790151245262480125L;
+
+        /**
+         * The default load factor of hash maps.
+         */
+        private static final float LOAD_FACTOR = 0.75f;
+
+        /**
+         * The maximum number of entries.
+         */
+        private final int capacity;
+
+        /**
+         * Default constructor.
+         * @param capacity The maximum number of entries
+         */
+        Lru(final int capacity) {
+            super(capacity, ResponseCache.Lru.LOAD_FACTOR, true);
+            this.capacity = capacity;
+        }
+
+        /**
+         * Whether to evict the least recently accessed entry.
+         * @param eldest The least recently accessed entry
+         * @return Whether the maximum number of entries was exceeded
+         */
+        @Override
+        protected boolean removeEldestEntry(final Map.Entry<URI, Revision> eldest) {
+            return this.size() > this.capacity;
+        }
+
+    }
+
+}
@@ -0,0 +1,180 @@
+package com.rigiresearch.middleware.historian.runtime;
+
+import java.io.InterruptedIOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import org.apache.commons.configuration2.Configuration;
+
+/**
+ * Retries requests failing due to transient problems, that is, timeouts,
+ * reset or refused connections, and 429, 502, 503 and 504 response codes.
+ * Up to {@code http.retry.attempts} retries are made (none by default), each
+ * one after a random delay between zero and an exponentially growing bound:
+ * {@code http.retry.backoff} milliseconds, doubled on each retry, up to
+ * {@code http.retry.max-backoff} milliseconds. The random delay spreads the
+ * retries of concurrent requests.
+ * @author Miguel Jimenez (miguel@uvic.ca)
+ * @version $Id$
+ * @since 0.1.0
+ */
+public final class RetryPolicy {
+
+    /**
+     * HTTP status codes signaling a transient problem.
+     */
+    private static final int[] TRANSIENT = {429, 502, 503, 504};
+
+    /**
+     * The default base delay, in milliseconds.
+     */
+    private static final long DEFAULT_BACKOFF = 100L;
+
+    /**
+     * The default maximum delay, in milliseconds.
+     */
+    private static final long DEFAULT_MAX_BACKOFF = 10_000L;
+
+    /**
+     * The maximum number of retries.
+     */
+    private final int attempts;
+
+    /**
+     * The base delay, in milliseconds.
+     */
+    private final long backoff;
+
+    /**
+     * The maximum delay, in milliseconds.
+     */
+    private final long maximum;
+
+    /**
+     * The timer delaying asynchronous retries.
+     */
+    private final ScheduledExecutorService timer;
+
+    /**
+     * Default constructor.
+     * @param config The configuration properties
+     * @param timer The timer delaying asynchronous retries
+     */
+    public RetryPolicy(final Configuration config,
+        final ScheduledExecutorService timer) {
+        this.attempts = config.getInt("http.retry.attempts", 0);
+        this.backoff = config.getLong("http.retry.backoff", RetryPolicy.DEFAULT_BACKOFF);
+        this.maximum = config.getLong(
+            "http.retry.max-backoff",
+            RetryPolicy.DEFAULT_MAX_BACKOFF
+        );
+        this.timer = timer;
+    }
+
+    /**
+     * Whether to retry a failed request.
+     * @param error The failure
+     * @param attempt The number of retries made so far
+     * @return Whether the failure is transient and there are retries left
+     */
+    public boolean shouldRetry(final Throwable error, final int attempt) {
+        return attempt < this.attempts && RetryPolicy.isTransient(error);
+    }
+
+    /**
+     * A random delay before a retry.
+     * @param attempt The number of retries made so far
+     * @return A delay in milliseconds
+     */
+    public long delay(final int attempt) {
+        final long bound = Math.min(
+            this.maximum,
+            this.backoff << Math.min(attempt, Long.SIZE - 2)
+        );
+        long delay = 0L;
+        if (bound > 0L) {
+            delay = ThreadLocalRandom.current().nextLong(bound + 1L);
+        }
+        return delay;
+    }
+
+    /**
+     * Waits before a retry.
+     * @param attempt The number of retries made so far
+     * @throws InterruptedIOException If the current thread is interrupted
+     *  while waiting
+     */
+    public void pause(final int attempt) throws InterruptedIOException {
+        try {
+            TimeUnit.MILLISECONDS.sleep(this.delay(attempt));
+        } catch (final InterruptedException exception) {
+            Thread.currentThread().interrupt();
+            final InterruptedIOException error =
+                new InterruptedIOException("Interrupted while waiting to retry");
+            error.initCause(exception);
+            throw error;
+        }
+    }
+
+    /**
+     * Runs an asynchronous task, retrying it if it fails due to a transient
+     * problem.
+     * @param task A supplier that starts the task
+     * @param <T> The type of the task's result
+     * @return A future that completes as the last attempt does
+     */
+    public <T> CompletableFuture<T> retry(final Supplier<CompletableFuture<T>> task) {
+        final CompletableFuture<T> result = new CompletableFuture<>();
+        this.attempt(task, result, 0);
+        return result;
+    }
+
+    /**
+     * Whether a failure is transient, that is, a timeout, a reset or refused
+     * connection, or a 429, 502, 503 or 504 response code. Other failures,
+     * such as unknown hosts, TLS problems or malformed responses, would occur
+     * again.
+     * @param error The failure
+     * @return Whether a retry may succeed
+     */
+    static boolean isTransient(final Throwable error) {
+        return Failures.isTimeout(error)
+            || Failures.isReset(error)
+            || Failures.isRefused(error)
+            || Failures.hasCode(error, RetryPolicy.TRANSIENT);
+    }
+
+    /**
+     * Runs an attempt of an asynchronous task, and schedules the next one if
+     * it fails due to a transient problem.
+     * @param task A supplier that starts the task
+     * @param result The future to complete with the task's result
+     * @param attempt The number of retries made so far
+     * @param <T> The type of the task's result
+     */
+    private <T> void attempt(final Supplier<CompletableFuture<T>> task,
+        final CompletableFuture<T> result, final int attempt) {
+        task.get().whenComplete((value, error) -> {
+            final Throwable cause = Failures.unwrap(error);
+            if (error == null) {
+                result.complete(value);
+            } else if (!result.isDone() && this.shouldRetry(cause, attempt)) {
+                try {
+                    this.timer.schedule(
+                        () -> this.attempt(task, result, attempt + 1),
+                        this.delay(attempt),
+                        TimeUnit.MILLISECONDS
+                    );
+                } catch (final RejectedExecutionException exception) {
+                    result.completeExceptionally(cause);
+                }
+            } else {
+                result.completeExceptionally(cause);
+            }
+        });
+    }
+
+}
@@ -0,0 +1,175 @@
+package com.rigiresearch.middleware.historian.runtime;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.Objects;
+
+/**
+ * A revision of the content collected from a URL: the content itself, if it
+ * was sent, and the validators used to issue conditional requests (i.e., the
+ * entity tag, the last modification date and a digest of the content).
+ * @author Miguel Jimenez (miguel@uvic.ca)
+ * @version $Id$
+ * @since 0.1.0
+ */
+public final class Revision {
+
+    /**
+     * The algorithm used to compute the digest of the content.
+     */
+    private static final String ALGORITHM = "SHA-256";
+
+    /**
+     * The collected content, or null if the server responded that it was not
+     * modified.
+     */
+    private final String content;
+
+    /**
+     * The entity tag (optional).
+     */
+    private final String etag;
+
+    /**
+     * The last modification date (optional).
+     */
+    private final String modified;
+
+    /**
+     * The digest of the content (optional).
+     */
+    private final String digest;
+
+    /**
+     * Secondary constructor.
+     * @param content The collected content, or null if it was not modified
+     * @param etag The entity tag, or null
+     * @param modified The last modification date, or null
+     */
+    public Revision(final String content, final String etag,
+        final String modified) {
+        this(content, etag, modified, Revision.digest(content));
+    }
+
+    /**
+     * Default constructor.
+     * @param content The collected content, or null if it was not modified
+     * @param etag The entity tag, or null
+     * @param modified The last modification date, or null
+     * @param digest The digest of the content, or null
+     */
+    @SuppressWarnings("checkstyle:ParameterNumber")
+    private Revision(final String content, final String etag,
+        final String modified, final String digest) {
+        this.content = content;
+        this.etag = etag;
+        this.modified = modified;
+        this.digest = digest;
+    }
+
+    /**
+     * The collected content.
+     * @return The content, or null if it was not modified
+     */
+    public String getContent() {
+        return this.content;
+    }
+
+    /**
+     * The entity tag.
+     * @return The entity tag, or null
+     */
+    public String getEtag() {
+        return this.etag;
+    }
+
+    /**
+     * The last modification date.
+     * @return The last modification date, or null
+     */
+    public String getModified() {
+        return this.modified;
+    }
+
+    /**
+     * Whether the content was sent, as opposed to the server responding that
+     * it was not modified.
+     * @return Whether there is content
+     */
+    public boolean isModified() {
+        return this.content != null;
+    }
+
+    /**
+     * Whether this revision represents the same content as a previous one,
+     * either because the server responded that it was not modified or because
+     * both digests are equal.
+     * @param previous The previous revision
+     * @return Whether the content did not change
+     */
+    public boolean isSameAs(final Revision previous) {
+        return !this.isModified()
+            || this.digest != null && this.digest.equals(previous.digest);
+    }
+
+    /**
+     * This revision without the content, to keep track of it across
+     * collection cycles.
+     * @return A new revision
+     */
+    public Revision validators() {
+        return new Revision(null, this.etag, this.modified, this.digest);
+    }
+
+    @Override
+    public boolean equals(final Object object) {
+        boolean equivalent = false;
+        if (object instanceof Revision) {
+            final Revision revision = (Revision) object;
+            equivalent = Objects.equals(this.etag, revision.etag)
+                && Objects.equals(this.modified, revision.modified)
+                && Objects.equals(this.digest, revision.digest);
+        }
+        return equivalent;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(this.etag, this.modified, this.digest);
+    }
+
+    @Override
+    public String toString() {
+        return String.format(
+            "%s(etag: %s, modified: %s, digest: %s)",
+            this.getClass().getSimpleName(),
+            this.etag,
+            this.modified,
+            this.digest
+        );
+    }
+
+    /**
+     * Computes the digest of some content.
+     * @param content The content, or null
+     * @return A Base64 representation of the digest, or null if there is no
+     *  content
+     */
+    private static String digest(final String content) {
+        String digest = null;
+        if (content != null) {
+            try {
+                digest = Base64.getEncoder().encodeToString(
+                    MessageDigest.getInstance(Revision.ALGORITHM)
+                        .digest(content.getBytes(StandardCharsets.UTF_8))
+                );
+            } catch (final NoSuchAlgorithmException exception) {
+                throw new IllegalStateException(exception);
+            }
+        }
+        return digest;
+    }
+
+}
@@ -0,0 +1,138 @@
+package com.rigiresearch.middleware.historian.runtime;
+
+import java.io.InterruptedIOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * A token bucket limiting the rate of requests sent to a host. Tokens are
+ * added at a constant rate, up to a maximum burst, and each request takes
+ * one. A request arriving when the bucket is empty reserves the next token
+ * and waits until it is added, so requests are started in arrival order.
+ * @author Miguel Jimenez (miguel@uvic.ca)
+ * @version $Id$
+ * @since 0.1.0
+ */
+public final class TokenBucket {
+
+    /**
+     * The number of nanoseconds per second.
+     */
+    private static final double NANOS = 1e9;
+
+    /**
+     * The number of tokens added per second (0 disables the limit).
+     */
+    private final double rate;
+
+    /**
+     * The maximum number of tokens.
+     */
+    private final double burst;
+
+    /**
+     * The timer delaying asynchronous requests.
+     */
+    private final ScheduledExecutorService timer;
+
+    /**
+     * The number of tokens, negative if there are reservations.
+     */
+    private double tokens;
+
+    /**
+     * The last time tokens were added, in nanoseconds.
+     */
+    private long updated;
+
+    /**
+     * Default constructor.
+     * @param rate The number of requests per second (0 disables the limit)
+     * @param burst The maximum number of requests sent at once
+     * @param timer The timer delaying asynchronous requests
+     */
+    public TokenBucket(final double rate, final int burst,
+        final ScheduledExecutorService timer) {
+        this.rate = rate;
+        this.burst = Math.max(1, burst);
+        this.timer = timer;
+        this.tokens = this.burst;
+        this.updated = System.nanoTime();
+    }
+
+    /**
+     * Takes a token, waiting until there is one.
+     * @throws InterruptedIOException If the current thread is interrupted
+     *  while waiting
+     */
+    public void acquire() throws InterruptedIOException {
+        final long delay = this.reserve();
+        if (delay > 0L) {
+            try {
+                TimeUnit.NANOSECONDS.sleep(delay);
+            } catch (final InterruptedException exception) {
+                Thread.currentThread().interrupt();
+                final InterruptedIOException error = new InterruptedIOException(
+                    "Interrupted while waiting for the request rate limit"
+                );
+                error.initCause(exception);
+                throw error;
+            }
+        }
+    }
+
+    /**
+     * Starts a task once there is a token, without blocking the calling
+     * thread.
+     * @param task A supplier that starts the task
+     * @param <T> The type of the task's result
+     * @return A future that completes as the task's future does
+     */
+    public <T> CompletableFuture<T> schedule(
+        final Supplier<CompletableFuture<T>> task) {
+        final long delay = this.reserve();
+        final CompletableFuture<T> result;
+        if (delay > 0L) {
+            final CompletableFuture<Void> tick = new CompletableFuture<>();
+            try {
+                this.timer.schedule(
+                    () -> tick.complete(null),
+                    delay,
+                    TimeUnit.NANOSECONDS
+                );
+            } catch (final RejectedExecutionException exception) {
+                tick.completeExceptionally(new CompletionException(exception));
+            }
+            result = tick.thenCompose(nothing -> task.get());
+        } else {
+            result = task.get();
+        }
+        return result;
+    }
+
+    /**
+     * Reserves a token.
+     * @return The time to wait until the token is available, in nanoseconds
+     */
+    synchronized long reserve() {
+        long delay = 0L;
+        if (this.rate > 0.0) {
+            final long now = System.nanoTime();
+            this.tokens = Math.min(
+                this.burst,
+                this.tokens + (now - this.updated) * this.rate / TokenBucket.NANOS
+            );
+            this.updated = now;
+            this.tokens -= 1.0;
+            if (this.tokens < 0.0) {
+                delay = (long) (-this.tokens / this.rate * TokenBucket.NANOS);
+            }
+        }
+        return delay;
+    }
+
+}
@@ -13,13 +13,29 @@ public final class UnexpectedResponseCodeException extends Exception {
      */
     private static final long serialVersionUID = 3911876210328970030L;
 
+    /**
+     * The response code.
+     */
+    private final int code;
+
     /**
      * Default constructor.
+     * @param code The response code
      * @param message The error message (format)
      * @param args Arguments to the message format
      */
-    public UnexpectedResponseCodeException(final String message, final Object... args) {
+    public UnexpectedResponseCodeException(final int code, final String message,
+        final Object... args) {
         super(String.format(message, args));
+        this.code = code;
+    }
+
+    /**
+     * The response code.
+     * @return An HTTP status code
+     */
+    public int getCode() {
+        return this.code;
     }
 
 }
@@ -1,15 +1,13 @@
 package com.rigiresearch.middleware.historian.runtime;
 
-import com.rigiresearch.middleware.historian.runtime.json.JsonNodeXpathVisitor;
-import com.vmware.xpath.json.JsonXpath;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.rigiresearch.middleware.historian.runtime.json.JsonSelector;
 import java.io.IOException;
 import java.util.Collection;
+import java.util.List;
 import java.util.stream.Collectors;
-import java.util.stream.StreamSupport;
-import lombok.RequiredArgsConstructor;
-import org.codehaus.jackson.JsonNode;
-import org.codehaus.jackson.map.ObjectMapper;
-import org.codehaus.jackson.node.ArrayNode;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -17,13 +15,10 @@ import org.slf4j.LoggerFactory;
  * A value extracted from a string based on an Xpath selector. This
  * implementation currently supports JSON content.
  * TODO Add support for XML content.
- * TODO Use a JsonNode instead of the content string to stop parsing the nodes
- *  from and to string, when this class is instantiated.
  * @author Miguel Jimenez (miguel@uvic.ca)
  * @version $Id$
  * @since 0.1.0
  */
-@RequiredArgsConstructor
 public final class XpathValue {
 
     /**
@@ -43,63 +38,89 @@ public final class XpathValue {
     private static final ObjectMapper MAPPER = new ObjectMapper();
 
     /**
-     * The content.
+     * The parsed content.
      */
-    private final String content;
+    private final JsonNode tree;
 
     /**
-     * The Xpath selector.
+     * The compiled Xpath selector.
      */
-    private final String selector;
+    private final JsonSelector selector;
+
+    /**
+     * Secondary constructor. It parses the given content.
+     * @param content The Json content
+     * @param selector The Xpath selector
+     * @throws IOException If the content is not valid Json
+     */
+    public XpathValue(final String content, final String selector)
+        throws IOException {
+        this(XpathValue.MAPPER.readTree(content), new JsonSelector(selector));
+    }
+
+    /**
+     * Secondary constructor.
+     * @param tree The parsed content, which may be shared by several values
+     * @param selector The Xpath selector
+     */
+    public XpathValue(final JsonNode tree, final String selector) {
+        this(tree, new JsonSelector(selector));
+    }
+
+    /**
+     * Default constructor.
+     * @param tree The parsed content, which may be shared by several values
+     * @param selector The compiled Xpath selector
+     */
+    public XpathValue(final JsonNode tree, final JsonSelector selector) {
+        this.tree = tree;
+        this.selector = selector;
+    }
 
     /**
      * Finds a single node selected by the associated Xpath selector.
-     * @return A non-null Json node selected from the input content
-     * @throws IOException If something bad happens while selecting the node
+     * @return The first Json node selected from the input content, or a
+     *  missing node
      */
-    public JsonNode singleNode() throws IOException {
-        final JsonNode node = XpathValue.MAPPER.readTree(this.content);
-        if (!JsonXpath.exists(node, this.selector)) {
+    public JsonNode singleNode() {
+        final JsonNode node = this.selector.first(this.tree);
+        if (node.isMissingNode()) {
             XpathValue.LOGGER.debug(
                 String.format(XpathValue.ERROR_FORMAT, this.selector)
             );
         }
-        return JsonXpath.find(node, this.selector);
+        return node;
     }
 
     /**
      * Finds a single value selected by the associated Xpath selector.
      * @return A string value from the input content
-     * @throws IOException If something bad happens while selecting the value
      */
-    public String singleValue() throws IOException {
+    public String singleValue() {
         return this.singleNode().asText();
     }
 
     /**
      * Finds the Json nodes selected by the associated Xpath selector.
      * @return A list of matching nodes
-     * @throws IOException If something bad happens while selecting the nodes
      */
-    public ArrayNode nodeArray() throws IOException {
-        final JsonNode node = XpathValue.MAPPER.readTree(this.content);
-        final JsonNodeXpathVisitor visitor = new JsonNodeXpathVisitor();
-        JsonXpath.findAndUpdateMultiple(node, this.selector, visitor);
-        if (visitor.getResult().size() == 0) {
+    public ArrayNode nodeArray() {
+        final List<JsonNode> nodes = this.selector.select(this.tree);
+        if (nodes.isEmpty()) {
             XpathValue.LOGGER.debug(
                 String.format(XpathValue.ERROR_FORMAT, this.selector)
             );
         }
-        return visitor.getResult();
+        return XpathValue.MAPPER.createArrayNode().addAll(nodes);
     }
 
     /**
      * Finds the values selected by the associated Xpath selector.
      * @return A list of matching values
-     * @throws IOException If something bad happens while selecting the values
      */
-    public Collection<String> values() throws IOException {
-        return StreamSupport.stream(this.nodeArray().spliterator(), false)
+    public Collection<String> values() {
+        return this.selector.select(this.tree)
+            .stream()
             .map(JsonNode::asText)
             .collect(Collectors.toSet());
     }
@@ -0,0 +1,139 @@
+package com.rigiresearch.middleware.historian.runtime.graph;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * The context values of a monitor, chained to the context of the branch from
+ * which the monitor was forked.
+ * <p>
+ * Each context only stores its own values, in a flat array indexed by the
+ * index of each name (see {@link Names}), so creating a child context does
+ * not copy its parent, and finding a value takes one array access per
+ * context in the chain. Values in the parent take precedence over those in
+ * the child, which is equivalent to copying the parent values into the
+ * child after the child's own values. Updates replace the array, so readers
+ * do not need to lock.
+ * @author Miguel Jimenez (miguel@uvic.ca)
+ * @version $Id$
+ * @since 0.1.0
+ */
+public final class Context {
+
+    /**
+     * The parent context, or null.
+     */
+    private final Context parent;
+
+    /**
+     * The own values, indexed by the index of their names. Null elements
+     * stand for missing values.
+     */
+    private volatile Object[] values;
+
+    /**
+     * Default constructor.
+     */
+    public Context() {
+        this(null);
+    }
+
+    /**
+     * Secondary constructor.
+     * @param parent The parent context, or null
+     */
+    private Context(final Context parent) {
+        this.parent = parent;
+        this.values = new Object[0];
+    }
+
+    /**
+     * Creates a child context.
+     * @return A new, empty context
+     */
+    public Context child() {
+        return new Context(this);
+    }
+
+    /**
+     * Finds a value, looking up the parent contexts first.
+     * @param name The name of the value
+     * @return The value, or null if there is none
+     */
+    public Object get(final String name) {
+        final int index = Names.find(name);
+        Object value = null;
+        if (index >= 0) {
+            value = this.get(index);
+        }
+        return value;
+    }
+
+    /**
+     * Finds a value by the index of its name, looking up the parent contexts
+     * first.
+     * @param index The index of the value's name
+     * @return The value, or null if there is none
+     */
+    Object get(final int index) {
+        Object value = null;
+        if (this.parent != null) {
+            value = this.parent.get(index);
+        }
+        if (value == null) {
+            final Object[] array = this.values;
+            if (index < array.length) {
+                value = array[index];
+            }
+        }
+        return value;
+    }
+
+    /**
+     * Sets or updates an own value.
+     * @param name The name of the value
+     * @param value The value to set
+     * @return The previous own value or null
+     */
+    public synchronized Object put(final String name, final Object value) {
+        final int index = Names.index(name);
+        final Object[] array = Arrays.copyOf(
+            this.values,
+            Math.max(this.values.length, index + 1)
+        );
+        final Object previous = array[index];
+        array[index] = value;
+        this.values = array;
+        return previous;
+    }
+
+    /**
+     * The values of this context, including the parent values.
+     * @return An unmodifiable map
+     */
+    public Map<String, Object> asMap() {
+        final Map<String, Object> map = new HashMap<>(this.values.length);
+        this.copyTo(map);
+        return Collections.unmodifiableMap(map);
+    }
+
+    /**
+     * Copies the values of this context, including the parent values, into
+     * a map.
+     * @param map The target map
+     */
+    private void copyTo(final Map<String, Object> map) {
+        final Object[] array = this.values;
+        for (int idx = 0; idx < array.length; idx += 1) {
+            if (array[idx] != null) {
+                map.put(Names.name(idx), array[idx]);
+            }
+        }
+        if (this.parent != null) {
+            this.parent.copyTo(map);
+        }
+    }
+
+}
@@ -0,0 +1,203 @@
+package com.rigiresearch.middleware.historian.runtime.graph;
+
+import com.rigiresearch.middleware.historian.runtime.Input;
+import com.rigiresearch.middleware.historian.runtime.RequestTemplate;
+import java.net.MalformedURLException;
+import org.apache.commons.configuration2.Configuration;
+
+/**
+ * The request inputs and endpoint of a node template, as configured. Each
+ * input occupies a slot, bound to the index of the input's name (see
+ * {@link Names}) under which the monitors store its value. The
+ * configuration is read (and the endpoint compiled) only the first time the
+ * slots are requested; concurrent readers at most read it more than once.
+ * @author Miguel Jimenez (miguel@uvic.ca)
+ * @version $Id$
+ * @since 0.1.0
+ */
+final class Layout {
+
+    /**
+     * The name of the node template.
+     */
+    private final String name;
+
+    /**
+     * The configuration properties.
+     */
+    private final Configuration config;
+
+    /**
+     * The slots, or null if they have not been read yet.
+     */
+    private volatile Layout.Slots slots;
+
+    /**
+     * Default constructor.
+     * @param name The name of the node template
+     * @param config The configuration properties
+     */
+    Layout(final String name, final Configuration config) {
+        this.name = name;
+        this.config = config;
+    }
+
+    /**
+     * The input slots.
+     * @return The slots of this layout
+     * @throws MalformedURLException If the configured URL is invalid
+     */
+    Layout.Slots slots() throws MalformedURLException {
+        Layout.Slots current = this.slots;
+        if (current == null) {
+            current = new Layout.Slots(this.name, this.config);
+            this.slots = current;
+        }
+        return current;
+    }
+
+    /**
+     * The inputs of a node template, along with the endpoint.
+     * @author Miguel Jimenez (miguel@uvic.ca)
+     * @version $Id$
+     * @since 0.1.0
+     */
+    static final class Slots {
+
+        /**
+         * The names of the inputs.
+         */
+        private final String[] names;
+
+        /**
+         * The index of each input's name.
+         */
+        private final int[] indexes;
+
+        /**
+         * Whether each input is required.
+         */
+        private final boolean[] required;
+
+        /**
+         * The location of each input.
+         */
+        private final Input.Location[] locations;
+
+        /**
+         * The endpoint.
+         */
+        private final RequestTemplate template;
+
+        /**
+         * Default constructor.
+         * @param name The name of the node template
+         * @param config The configuration properties
+         * @throws MalformedURLException If the configured URL is invalid
+         */
+        Slots(final String name, final Configuration config)
+            throws MalformedURLException {
+            this.names = config.getStringArray(String.format("%s.inputs", name));
+            this.indexes = Layout.Slots.indexes(this.names);
+            this.required = Layout.Slots.required(name, this.names, config);
+            this.locations = Layout.Slots.locations(name, this.names, config);
+            this.template = new RequestTemplate(
+                config.getString(String.format("%s.url", name))
+            );
+        }
+
+        /**
+         * The number of slots.
+         * @return A positive number or zero
+         */
+        int size() {
+            return this.names.length;
+        }
+
+        /**
+         * The index of the name of the input in a slot.
+         * @param slot The slot
+         * @return The index of the input's name
+         */
+        int index(final int slot) {
+            return this.indexes[slot];
+        }
+
+        /**
+         * Creates the input in a slot.
+         * @param slot The slot
+         * @param value The input's value
+         * @return A new input
+         */
+        Input input(final int slot, final String value) {
+            return new Input(
+                this.names[slot],
+                value,
+                this.required[slot],
+                this.locations[slot]
+            );
+        }
+
+        /**
+         * The endpoint.
+         * @return The compiled endpoint
+         */
+        RequestTemplate template() {
+            return this.template;
+        }
+
+        /**
+         * Finds the index of each input's name.
+         * @param names The names of the inputs
+         * @return An array aligned with the names
+         */
+        private static int[] indexes(final String[] names) {
+            final int[] array = new int[names.length];
+            for (int idx = 0; idx < names.length; idx += 1) {
+                array[idx] = Names.index(names[idx]);
+            }
+            return array;
+        }
+
+        /**
+         * Reads whether each input is required.
+         * @param name The name of the node template
+         * @param names The names of the inputs
+         * @param config The configuration properties
+         * @return An array aligned with the names
+         */
+        private static boolean[] required(final String name,
+            final String[] names, final Configuration config) {
+            final boolean[] array = new boolean[names.length];
+            for (int idx = 0; idx < names.length; idx += 1) {
+                array[idx] = config.getBoolean(
+                    String.format("%s.inputs.%s.required", name, names[idx]),
+                    false
+                );
+            }
+            return array;
+        }
+
+        /**
+         * Reads the location of each input.
+         * @param name The name of the node template
+         * @param names The names of the inputs
+         * @param config The configuration properties
+         * @return An array aligned with the names
+         */
+        private static Input.Location[] locations(final String name,
+            final String[] names, final Configuration config) {
+            final Input.Location[] array = new Input.Location[names.length];
+            for (int idx = 0; idx < names.length; idx += 1) {
+                array[idx] = Input.Location.valueOf(
+                    config.getString(
+                        String.format("%s.inputs.%s.location", name, names[idx])
+                    )
+                );
+            }
+            return array;
+        }
+
+    }
+
+}
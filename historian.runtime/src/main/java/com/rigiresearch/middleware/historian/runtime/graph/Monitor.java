@@ -1,25 +1,39 @@
 package com.rigiresearch.middleware.historian.runtime.graph;
 
+import com.fasterxml.jackson.databind.JsonNode;
 import com.rigiresearch.middleware.graph.Node;
+import com.rigiresearch.middleware.historian.runtime.HttpClientPool;
 import com.rigiresearch.middleware.historian.runtime.Input;
 import com.rigiresearch.middleware.historian.runtime.Request;
+import com.rigiresearch.middleware.historian.runtime.Revision;
 import com.rigiresearch.middleware.historian.runtime.UnexpectedResponseCodeException;
+import com.rigiresearch.middleware.historian.runtime.json.JsonStreamReader;
 import java.io.IOException;
-import java.net.URL;
-import java.util.AbstractMap;
+import java.net.MalformedURLException;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
-import java.util.stream.Collector;
-import java.util.stream.Collectors;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.BiConsumer;
 import lombok.ToString;
 import org.apache.commons.configuration2.Configuration;
 import org.apache.commons.configuration2.PropertiesConfiguration;
 
 /**
  * A graph node augmented with monitoring data.
+ * <p>
+ * Monitors forked for new branches (see {@link #fork(String, Monitor)})
+ * share the node state, input values and request layout of the monitor they
+ * are forked from, and only hold their own identifier and context values.
+ * Input values are copied the first time either monitor updates them, and
+ * the context is chained to the context of the parent branch. Both input
+ * and context values are stored by the index of their names (see
+ * {@link Names}), which is also the index the request layout uses.
  * @author Miguel Jimenez (miguel@uvic.ca)
  * @version $Id$
  * @since 0.1.0
@@ -45,12 +59,23 @@ public final class Monitor extends Node {
     /**
      * Input values from the context of this monitor.
      */
-    private final Map<String, Object> context;
+    private final Context context;
 
     /**
-     * Input values.
+     * The request inputs of this monitor's template.
      */
-    private final Map<String, Object> values;
+    private final Layout layout;
+
+    /**
+     * Input values, indexed by the index of their names. Null elements stand
+     * for missing values.
+     */
+    private Object[] values;
+
+    /**
+     * Whether the input values are shared with other monitors.
+     */
+    private boolean shared;
 
     /**
      * Empty constructor.
@@ -73,17 +98,38 @@ public final class Monitor extends Node {
         );
         this.identifier = node.getName();
         this.config = config;
-        this.context = new HashMap<>(0);
-        this.values = this.getParameters(true).stream()
-            .filter(com.rigiresearch.middleware.graph.Input.class::isInstance)
-            .map(com.rigiresearch.middleware.graph.Input.class::cast)
-            .filter(com.rigiresearch.middleware.graph.Input::hasConcreteValue)
-            .collect(
-                Collectors.toMap(
-                    com.rigiresearch.middleware.graph.Input::getName,
-                    com.rigiresearch.middleware.graph.Input::getValue
-                )
-            );
+        this.context = new Context();
+        this.layout = new Layout(Monitor.template(node), config);
+        this.values = Monitor.values(this.getInputs());
+        this.shared = false;
+    }
+
+    /**
+     * Constructor for forked monitors.
+     * @param origin The monitor from which this monitor is forked
+     * @param identifier A unique identifier for this monitor
+     * @param context The context of this monitor
+     */
+    private Monitor(final Monitor origin, final String identifier,
+        final Context context) {
+        super(origin);
+        this.identifier = identifier;
+        this.config = origin.config;
+        this.context = context;
+        this.layout = origin.layout;
+        this.values = origin.values;
+        this.shared = true;
+    }
+
+    /**
+     * Forks this monitor for a new branch.
+     * @param identifier A unique identifier for the fork
+     * @param parent The branch whose context the fork inherits
+     * @return A new monitor
+     */
+    public Monitor fork(final String identifier, final Monitor parent) {
+        this.shared = true;
+        return new Monitor(this, identifier, parent.context.child());
     }
 
     @Override
@@ -102,6 +148,7 @@ public final class Monitor extends Node {
      * A unique identifier for this monitor.
      * @return A unique identifier for this monitor
      */
+    @Override
     public String getIdentifier() {
         return this.identifier;
     }
@@ -117,10 +164,16 @@ public final class Monitor extends Node {
 
     /**
      * Input values.
-     * @return The input values
+     * @return An unmodifiable map of input values
      */
     public Map<String, Object> getValues() {
-        return this.values;
+        final Map<String, Object> map = new HashMap<>(this.values.length);
+        for (int idx = 0; idx < this.values.length; idx += 1) {
+            if (this.values[idx] != null) {
+                map.put(Names.name(idx), this.values[idx]);
+            }
+        }
+        return Collections.unmodifiableMap(map);
     }
 
     /**
@@ -130,15 +183,36 @@ public final class Monitor extends Node {
      * @return The previous value of the input or null
      */
     public Object setValue(final String name, final Object value) {
-        return this.values.put(name, value);
+        final int index = Names.index(name);
+        if (this.shared || index >= this.values.length) {
+            this.values = Arrays.copyOf(
+                this.values,
+                Math.max(this.values.length, index + 1)
+            );
+            this.shared = false;
+        }
+        final Object previous = this.values[index];
+        this.values[index] = value;
+        return previous;
     }
 
     /**
-     * Input values from the context of this monitor.
-     * @return The input values from the context of this monitor
+     * Input values from the context of this monitor, including the values
+     * inherited from the parent branches.
+     * @return An unmodifiable map
      */
     public Map<String, Object> getContextValues() {
-        return this.context;
+        return this.context.asMap();
+    }
+
+    /**
+     * Finds a context value, including the values inherited from the parent
+     * branches.
+     * @param name The name of the value
+     * @return The value, or null if there is none
+     */
+    public Object getContextValue(final String name) {
+        return this.context.get(name);
     }
 
     /**
@@ -151,99 +225,196 @@ public final class Monitor extends Node {
         return this.context.put(name, value);
     }
 
+    /**
+     * Finds the string value of an input, either from the context or the
+     * configuration of this monitor (in that order).
+     * @param name The name of the input
+     * @return The value, or null if there is none
+     */
+    public String value(final String name) {
+        final int index = Names.find(name);
+        String value = null;
+        if (index >= 0) {
+            value = this.value(index);
+        }
+        return value;
+    }
+
+    /**
+     * Finds the string value of an input by the index of its name, either
+     * from the context or the configuration of this monitor (in that order).
+     * @param index The index of the input's name
+     * @return The value, or null if there is none
+     */
+    private String value(final int index) {
+        Object value = this.context.get(index);
+        if (value == null && index < this.values.length) {
+            value = this.values[index];
+        }
+        String string = null;
+        if (value != null) {
+            string = value.toString();
+        }
+        return string;
+    }
+
     /**
      * Returns a combined map of input values from the configuration and context
      * of this monitor.
      * @return A map containing string values
      */
     public Map<String, String> allValues() {
+        final Map<String, Object> context = this.context.asMap();
         final Map<String, String> result =
-            new HashMap<>(this.values.size() + this.context.size());
-        result.putAll(
-            this.values.entrySet()
-                .stream()
-                .map(Monitor::toValueString)
-                .collect(Monitor.toMap())
-        );
-        result.putAll(
-            this.context.entrySet()
-                .stream()
-                .map(Monitor::toValueString)
-                .collect(Monitor.toMap())
-        );
+            new HashMap<>(this.values.length + context.size());
+        for (int idx = 0; idx < this.values.length; idx += 1) {
+            if (this.values[idx] != null) {
+                result.put(Names.name(idx), this.values[idx].toString());
+            }
+        }
+        context.forEach((name, value) -> result.put(name, value.toString()));
         return result;
     }
 
     /**
      * The inputs associated with this monitor.
+     * @param slots The input slots of this monitor's template
      * @return A list of {@link Input}s
      */
-    private List<Input> inputs() {
-        String name = this.getName();
-        if (this.isTemplateBased()) {
-            name = this.getTemplate().getName();
-        }
-        final String key = String.format("%s.inputs", name);
-        final String[] names = this.config.getStringArray(key);
-        final List<Input> list = new ArrayList<>(names.length);
-        final Map<String, String> map = this.allValues();
-        for (final String str : names) {
-            final String required =
-                String.format("%s.inputs.%s.required", name, str);
-            final String location =
-                String.format("%s.inputs.%s.location", name, str);
-            list.add(
-                new Input(
-                    str,
-                    map.get(str),
-                    this.config.getBoolean(required, false),
-                    Input.Location.valueOf(this.config.getString(location))
-                )
-            );
+    private List<Input> inputs(final Layout.Slots slots) {
+        final List<Input> list = new ArrayList<>(slots.size());
+        for (int slot = 0; slot < slots.size(); slot += 1) {
+            list.add(slots.input(slot, this.value(slots.index(slot))));
         }
         return list;
     }
 
     /**
      * Collects content from the associated URL.
+     * @param pool The pooled HTTP clients
      * @return The collected content
      * @throws IOException If the URL is invalid or there is a problem
      *  collecting the data
      * @throws UnexpectedResponseCodeException See {@link Request#data()}
      */
-    public String collect() throws IOException, UnexpectedResponseCodeException {
-        String name = this.getName();
-        if (this.isTemplateBased()) {
-            name = this.getTemplate().getName();
+    public String collect(final HttpClientPool pool)
+        throws IOException, UnexpectedResponseCodeException {
+        return this.request(pool).data();
+    }
+
+    /**
+     * Collects content from the associated URL, unless it was not modified
+     * since a previous revision.
+     * @param pool The pooled HTTP clients
+     * @param previous The previous revision, or null
+     * @return The collected revision
+     * @throws IOException If the URL is invalid or there is a problem
+     *  collecting the data
+     * @throws UnexpectedResponseCodeException See {@link Request#revision()}
+     */
+    public Revision collect(final HttpClientPool pool, final Revision previous)
+        throws IOException, UnexpectedResponseCodeException {
+        return this.request(pool).withRevision(previous).revision();
+    }
+
+    /**
+     * Collects content from the associated URL, parsing it as it is received.
+     * @param pool The pooled HTTP clients
+     * @param reader The reader evaluating selectors on the content
+     * @param listener A listener receiving the nodes selected by the reader
+     * @return The parsed content
+     * @throws IOException If the URL is invalid or there is a problem
+     *  collecting or parsing the data
+     * @throws UnexpectedResponseCodeException See {@link Request#data()}
+     */
+    public JsonNode collectTree(final HttpClientPool pool,
+        final JsonStreamReader reader, final BiConsumer<String, JsonNode> listener)
+        throws IOException, UnexpectedResponseCodeException {
+        return this.request(pool).tree(reader, listener);
+    }
+
+    /**
+     * Collects content from the associated URL without blocking.
+     * @param pool The pooled HTTP clients
+     * @return A future completing with the collected content, or
+     *  exceptionally as described in {@link #collect(HttpClientPool)}
+     */
+    public CompletableFuture<String> collectAsync(final HttpClientPool pool) {
+        CompletableFuture<String> future;
+        try {
+            future = this.request(pool).dataAsync();
+        } catch (final MalformedURLException exception) {
+            future = new CompletableFuture<>();
+            future.completeExceptionally(exception);
         }
-        final URL url = new URL(
-            this.config.getString(String.format("%s.url", name))
-        );
-        return new Request(this.inputs(), url).data();
+        return future;
     }
 
     /**
-     * A map collector for map entries.
-     * From https://stackoverflow.com/a/52989113
-     * @param <K> The type of the key
-     * @param <V> The type of the value
-     * @return A setup stream collector
+     * Collects content from the associated URL without blocking, unless it
+     * was not modified since a previous revision.
+     * @param pool The pooled HTTP clients
+     * @param previous The previous revision, or null
+     * @return A future completing with the collected revision, or
+     *  exceptionally as described in {@link #collect(HttpClientPool, Revision)}
      */
-    private static <K, V> Collector<? super Map.Entry<K, V>, ?, Map<K, V>> toMap() {
-        return Collectors.toMap(Map.Entry::getKey, Map.Entry::getValue);
+    public CompletableFuture<Revision> collectAsync(final HttpClientPool pool,
+        final Revision previous) {
+        CompletableFuture<Revision> future;
+        try {
+            future = this.request(pool).withRevision(previous).revisionAsync();
+        } catch (final MalformedURLException exception) {
+            future = new CompletableFuture<>();
+            future.completeExceptionally(exception);
+        }
+        return future;
     }
 
     /**
-     * Creates a new entry with the string value of the argument.
-     * @param entry The original entry
-     * @return A new entry
+     * Creates the request to collect content from the associated URL.
+     * @param pool The pooled HTTP clients
+     * @return A non-null request
+     * @throws MalformedURLException If the URL is invalid
      */
-    private static Map.Entry<String, String> toValueString(
-        final Map.Entry<String, Object> entry) {
-        return new AbstractMap.SimpleEntry<>(
-            entry.getKey(),
-            entry.getValue().toString()
-        );
+    private Request request(final HttpClientPool pool)
+        throws MalformedURLException {
+        final Layout.Slots slots = this.layout.slots();
+        return new Request(this.inputs(slots), slots.template(), pool)
+            .withMonitor(this.getName());
+    }
+
+    /**
+     * Stores the concrete input values of a node by the index of their names.
+     * @param inputs The node's inputs
+     * @return An array of values
+     */
+    private static Object[] values(
+        final Collection<com.rigiresearch.middleware.graph.Input> inputs) {
+        Object[] array = new Object[0];
+        for (final com.rigiresearch.middleware.graph.Input input : inputs) {
+            if (input.hasConcreteValue()) {
+                final int index = Names.index(input.getName());
+                if (index >= array.length) {
+                    array = Arrays.copyOf(array, index + 1);
+                }
+                array[index] = input.getValue();
+            }
+        }
+        return array;
+    }
+
+    /**
+     * Finds the name of the template of a node.
+     * @param node The node
+     * @return The template's name, or the node's name if it is not based on
+     *  a template
+     */
+    private static String template(final Node node) {
+        String name = node.getName();
+        if (node.isTemplateBased()) {
+            name = node.getTemplate().getName();
+        }
+        return name;
     }
 
     /**
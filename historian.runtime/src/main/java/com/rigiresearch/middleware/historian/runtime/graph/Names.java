@@ -0,0 +1,87 @@
+package com.rigiresearch.middleware.historian.runtime.graph;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Assigns a fixed index to each input name, so that input values can be
+ * stored in arrays (see {@link Context} and {@link Monitor}) and the inputs
+ * of a request found by position (see {@link Layout.Slots}) rather than by
+ * name. Indexes are never reused, and there are as many as distinct input
+ * names, so arrays are at most as long as the number of configured inputs
+ * and context values.
+ * @author Miguel Jimenez (miguel@uvic.ca)
+ * @version $Id$
+ * @since 0.1.0
+ */
+final class Names {
+
+    /**
+     * The index of each name.
+     */
+    private static final Map<String, Integer> INDEXES =
+        new ConcurrentHashMap<>();
+
+    /**
+     * The name of each index.
+     */
+    private static final List<String> NAMES = new CopyOnWriteArrayList<>();
+
+    /**
+     * Utility class.
+     */
+    private Names() {
+        // Nothing to do here
+    }
+
+    /**
+     * Finds the index of a name, assigning a new one if the name has none.
+     * @param name The name
+     * @return A positive number or zero
+     */
+    static int index(final String name) {
+        Integer index = Names.INDEXES.get(name);
+        if (index == null) {
+            index = Names.assign(name);
+        }
+        return index;
+    }
+
+    /**
+     * Finds the index of a name, without assigning one.
+     * @param name The name
+     * @return The index, or -1 if the name has none
+     */
+    static int find(final String name) {
+        return Names.INDEXES.getOrDefault(name, -1);
+    }
+
+    /**
+     * Finds the name of an index.
+     * @param index The index
+     * @return The name
+     */
+    static String name(final int index) {
+        return Names.NAMES.get(index);
+    }
+
+    /**
+     * Assigns the next index to a name, unless a concurrent caller did. The
+     * name is added before the index is published, so an index can always
+     * be resolved.
+     * @param name The name
+     * @return The name's index
+     */
+    private static synchronized int assign(final String name) {
+        Integer index = Names.INDEXES.get(name);
+        if (index == null) {
+            index = Names.NAMES.size();
+            Names.NAMES.add(name);
+            Names.INDEXES.put(name, index);
+        }
+        return index;
+    }
+
+}
@@ -0,0 +1,66 @@
+package com.rigiresearch.middleware.historian.runtime.graph;
+
+import com.rigiresearch.middleware.graph.Graph;
+import com.rigiresearch.middleware.graph.Property;
+import javax.xml.bind.annotation.XmlAttribute;
+import javax.xml.bind.annotation.XmlType;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * A mapping property to collect the branches of a monitor at most once every
+ * given number of seconds. In the cycles in between, the content collected
+ * last is reused.
+ * @author Miguel Jimenez (miguel@uvic.ca)
+ * @version $Id$
+ * @since 0.1.0
+ */
+@XmlType(
+    name = "refresh",
+    namespace = Graph.NAMESPACE
+)
+@EqualsAndHashCode(callSuper = false)
+@Getter
+@ToString(of = {"interval"})
+public final class Refresh extends Property implements Comparable<Property> {
+
+    /**
+     * Serial version UID.
+     */
+    private static final long serialVersionUID = -3360954718233186372L;
+
+    /**
+     * The refresh interval, in seconds.
+     */
+    @XmlAttribute
+    private Long interval;
+
+    /**
+     * Empty constructor.
+     */
+    public Refresh() {
+        this(0L);
+    }
+
+    /**
+     * Primary constructor.
+     * @param interval The refresh interval, in seconds
+     */
+    public Refresh(final long interval) {
+        super();
+        this.interval = interval;
+    }
+
+    @Override
+    public int compareTo(final Property property) {
+        final int result;
+        if (this.equals(property)) {
+            result = 0;
+        } else {
+            result = 1;
+        }
+        return result;
+    }
+
+}
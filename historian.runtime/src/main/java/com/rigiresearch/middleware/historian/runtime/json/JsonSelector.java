@@ -0,0 +1,629 @@
+package com.rigiresearch.middleware.historian.runtime.json;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.MissingNode;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * An Xpath selector compiled into an evaluator of Jackson 2 trees.
+ * <p>
+ * Json content is treated as an XML document in which every field is an
+ * element, and every element of an array field is an element with the
+ * field's name. The supported syntax is a subset of XPath abbreviated
+ * location paths:
+ * <ul>
+ *  <li>{@code /a/b} and {@code a/b}, a path of child steps (evaluated from
+ *  the root either way);</li>
+ *  <li>{@code //a} and {@code a//b}, descendant steps;</li>
+ *  <li>{@code *} and {@code .}, any element and the context element;</li>
+ *  <li>{@code a[2]} and {@code a[last()]}, positional predicates (starting
+ *  at 1);</li>
+ *  <li>{@code a[b]}, {@code a[b='x']} and {@code a[b!=3]}, predicates on the
+ *  existence and value of child elements.</li>
+ * </ul>
+ * Instances are immutable and can be shared across threads.
+ * @author Miguel Jimenez (miguel@uvic.ca)
+ * @version $Id$
+ * @since 0.1.0
+ */
+@SuppressWarnings("PMD.TooManyMethods")
+public final class JsonSelector {
+
+    /**
+     * The step separator.
+     */
+    private static final char SEPARATOR = '/';
+
+    /**
+     * The descendant step separator.
+     */
+    private static final String DESCENDANT = "//";
+
+    /**
+     * Name test matching any element.
+     */
+    private static final String ANY = "*";
+
+    /**
+     * Name test matching the context element.
+     */
+    private static final String SELF = ".";
+
+    /**
+     * Pattern of a step: a name test followed by predicates.
+     */
+    private static final Pattern STEP =
+        Pattern.compile("([^\\[\\]/'\"=!@\\s]+)((?:\\[[^\\]]*\\])*)");
+
+    /**
+     * Pattern of a predicate on a child element.
+     */
+    private static final Pattern COMPARISON =
+        Pattern.compile("([^\\[\\]/'\"=!@\\s]+)\\s*(?:(!?=)\\s*(.+))?");
+
+    /**
+     * Pattern of a positional predicate.
+     */
+    private static final Pattern POSITION = Pattern.compile("\\d+");
+
+    /**
+     * The original expression.
+     */
+    private final String expression;
+
+    /**
+     * The compiled steps.
+     */
+    private final List<JsonSelector.Step> steps;
+
+    /**
+     * Default constructor.
+     * @param expression The Xpath expression
+     * @throws IllegalArgumentException If the expression is not supported
+     */
+    public JsonSelector(final String expression) {
+        this(expression, JsonSelector.compile(expression));
+    }
+
+    /**
+     * Secondary constructor.
+     * @param expression The Xpath expression
+     * @param steps The compiled steps
+     */
+    private JsonSelector(final String expression,
+        final List<JsonSelector.Step> steps) {
+        this.expression = expression;
+        this.steps = steps;
+    }
+
+    /**
+     * Selects the matching nodes, in document order.
+     * @param root The root of the Json tree
+     * @return A non-null, possibly empty list
+     */
+    public List<JsonNode> select(final JsonNode root) {
+        List<JsonNode> context = Collections.singletonList(root);
+        for (final JsonSelector.Step step : this.steps) {
+            context = step.apply(context);
+        }
+        return context;
+    }
+
+    /**
+     * Selects the first matching node.
+     * @param root The root of the Json tree
+     * @return The first node, or a missing node if there are no matches
+     */
+    public JsonNode first(final JsonNode root) {
+        final List<JsonNode> nodes = this.select(root);
+        final JsonNode node;
+        if (nodes.isEmpty()) {
+            node = MissingNode.getInstance();
+        } else {
+            node = nodes.get(0);
+        }
+        return node;
+    }
+
+    /**
+     * Whether there is at least one matching node.
+     * @param root The root of the Json tree
+     * @return Whether there is a match
+     */
+    public boolean exists(final JsonNode root) {
+        return !this.select(root).isEmpty();
+    }
+
+    /**
+     * Whether this selector can be evaluated while the content is streamed,
+     * that is, whether it only consists of named or wildcard steps (without
+     * predicates).
+     * @return Whether {@link #matches(List)} can be used
+     */
+    public boolean isStreamable() {
+        return !this.steps.isEmpty()
+            && this.steps.stream().allMatch(JsonSelector.Step::isStreamable);
+    }
+
+    /**
+     * Whether this (streamable) selector selects an element based on the
+     * names of the element and its ancestors.
+     * @param path The names of the enclosing fields, from the root to the
+     *  element (arrays are transparent)
+     * @return Whether the element is selected
+     */
+    public boolean matches(final List<String> path) {
+        return this.matches(0, path, 0);
+    }
+
+    /**
+     * The original Xpath expression.
+     * @return A non-null string
+     */
+    public String getExpression() {
+        return this.expression;
+    }
+
+    /**
+     * Whether the given object is a selector with the same expression.
+     * @param object Another object
+     * @return Whether the two selectors are equivalent
+     */
+    @Override
+    public boolean equals(final Object object) {
+        return object instanceof JsonSelector
+            && this.expression.equals(((JsonSelector) object).expression);
+    }
+
+    /**
+     * The hash code of the expression.
+     * @return A hash
+     */
+    @Override
+    public int hashCode() {
+        return this.expression.hashCode();
+    }
+
+    /**
+     * The original Xpath expression.
+     * @return A non-null string
+     */
+    @Override
+    public String toString() {
+        return this.expression;
+    }
+
+    /**
+     * Whether the steps starting at the given index match the names starting
+     * at the given index.
+     * @param step The index of the first step
+     * @param path The names of the enclosing fields
+     * @param name The index of the first name
+     * @return Whether the remaining steps match the remaining names
+     */
+    private boolean matches(final int step, final List<String> path,
+        final int name) {
+        boolean match = false;
+        if (step == this.steps.size()) {
+            match = name == path.size();
+        } else if (this.steps.get(step).isDescendant()) {
+            for (int index = name; index < path.size() && !match; index += 1) {
+                match = this.steps.get(step).accepts(path.get(index))
+                    && this.matches(step + 1, path, index + 1);
+            }
+        } else if (name < path.size()) {
+            match = this.steps.get(step).accepts(path.get(name))
+                && this.matches(step + 1, path, name + 1);
+        }
+        return match;
+    }
+
+    /**
+     * Compiles an expression into steps.
+     * @param expression The Xpath expression
+     * @return A non-null list of steps
+     */
+    private static List<JsonSelector.Step> compile(final String expression) {
+        final int length = expression.length();
+        final List<JsonSelector.Step> list = new ArrayList<>(length);
+        int index = 0;
+        boolean descendant = false;
+        if (expression.startsWith(JsonSelector.DESCENDANT)) {
+            descendant = true;
+            index = JsonSelector.DESCENDANT.length();
+        } else if (!expression.isEmpty()
+            && expression.charAt(0) == JsonSelector.SEPARATOR) {
+            index = 1;
+        }
+        if (descendant && index >= length) {
+            throw JsonSelector.invalid(expression);
+        }
+        while (index < length) {
+            final int end = JsonSelector.end(expression, index);
+            list.add(
+                JsonSelector.step(expression, expression.substring(index, end), descendant)
+            );
+            descendant = expression.startsWith(JsonSelector.DESCENDANT, end);
+            if (descendant) {
+                index = end + JsonSelector.DESCENDANT.length();
+            } else {
+                index = end + 1;
+            }
+            if (index >= length && end < length) {
+                throw JsonSelector.invalid(expression);
+            }
+        }
+        return list;
+    }
+
+    /**
+     * Finds the end of the step starting at the given index.
+     * @param expression The Xpath expression
+     * @param start The index of the step's first character
+     * @return The index of the next separator outside predicates, or the
+     *  length of the expression
+     */
+    private static int end(final String expression, final int start) {
+        int index = start;
+        int depth = 0;
+        char quote = 0;
+        while (index < expression.length()) {
+            final char current = expression.charAt(index);
+            if (quote != 0) {
+                if (current == quote) {
+                    quote = 0;
+                }
+            } else if (current == '\'' || current == '"') {
+                quote = current;
+            } else if (current == '[') {
+                depth += 1;
+            } else if (current == ']') {
+                depth -= 1;
+            } else if (current == JsonSelector.SEPARATOR && depth == 0) {
+                break;
+            }
+            index += 1;
+        }
+        return index;
+    }
+
+    /**
+     * Compiles a step.
+     * @param expression The Xpath expression
+     * @param text The step's text
+     * @param descendant Whether the step is a descendant step
+     * @return A non-null step
+     */
+    private static JsonSelector.Step step(final String expression,
+        final String text, final boolean descendant) {
+        final Matcher matcher = JsonSelector.STEP.matcher(text);
+        if (!matcher.matches()) {
+            throw JsonSelector.invalid(expression);
+        }
+        final String predicates = matcher.group(2);
+        final List<JsonSelector.Predicate> list = new ArrayList<>(1);
+        int start = predicates.indexOf('[');
+        while (start >= 0) {
+            final int end = predicates.indexOf(']', start);
+            list.add(
+                JsonSelector.predicate(
+                    expression,
+                    predicates.substring(start + 1, end).trim()
+                )
+            );
+            start = predicates.indexOf('[', end);
+        }
+        return new JsonSelector.Step(descendant, matcher.group(1), list);
+    }
+
+    /**
+     * Compiles a predicate.
+     * @param expression The Xpath expression
+     * @param text The predicate's text, without brackets
+     * @return A non-null predicate
+     */
+    private static JsonSelector.Predicate predicate(final String expression,
+        final String text) {
+        final Matcher matcher = JsonSelector.COMPARISON.matcher(text);
+        final JsonSelector.Predicate predicate;
+        if (JsonSelector.POSITION.matcher(text).matches()) {
+            final int position = Integer.parseInt(text);
+            predicate = (node, index, size) -> index == position;
+        } else if ("last()".equals(text)) {
+            predicate = (node, index, size) -> index == size;
+        } else if (matcher.matches() && matcher.group(2) == null) {
+            final String name = matcher.group(1);
+            predicate = (node, index, size) ->
+                !JsonSelector.children(node, name).isEmpty();
+        } else if (matcher.matches()) {
+            final String name = matcher.group(1);
+            final boolean negated = "!=".equals(matcher.group(2));
+            final String literal = matcher.group(3).trim();
+            predicate = (node, index, size) ->
+                negated != JsonSelector.children(node, name)
+                    .stream()
+                    .anyMatch(child -> JsonSelector.matches(child, literal));
+        } else {
+            throw JsonSelector.invalid(expression);
+        }
+        return predicate;
+    }
+
+    /**
+     * Whether a value node is equal to a literal.
+     * @param node The value node
+     * @param literal A quoted string, a number or a boolean
+     * @return Whether they are equal
+     */
+    private static boolean matches(final JsonNode node, final String literal) {
+        final boolean equal;
+        final char first = literal.charAt(0);
+        if (first == '\'' || first == '"') {
+            equal = node.isValueNode()
+                && node.asText().equals(literal.substring(1, literal.length() - 1));
+        } else if (node.isNumber()) {
+            equal = JsonSelector.isNumber(literal)
+                && node.decimalValue().compareTo(new BigDecimal(literal)) == 0;
+        } else {
+            equal = node.isValueNode() && node.asText().equals(literal);
+        }
+        return equal;
+    }
+
+    /**
+     * Whether a literal is a number.
+     * @param literal The literal
+     * @return Whether the literal can be parsed as a number
+     */
+    private static boolean isNumber(final String literal) {
+        boolean number = true;
+        try {
+            new BigDecimal(literal);
+        } catch (final NumberFormatException exception) {
+            number = false;
+        }
+        return number;
+    }
+
+    /**
+     * Finds the elements matching a name test within a context node. Arrays
+     * are transparent: their elements are the elements of the enclosing
+     * field.
+     * @param node The context node
+     * @param name The name test
+     * @return A non-null list
+     */
+    private static List<JsonNode> children(final JsonNode node,
+        final String name) {
+        final List<JsonNode> list = new ArrayList<>(1);
+        if (JsonSelector.SELF.equals(name)) {
+            list.add(node);
+        } else if (node.isArray()) {
+            for (final JsonNode element : node) {
+                list.addAll(JsonSelector.children(element, name));
+            }
+        } else if (node.isObject() && JsonSelector.ANY.equals(name)) {
+            for (final JsonNode value : node) {
+                JsonSelector.expand(value, list);
+            }
+        } else if (node.isObject() && node.has(name)) {
+            JsonSelector.expand(node.get(name), list);
+        }
+        return list;
+    }
+
+    /**
+     * Adds the elements corresponding to a field's value.
+     * @param value The field's value
+     * @param list The list to which the elements are added
+     */
+    private static void expand(final JsonNode value, final List<JsonNode> list) {
+        if (value.isArray()) {
+            for (final JsonNode element : value) {
+                list.add(element);
+            }
+        } else {
+            list.add(value);
+        }
+    }
+
+    /**
+     * Creates the exception thrown for unsupported expressions.
+     * @param expression The Xpath expression
+     * @return A non-null exception
+     */
+    private static IllegalArgumentException invalid(final String expression) {
+        return new IllegalArgumentException(
+            String.format("Unsupported selector '%s'", expression)
+        );
+    }
+
+    /**
+     * A location step.
+     * @author Miguel Jimenez (miguel@uvic.ca)
+     * @version $Id$
+     * @since 0.1.0
+     */
+    private static final class Step {
+
+        /**
+         * Whether this step applies to the descendants of the context nodes.
+         */
+        private final boolean descendant;
+
+        /**
+         * The name test.
+         */
+        private final String name;
+
+        /**
+         * The predicates.
+         */
+        private final List<JsonSelector.Predicate> predicates;
+
+        /**
+         * Default constructor.
+         * @param descendant Whether this is a descendant step
+         * @param name The name test
+         * @param predicates The predicates
+         */
+        Step(final boolean descendant, final String name,
+            final List<JsonSelector.Predicate> predicates) {
+            this.descendant = descendant;
+            this.name = name;
+            this.predicates = predicates;
+        }
+
+        /**
+         * Whether this step applies to the descendants of the context nodes.
+         * @return Whether this is a descendant step
+         */
+        public boolean isDescendant() {
+            return this.descendant;
+        }
+
+        /**
+         * Whether this step only tests names.
+         * @return Whether this step is a named or wildcard step without
+         *  predicates
+         */
+        public boolean isStreamable() {
+            return this.predicates.isEmpty() && !JsonSelector.SELF.equals(this.name);
+        }
+
+        /**
+         * Whether this step's name test accepts the given name.
+         * @param field The name of a field
+         * @return Whether the name test is a wildcard or the given name
+         */
+        public boolean accepts(final String field) {
+            return JsonSelector.ANY.equals(this.name) || this.name.equals(field);
+        }
+
+        /**
+         * Applies this step to the given context nodes.
+         * @param context The context nodes
+         * @return The selected nodes
+         */
+        public List<JsonNode> apply(final List<JsonNode> context) {
+            final List<JsonNode> result = new ArrayList<>(context.size());
+            if (this.descendant) {
+                final Set<JsonNode> visited =
+                    Collections.newSetFromMap(new IdentityHashMap<>(context.size()));
+                for (final JsonNode node : context) {
+                    this.descend(node, visited, result);
+                }
+            } else {
+                for (final JsonNode node : context) {
+                    final List<JsonNode> children =
+                        JsonSelector.children(node, this.name);
+                    for (int index = 0; index < children.size(); index += 1) {
+                        if (this.test(children.get(index), index + 1, children.size())) {
+                            result.add(children.get(index));
+                        }
+                    }
+                }
+            }
+            return result;
+        }
+
+        /**
+         * Applies this step to a node and its descendants, in document order.
+         * Arrays are transparent and nodes visited from a previous context
+         * node are skipped.
+         * @param node The node
+         * @param visited The container nodes already visited
+         * @param result The list to which the selected nodes are added
+         */
+        private void descend(final JsonNode node, final Set<JsonNode> visited,
+            final List<JsonNode> result) {
+            if (node.isObject() && visited.add(node)) {
+                this.visit(node, visited, result);
+            } else if (node.isArray() && visited.add(node)) {
+                for (final JsonNode element : node) {
+                    this.descend(element, visited, result);
+                }
+            }
+        }
+
+        /**
+         * Applies this step to an object's fields and their descendants.
+         * @param object The object node
+         * @param visited The container nodes already visited
+         * @param result The list to which the selected nodes are added
+         */
+        private void visit(final JsonNode object, final Set<JsonNode> visited,
+            final List<JsonNode> result) {
+            if (JsonSelector.SELF.equals(this.name) && this.test(object, 1, 1)) {
+                result.add(object);
+            }
+            final int size = JsonSelector.children(object, this.name).size();
+            int position = 0;
+            final Iterator<Map.Entry<String, JsonNode>> fields = object.fields();
+            while (fields.hasNext()) {
+                final Map.Entry<String, JsonNode> field = fields.next();
+                if (this.accepts(field.getKey())) {
+                    final List<JsonNode> elements = new ArrayList<>(1);
+                    JsonSelector.expand(field.getValue(), elements);
+                    for (final JsonNode element : elements) {
+                        position += 1;
+                        if (this.test(element, position, size)) {
+                            result.add(element);
+                        }
+                    }
+                }
+                this.descend(field.getValue(), visited, result);
+            }
+        }
+
+        /**
+         * Tests the predicates on a candidate node.
+         * @param node The candidate node
+         * @param position The position of the node, starting at 1
+         * @param size The number of candidate nodes
+         * @return Whether all the predicates hold
+         */
+        private boolean test(final JsonNode node, final int position,
+            final int size) {
+            boolean valid = true;
+            for (final JsonSelector.Predicate predicate : this.predicates) {
+                if (!predicate.test(node, position, size)) {
+                    valid = false;
+                    break;
+                }
+            }
+            return valid;
+        }
+
+    }
+
+    /**
+     * A step predicate.
+     * @author Miguel Jimenez (miguel@uvic.ca)
+     * @version $Id$
+     * @since 0.1.0
+     */
+    @FunctionalInterface
+    private interface Predicate {
+
+        /**
+         * Tests a candidate node.
+         * @param node The candidate node
+         * @param position The position of the node, starting at 1
+         * @param size The number of candidate nodes
+         * @return Whether the node satisfies this predicate
+         */
+        boolean test(JsonNode node, int position, int size);
+
+    }
+
+}
@@ -0,0 +1,266 @@
+package com.rigiresearch.middleware.historian.runtime.json;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.MissingNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BiConsumer;
+
+/**
+ * Reads a Json tree from a stream of tokens, evaluating selectors as the
+ * tree is built. Streamable selectors (see {@link JsonSelector#isStreamable()})
+ * report each selected node as soon as it has been read, in document order;
+ * the other selectors are evaluated once the whole tree has been read.
+ * @author Miguel Jimenez (miguel@uvic.ca)
+ * @version $Id$
+ * @since 0.1.0
+ */
+public final class JsonStreamReader {
+
+    /**
+     * The selectors to evaluate, indexed by name.
+     */
+    private final Map<String, JsonSelector> selectors;
+
+    /**
+     * The factory of Json nodes.
+     */
+    private final JsonNodeFactory factory;
+
+    /**
+     * Default constructor.
+     * @param selectors The selectors to evaluate, indexed by name (e.g., the
+     *  name of an output)
+     */
+    public JsonStreamReader(final Map<String, JsonSelector> selectors) {
+        this.selectors = selectors;
+        this.factory = JsonNodeFactory.instance;
+    }
+
+    /**
+     * Reads a Json tree.
+     * @param parser The parser, positioned before the first token
+     * @param listener A listener receiving the name of a selector and a node
+     *  it selected
+     * @return The tree, or a missing node if there is no content
+     * @throws IOException If the content cannot be read or is not valid Json
+     */
+    public JsonNode read(final JsonParser parser,
+        final BiConsumer<String, JsonNode> listener) throws IOException {
+        final JsonToken token = parser.nextToken();
+        JsonNode root = MissingNode.getInstance();
+        if (token != null) {
+            root = this.node(parser, new JsonStreamReader.Context(listener));
+        }
+        for (final Map.Entry<String, JsonSelector> entry : this.selectors.entrySet()) {
+            if (!entry.getValue().isStreamable()) {
+                for (final JsonNode node : entry.getValue().select(root)) {
+                    listener.accept(entry.getKey(), node);
+                }
+            }
+        }
+        return root;
+    }
+
+    /**
+     * Reads the node starting at the current token.
+     * @param parser The parser
+     * @param context The reading context
+     * @return A non-null node
+     * @throws IOException If the content cannot be read or is not valid Json
+     */
+    private JsonNode node(final JsonParser parser,
+        final JsonStreamReader.Context context) throws IOException {
+        final JsonNode node;
+        final JsonToken token = parser.currentToken();
+        if (token == JsonToken.START_OBJECT) {
+            node = this.object(parser, context);
+        } else if (token == JsonToken.START_ARRAY) {
+            node = this.array(parser, context);
+        } else {
+            node = this.scalar(parser);
+        }
+        return node;
+    }
+
+    /**
+     * Reads an object, reporting the fields' values.
+     * @param parser The parser, positioned at the start of the object
+     * @param context The reading context
+     * @return A non-null object node
+     * @throws IOException If the content cannot be read or is not valid Json
+     */
+    private ObjectNode object(final JsonParser parser,
+        final JsonStreamReader.Context context) throws IOException {
+        final ObjectNode object = this.factory.objectNode();
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            final String name = parser.getCurrentName();
+            parser.nextToken();
+            context.enter(name);
+            final JsonNode value = this.node(parser, context);
+            if (!value.isArray()) {
+                context.report(value);
+            }
+            context.exit();
+            object.set(name, value);
+        }
+        return object;
+    }
+
+    /**
+     * Reads an array, reporting its elements if it is the value of a field.
+     * @param parser The parser, positioned at the start of the array
+     * @param context The reading context
+     * @return A non-null array node
+     * @throws IOException If the content cannot be read or is not valid Json
+     */
+    private ArrayNode array(final JsonParser parser,
+        final JsonStreamReader.Context context) throws IOException {
+        final ArrayNode array = this.factory.arrayNode();
+        final boolean field = context.isField();
+        context.nest();
+        while (parser.nextToken() != JsonToken.END_ARRAY) {
+            final JsonNode element = this.node(parser, context);
+            if (field) {
+                context.report(element);
+            }
+            array.add(element);
+        }
+        context.unnest();
+        return array;
+    }
+
+    /**
+     * Reads a scalar value.
+     * @param parser The parser, positioned at the value
+     * @return A non-null value node
+     * @throws IOException If the content cannot be read or is not valid Json
+     */
+    @SuppressWarnings("PMD.CyclomaticComplexity")
+    private JsonNode scalar(final JsonParser parser) throws IOException {
+        final JsonNode node;
+        final JsonToken token = parser.currentToken();
+        if (token == JsonToken.VALUE_STRING) {
+            node = this.factory.textNode(parser.getText());
+        } else if (token == JsonToken.VALUE_NUMBER_INT
+            && parser.getNumberType() == JsonParser.NumberType.INT) {
+            node = this.factory.numberNode(parser.getIntValue());
+        } else if (token == JsonToken.VALUE_NUMBER_INT
+            && parser.getNumberType() == JsonParser.NumberType.LONG) {
+            node = this.factory.numberNode(parser.getLongValue());
+        } else if (token == JsonToken.VALUE_NUMBER_INT) {
+            node = this.factory.numberNode(parser.getBigIntegerValue());
+        } else if (token == JsonToken.VALUE_NUMBER_FLOAT) {
+            node = this.factory.numberNode(parser.getDoubleValue());
+        } else if (token == JsonToken.VALUE_TRUE || token == JsonToken.VALUE_FALSE) {
+            node = this.factory.booleanNode(parser.getBooleanValue());
+        } else if (token == JsonToken.VALUE_NULL) {
+            node = this.factory.nullNode();
+        } else if (token == JsonToken.VALUE_EMBEDDED_OBJECT) {
+            node = this.factory.pojoNode(parser.getEmbeddedObject());
+        } else {
+            throw new IOException(
+                String.format("Unexpected token %s at %s", token, parser.getCurrentLocation())
+            );
+        }
+        return node;
+    }
+
+    /**
+     * The state of a read: the names of the enclosing fields and whether the
+     * current value is the value of a field.
+     * @author Miguel Jimenez (miguel@uvic.ca)
+     * @version $Id$
+     * @since 0.1.0
+     */
+    private final class Context {
+
+        /**
+         * The listener receiving the selected nodes.
+         */
+        private final BiConsumer<String, JsonNode> listener;
+
+        /**
+         * The names of the enclosing fields.
+         */
+        private final List<String> path;
+
+        /**
+         * For each enclosing field or array, whether its values are the
+         * values of a field (true) or the elements of an array (false).
+         */
+        private final List<Boolean> levels;
+
+        /**
+         * Default constructor.
+         * @param listener The listener receiving the selected nodes
+         */
+        Context(final BiConsumer<String, JsonNode> listener) {
+            this.listener = listener;
+            this.path = new ArrayList<>(1);
+            this.levels = new ArrayList<>(1);
+        }
+
+        /**
+         * Enters the value of a field.
+         * @param name The name of the field
+         */
+        public void enter(final String name) {
+            this.path.add(name);
+            this.levels.add(true);
+        }
+
+        /**
+         * Exits the value of a field.
+         */
+        public void exit() {
+            this.path.remove(this.path.size() - 1);
+            this.levels.remove(this.levels.size() - 1);
+        }
+
+        /**
+         * Enters the elements of an array.
+         */
+        public void nest() {
+            this.levels.add(false);
+        }
+
+        /**
+         * Exits the elements of an array.
+         */
+        public void unnest() {
+            this.levels.remove(this.levels.size() - 1);
+        }
+
+        /**
+         * Whether the current value is the value of a field.
+         * @return Whether the current value belongs directly to a field
+         */
+        public boolean isField() {
+            return !this.levels.isEmpty() && this.levels.get(this.levels.size() - 1);
+        }
+
+        /**
+         * Reports a node to the selectors matching the current path.
+         * @param node The node
+         */
+        public void report(final JsonNode node) {
+            for (final Map.Entry<String, JsonSelector> entry
+                : JsonStreamReader.this.selectors.entrySet()) {
+                final JsonSelector selector = entry.getValue();
+                if (selector.isStreamable() && selector.matches(this.path)) {
+                    this.listener.accept(entry.getKey(), node);
+                }
+            }
+        }
+
+    }
+
+}
@@ -0,0 +1,176 @@
+package com.rigiresearch.middleware.historian.runtime.json;
+
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A bounded cache of compiled selectors, indexed by expression. The least
+ * recently used selectors are evicted once the cache is full.
+ * @author Miguel Jimenez (miguel@uvic.ca)
+ * @version $Id$
+ * @since 0.1.0
+ */
+public final class SelectorCache {
+
+    /**
+     * The default maximum number of selectors.
+     */
+    private static final int DEFAULT_SIZE = 256;
+
+    /**
+     * The compiled selectors.
+     */
+    private final Map<String, JsonSelector> selectors;
+
+    /**
+     * The number of lookups that found a compiled selector.
+     */
+    private final AtomicLong hits;
+
+    /**
+     * The number of lookups that compiled a selector.
+     */
+    private final AtomicLong misses;
+
+    /**
+     * Empty constructor. It uses the default size.
+     */
+    public SelectorCache() {
+        this(SelectorCache.DEFAULT_SIZE);
+    }
+
+    /**
+     * Default constructor.
+     * @param size The maximum number of selectors
+     */
+    public SelectorCache(final int size) {
+        this.selectors = new SelectorCache.Lru(size);
+        this.hits = new AtomicLong();
+        this.misses = new AtomicLong();
+    }
+
+    /**
+     * Finds the compiled form of an expression, compiling it if necessary.
+     * @param expression The Xpath expression
+     * @return A non-null selector
+     * @throws IllegalArgumentException If the expression is not supported
+     */
+    public JsonSelector selector(final String expression) {
+        synchronized (this.selectors) {
+            JsonSelector selector = this.selectors.get(expression);
+            if (selector == null) {
+                this.misses.incrementAndGet();
+                selector = new JsonSelector(expression);
+                this.selectors.put(expression, selector);
+            } else {
+                this.hits.incrementAndGet();
+            }
+            return selector;
+        }
+    }
+
+    /**
+     * Compiles the given expressions in advance.
+     * @param expressions The Xpath expressions
+     * @return This cache
+     * @throws IllegalArgumentException If an expression is not supported
+     */
+    public SelectorCache warm(final Collection<String> expressions) {
+        expressions.forEach(this::selector);
+        return this;
+    }
+
+    /**
+     * The number of lookups that found a compiled selector.
+     * @return A positive number or zero
+     */
+    public long hits() {
+        return this.hits.get();
+    }
+
+    /**
+     * The number of lookups that compiled a selector.
+     * @return A positive number or zero
+     */
+    public long misses() {
+        return this.misses.get();
+    }
+
+    /**
+     * The number of compiled selectors.
+     * @return A positive number or zero
+     */
+    public int size() {
+        synchronized (this.selectors) {
+            return this.selectors.size();
+        }
+    }
+
+    /**
+     * A string representation of this cache.
+     * @return A non-null string
+     */
+    @Override
+    public String toString() {
+        return new StringBuilder()
+            .append(this.getClass().getSimpleName())
+            .append("(size: ")
+            .append(this.size())
+            .append(", hits: ")
+            .append(this.hits())
+            .append(", misses: ")
+            .append(this.misses())
+            .append(")")
+            .toString();
+    }
+
+    /**
+     * A map with a maximum size that evicts the least recently accessed
+     * entry.
+     * @author Miguel Jimenez (miguel@uvic.ca)
+     * @version $Id$
+     * @since 0.1.0
+     */
+    @SuppressWarnings("checkstyle:IllegalType")
+    private static final class Lru extends LinkedHashMap<String, JsonSelector> {
+
+        /**
+         * Serial version UID.
+         */
+        private static final long serialVersionUID = -5193358238915342431L;
+
+        /**
+         * The default load factor of hash maps.
+         */
+        private static final float LOAD_FACTOR = 0.75f;
+
+        /**
+         * The maximum number of entries.
+         */
+        private final int capacity;
+
+        /**
+         * Default constructor.
+         * @param capacity The maximum number of entries
+         */
+        Lru(final int capacity) {
+            super(capacity, SelectorCache.Lru.LOAD_FACTOR, true);
+            this.capacity = capacity;
+        }
+
+        /**
+         * Whether to evict the least recently accessed entry.
+         * @param eldest The least recently accessed entry
+         * @return Whether the maximum number of entries was exceeded
+         */
+        @Override
+        protected boolean removeEldestEntry(
+            final Map.Entry<String, JsonSelector> eldest) {
+            return this.size() > this.capacity;
+        }
+
+    }
+
+}
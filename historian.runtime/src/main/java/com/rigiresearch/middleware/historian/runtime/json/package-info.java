@@ -1,5 +1,5 @@
 /**
- * Contains customizations for Json Xpath (vmware/xpath-for-json).
+ * Contains a Json selector engine based on Xpath expressions.
  * @author Miguel Jimenez (miguel@uvic.ca)
  * @version $Id$
  * @since 0.1.0
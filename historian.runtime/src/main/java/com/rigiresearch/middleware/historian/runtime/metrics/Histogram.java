@@ -0,0 +1,122 @@
+package com.rigiresearch.middleware.historian.runtime.metrics;
+
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A lock-free histogram of non-negative values. Values are counted in
+ * buckets whose bounds are powers of two, so percentiles are approximated
+ * within a factor of two, using a fixed amount of memory.
+ * @author Miguel Jimenez (miguel@uvic.ca)
+ * @version $Id$
+ * @since 0.1.0
+ */
+public final class Histogram {
+
+    /**
+     * The number of buckets (i.e., the number of bits of a long value).
+     */
+    private static final int BUCKETS = 64;
+
+    /**
+     * The number of values in each bucket. Bucket {@code i} contains values
+     * in the range [2^(i-1), 2^i), and bucket 0 contains zero.
+     */
+    private final LongAdder[] buckets;
+
+    /**
+     * The number of values.
+     */
+    private final LongAdder count;
+
+    /**
+     * The sum of the values.
+     */
+    private final LongAdder sum;
+
+    /**
+     * The maximum value.
+     */
+    private final LongAccumulator max;
+
+    /**
+     * Default constructor.
+     */
+    public Histogram() {
+        this.buckets = Histogram.adders();
+        this.count = new LongAdder();
+        this.sum = new LongAdder();
+        this.max = new LongAccumulator(Math::max, 0L);
+    }
+
+    /**
+     * Records a value. Negative values are recorded as zero.
+     * @param value The value
+     */
+    public void record(final long value) {
+        final long positive = Math.max(0L, value);
+        this.buckets[Histogram.BUCKETS - Long.numberOfLeadingZeros(positive)]
+            .increment();
+        this.count.increment();
+        this.sum.add(positive);
+        this.max.accumulate(positive);
+    }
+
+    /**
+     * Summarizes the recorded values.
+     * @param scale The number by which values are divided (e.g., 1e6 to
+     *  summarize nanoseconds as milliseconds)
+     * @return A non-null summary
+     */
+    public Summary summary(final double scale) {
+        final long total = this.count.sum();
+        double mean = 0.0;
+        if (total > 0L) {
+            mean = (double) this.sum.sum() / total / scale;
+        }
+        return new Summary(
+            total,
+            mean,
+            this.percentile(0.5) / scale,
+            this.percentile(0.99) / scale,
+            this.max.get() / scale
+        );
+    }
+
+    /**
+     * Approximates a percentile, as the upper bound of the bucket containing
+     * it, but never more than the maximum value.
+     * @param quantile The quantile, between 0 and 1
+     * @return The approximate value
+     */
+    double percentile(final double quantile) {
+        final long rank = (long) Math.ceil(quantile * this.count.sum());
+        long seen = 0L;
+        int bucket = 0;
+        while (bucket < Histogram.BUCKETS) {
+            seen += this.buckets[bucket].sum();
+            if (seen >= rank && seen > 0L) {
+                break;
+            }
+            bucket += 1;
+        }
+        double value = 0.0;
+        if (bucket > 0) {
+            value = Math.min(Math.pow(2.0, bucket) - 1.0, (double) this.max.get());
+        }
+        return value;
+    }
+
+    /**
+     * Creates the buckets.
+     * @return An array of adders
+     */
+    private static LongAdder[] adders() {
+        final LongAdder[] adders = new LongAdder[Histogram.BUCKETS];
+        for (int idx = 0; idx < adders.length; idx += 1) {
+            adders[idx] = new LongAdder();
+        }
+        return adders;
+    }
+
+}
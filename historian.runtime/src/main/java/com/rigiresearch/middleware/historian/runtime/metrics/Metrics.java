@@ -0,0 +1,55 @@
+package com.rigiresearch.middleware.historian.runtime.metrics;
+
+/**
+ * Records the metrics of the collection cycles. Implementations must be
+ * thread-safe, as requests are issued concurrently. Metrics are tagged by the
+ * name of the monitor they come from.
+ * @author Miguel Jimenez (miguel@uvic.ca)
+ * @version $Id$
+ * @since 0.1.0
+ */
+public interface Metrics {
+
+    /**
+     * Records a completed request.
+     * @param monitor The name of the monitor
+     * @param nanos The request latency, in nanoseconds
+     */
+    void request(String monitor, long nanos);
+
+    /**
+     * Records the size of a response's content.
+     * @param monitor The name of the monitor
+     * @param bytes The size, in bytes
+     */
+    void response(String monitor, long bytes);
+
+    /**
+     * Records a failed request.
+     * @param monitor The name of the monitor
+     * @param cause A short description of the failure (e.g., the response
+     *  code or the exception type)
+     */
+    void error(String monitor, String cause);
+
+    /**
+     * Records the number of branches forked from a branch.
+     * @param monitor The name of the branch's monitor
+     * @param branches The number of forked branches
+     */
+    void fanOut(String monitor, int branches);
+
+    /**
+     * Records the time spent evaluating the selectors on a branch's content.
+     * @param monitor The name of the monitor
+     * @param nanos The evaluation time, in nanoseconds
+     */
+    void selectors(String monitor, long nanos);
+
+    /**
+     * Records a complete collection cycle.
+     * @param nanos The cycle duration, in nanoseconds
+     */
+    void cycle(long nanos);
+
+}
@@ -0,0 +1,49 @@
+package com.rigiresearch.middleware.historian.runtime.metrics;
+
+import java.util.Map;
+
+/**
+ * The metrics exported through JMX. Maps are indexed by monitor name.
+ * @author Miguel Jimenez (miguel@uvic.ca)
+ * @version $Id$
+ * @since 0.1.0
+ */
+public interface MetricsMXBean {
+
+    /**
+     * The latency of the requests.
+     * @return Summaries in milliseconds
+     */
+    Map<String, Summary> getLatencies();
+
+    /**
+     * The size of the responses.
+     * @return Summaries in bytes
+     */
+    Map<String, Summary> getSizes();
+
+    /**
+     * The number of failed requests.
+     * @return Counts indexed by monitor name and cause, separated by a colon
+     */
+    Map<String, Long> getErrors();
+
+    /**
+     * The number of branches forked from each branch.
+     * @return Summaries of branch counts
+     */
+    Map<String, Summary> getFanOuts();
+
+    /**
+     * The time spent evaluating selectors on the content of each branch.
+     * @return Summaries in milliseconds
+     */
+    Map<String, Summary> getSelectors();
+
+    /**
+     * The duration of the collection cycles.
+     * @return A summary in milliseconds
+     */
+    Summary getCycles();
+
+}
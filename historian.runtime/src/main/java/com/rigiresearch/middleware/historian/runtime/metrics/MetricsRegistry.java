@@ -0,0 +1,217 @@
+package com.rigiresearch.middleware.historian.runtime.metrics;
+
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * An in-process registry of metrics, which can be exported as an MXBean
+ * through the platform MBean server.
+ * @author Miguel Jimenez (miguel@uvic.ca)
+ * @version $Id$
+ * @since 0.1.0
+ */
+public final class MetricsRegistry implements Metrics, MetricsMXBean {
+
+    /**
+     * The logger.
+     */
+    private static final Logger LOGGER =
+        LoggerFactory.getLogger(MetricsRegistry.class);
+
+    /**
+     * The number of nanoseconds per millisecond.
+     */
+    private static final double MILLIS = 1e6;
+
+    /**
+     * The latency of the requests, in nanoseconds, indexed by monitor name.
+     */
+    private final ConcurrentMap<String, Histogram> latencies;
+
+    /**
+     * The size of the responses, in bytes, indexed by monitor name.
+     */
+    private final ConcurrentMap<String, Histogram> sizes;
+
+    /**
+     * The number of failed requests, indexed by monitor name and cause.
+     */
+    private final ConcurrentMap<String, LongAdder> errors;
+
+    /**
+     * The number of forked branches, indexed by monitor name.
+     */
+    private final ConcurrentMap<String, Histogram> fanouts;
+
+    /**
+     * The selector evaluation time, in nanoseconds, indexed by monitor name.
+     */
+    private final ConcurrentMap<String, Histogram> selectors;
+
+    /**
+     * The duration of the collection cycles, in nanoseconds.
+     */
+    private final Histogram cycles;
+
+    /**
+     * Default constructor.
+     */
+    public MetricsRegistry() {
+        this.latencies = new ConcurrentHashMap<>();
+        this.sizes = new ConcurrentHashMap<>();
+        this.errors = new ConcurrentHashMap<>();
+        this.fanouts = new ConcurrentHashMap<>();
+        this.selectors = new ConcurrentHashMap<>();
+        this.cycles = new Histogram();
+    }
+
+    @Override
+    public void request(final String monitor, final long nanos) {
+        MetricsRegistry.histogram(this.latencies, monitor).record(nanos);
+    }
+
+    @Override
+    public void response(final String monitor, final long bytes) {
+        MetricsRegistry.histogram(this.sizes, monitor).record(bytes);
+    }
+
+    @Override
+    public void error(final String monitor, final String cause) {
+        this.errors.computeIfAbsent(
+            String.format("%s:%s", monitor, cause),
+            key -> new LongAdder()
+        ).increment();
+    }
+
+    @Override
+    public void fanOut(final String monitor, final int branches) {
+        MetricsRegistry.histogram(this.fanouts, monitor).record(branches);
+    }
+
+    @Override
+    public void selectors(final String monitor, final long nanos) {
+        MetricsRegistry.histogram(this.selectors, monitor).record(nanos);
+    }
+
+    @Override
+    public void cycle(final long nanos) {
+        this.cycles.record(nanos);
+    }
+
+    @Override
+    public Map<String, Summary> getLatencies() {
+        return MetricsRegistry.summaries(this.latencies, MetricsRegistry.MILLIS);
+    }
+
+    @Override
+    public Map<String, Summary> getSizes() {
+        return MetricsRegistry.summaries(this.sizes, 1.0);
+    }
+
+    @Override
+    public Map<String, Long> getErrors() {
+        final Map<String, Long> map = new TreeMap<>();
+        this.errors.forEach((key, adder) -> map.put(key, adder.sum()));
+        return map;
+    }
+
+    @Override
+    public Map<String, Summary> getFanOuts() {
+        return MetricsRegistry.summaries(this.fanouts, 1.0);
+    }
+
+    @Override
+    public Map<String, Summary> getSelectors() {
+        return MetricsRegistry.summaries(this.selectors, MetricsRegistry.MILLIS);
+    }
+
+    @Override
+    public Summary getCycles() {
+        return this.cycles.summary(MetricsRegistry.MILLIS);
+    }
+
+    /**
+     * Registers this registry in the platform MBean server. Registration
+     * problems are logged, as metrics are not essential to the collection.
+     * @param name The object name (e.g.,
+     *  {@code com.rigiresearch.middleware.historian:type=Metrics})
+     */
+    public void register(final String name) {
+        final MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        try {
+            final ObjectName object = new ObjectName(name);
+            if (!server.isRegistered(object)) {
+                server.registerMBean(this, object);
+            }
+        } catch (final JMException exception) {
+            MetricsRegistry.LOGGER.warn(
+                String.format("Could not register the metrics as %s", name),
+                exception
+            );
+        }
+    }
+
+    /**
+     * Unregisters this registry from the platform MBean server, if it was
+     * registered.
+     * @param name The object name used to register it
+     */
+    public void unregister(final String name) {
+        final MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        try {
+            final ObjectName object = new ObjectName(name);
+            if (server.isRegistered(object)) {
+                server.unregisterMBean(object);
+            }
+        } catch (final JMException exception) {
+            MetricsRegistry.LOGGER.warn(
+                String.format("Could not unregister the metrics %s", name),
+                exception
+            );
+        }
+    }
+
+    @Override
+    public String toString() {
+        return String.format(
+            "Metrics (cycles: %s, latencies: %s, errors: %s)",
+            this.getCycles(),
+            this.getLatencies(),
+            this.getErrors()
+        );
+    }
+
+    /**
+     * Finds or creates the histogram of a monitor.
+     * @param histograms The histograms, indexed by monitor name
+     * @param monitor The name of the monitor
+     * @return A non-null histogram
+     */
+    private static Histogram histogram(
+        final ConcurrentMap<String, Histogram> histograms, final String monitor) {
+        return histograms.computeIfAbsent(monitor, key -> new Histogram());
+    }
+
+    /**
+     * Summarizes a set of histograms.
+     * @param histograms The histograms, indexed by monitor name
+     * @param scale The number by which values are divided
+     * @return The summaries, sorted by monitor name
+     */
+    private static Map<String, Summary> summaries(
+        final Map<String, Histogram> histograms, final double scale) {
+        final Map<String, Summary> map = new TreeMap<>();
+        histograms.forEach((key, histogram) -> map.put(key, histogram.summary(scale)));
+        return map;
+    }
+
+}
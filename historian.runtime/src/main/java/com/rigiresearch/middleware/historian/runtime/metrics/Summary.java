@@ -0,0 +1,40 @@
+package com.rigiresearch.middleware.historian.runtime.metrics;
+
+import lombok.Value;
+
+/**
+ * A summary of the values recorded by a {@link Histogram}. It is exported
+ * through JMX as composite data.
+ * @author Miguel Jimenez (miguel@uvic.ca)
+ * @version $Id$
+ * @since 0.1.0
+ */
+@Value
+public class Summary {
+
+    /**
+     * The number of values.
+     */
+    private final long count;
+
+    /**
+     * The mean value.
+     */
+    private final double mean;
+
+    /**
+     * The approximate median.
+     */
+    private final double median;
+
+    /**
+     * The approximate 99th percentile.
+     */
+    private final double percentile99;
+
+    /**
+     * The maximum value.
+     */
+    private final double max;
+
+}
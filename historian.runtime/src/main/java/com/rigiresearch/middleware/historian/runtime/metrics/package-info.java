@@ -0,0 +1,8 @@
+/**
+ * Contains the metrics recorded while collecting data, and their export
+ * through JMX.
+ * @author Miguel Jimenez (miguel@uvic.ca)
+ * @version $Id$
+ * @since 0.1.0
+ */
+package com.rigiresearch.middleware.historian.runtime.metrics;
@@ -0,0 +1,177 @@
+package com.rigiresearch.middleware.historian.runtime;
+
+import it.sauronsoftware.cron4j.Scheduler;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.apache.commons.configuration2.PropertiesConfiguration;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests {@link CollectionScheduler}.
+ * @author Miguel Jimenez (miguel@uvic.ca)
+ * @version $Id$
+ * @since 0.1.0
+ */
+public final class CollectionSchedulerTest {
+
+    /**
+     * The time to wait for a cycle, in seconds.
+     */
+    private static final long TIMEOUT = 5L;
+
+    @Test
+    void testSkip() throws InterruptedException {
+        final CollectionSchedulerTest.Task task = new CollectionSchedulerTest.Task();
+        final CollectionScheduler scheduler = CollectionSchedulerTest.scheduler("skip", task);
+        scheduler.trigger();
+        task.awaitStart();
+        scheduler.trigger();
+        scheduler.trigger();
+        task.release(1);
+        task.awaitEnd(1);
+        Assertions.assertEquals(1, task.count());
+        Assertions.assertEquals(2L, scheduler.skipped());
+        scheduler.stop();
+    }
+
+    @Test
+    void testCoalesce() throws InterruptedException {
+        final CollectionSchedulerTest.Task task = new CollectionSchedulerTest.Task();
+        final CollectionScheduler scheduler =
+            CollectionSchedulerTest.scheduler("coalesce", task);
+        scheduler.trigger();
+        task.awaitStart();
+        scheduler.trigger();
+        scheduler.trigger();
+        task.release(2);
+        task.awaitEnd(2);
+        Assertions.assertEquals(2, task.count());
+        Assertions.assertEquals(0L, scheduler.skipped());
+        scheduler.stop();
+    }
+
+    @Test
+    void testFailure() throws InterruptedException {
+        final CollectionSchedulerTest.Task task = new CollectionSchedulerTest.Task();
+        final AtomicInteger runs = new AtomicInteger();
+        final CollectionScheduler scheduler = CollectionSchedulerTest.scheduler(
+            "coalesce",
+            () -> {
+                task.run();
+                if (runs.incrementAndGet() == 1) {
+                    throw new IllegalArgumentException("Invalid selector");
+                }
+            }
+        );
+        scheduler.trigger();
+        task.awaitStart();
+        scheduler.trigger();
+        task.release(2);
+        task.awaitEnd(2);
+        // The failure is logged and the coalesced cycle still runs
+        Assertions.assertEquals(2, task.count());
+        scheduler.trigger();
+        task.release(1);
+        task.awaitEnd(1);
+        Assertions.assertEquals(3, task.count());
+        scheduler.stop();
+    }
+
+    /**
+     * Creates a scheduler.
+     * @param mode The scheduling mode
+     * @param task The collection cycle
+     * @return A new scheduler
+     */
+    private static CollectionScheduler scheduler(final String mode,
+        final Runnable task) {
+        final PropertiesConfiguration config = new PropertiesConfiguration();
+        config.setProperty("collection.mode", mode);
+        return new CollectionScheduler(config, new Scheduler(), task);
+    }
+
+    /**
+     * A collection cycle that blocks until it is released.
+     * @author Miguel Jimenez (miguel@uvic.ca)
+     * @version $Id$
+     * @since 0.1.0
+     */
+    private static final class Task implements Runnable {
+
+        /**
+         * Signals that the first cycle started.
+         */
+        private final CountDownLatch started = new CountDownLatch(1);
+
+        /**
+         * Permits to finish cycles.
+         */
+        private final Semaphore permits = new Semaphore(0);
+
+        /**
+         * Permits signaling finished cycles.
+         */
+        private final Semaphore finished = new Semaphore(0);
+
+        /**
+         * The number of cycles.
+         */
+        private final AtomicInteger cycles = new AtomicInteger();
+
+        @Override
+        public void run() {
+            this.started.countDown();
+            this.permits.acquireUninterruptibly();
+            this.cycles.incrementAndGet();
+            this.finished.release();
+        }
+
+        /**
+         * Waits for the first cycle to start.
+         * @throws InterruptedException If the thread is interrupted
+         */
+        void awaitStart() throws InterruptedException {
+            Assertions.assertTrue(
+                this.started.await(CollectionSchedulerTest.TIMEOUT, TimeUnit.SECONDS)
+            );
+        }
+
+        /**
+         * Allows a number of cycles to finish.
+         * @param number The number of cycles
+         */
+        void release(final int number) {
+            this.permits.release(number);
+        }
+
+        /**
+         * Waits for a number of cycles to finish, and a little more in case
+         * there are unexpected cycles.
+         * @param number The number of cycles
+         * @throws InterruptedException If the thread is interrupted
+         */
+        void awaitEnd(final int number) throws InterruptedException {
+            Assertions.assertTrue(
+                this.finished.tryAcquire(
+                    number,
+                    CollectionSchedulerTest.TIMEOUT,
+                    TimeUnit.SECONDS
+                )
+            );
+            Thread.sleep(100L);
+        }
+
+        /**
+         * The number of finished cycles.
+         * @return A positive number or zero
+         */
+        int count() {
+            return this.cycles.get();
+        }
+
+    }
+
+}
@@ -0,0 +1,72 @@
+package com.rigiresearch.middleware.historian.runtime;
+
+import com.fasterxml.jackson.core.JsonParseException;
+import java.net.SocketException;
+import java.net.SocketTimeoutException;
+import java.net.UnknownHostException;
+import javax.net.ssl.SSLHandshakeException;
+import org.apache.commons.configuration2.PropertiesConfiguration;
+import org.apache.http.NoHttpResponseException;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests {@link ConcurrencyLimiter}.
+ * @author Miguel Jimenez (miguel@uvic.ca)
+ * @version $Id$
+ * @since 0.1.0
+ */
+public final class ConcurrencyLimiterTest {
+
+    @Test
+    void testAdaptiveLimit() throws InterruptedException {
+        final PropertiesConfiguration config = new PropertiesConfiguration();
+        config.setProperty("http.limit.adaptive", true);
+        final ConcurrencyLimiter limiter = new ConcurrencyLimiter(16, config);
+        final long[] starts = new long[8];
+        for (int idx = 0; idx < starts.length; idx += 1) {
+            starts[idx] = limiter.acquire();
+        }
+        // A burst of failures halves the limit only once
+        for (final long start : starts) {
+            limiter.release(start, true);
+        }
+        Assertions.assertEquals(8, limiter.limit());
+        // Successes raise the limit by about one slot per window
+        for (int idx = 0; idx < 9; idx += 1) {
+            limiter.release(limiter.acquire(), false);
+        }
+        Assertions.assertEquals(9, limiter.limit());
+        Assertions.assertEquals(0, limiter.active());
+    }
+
+    @Test
+    void testOverload() {
+        Assertions.assertTrue(
+            ConcurrencyLimiter.isOverload(new UnexpectedResponseCodeException(503, "503"))
+        );
+        Assertions.assertTrue(
+            ConcurrencyLimiter.isOverload(new SocketException("Connection reset"))
+        );
+        Assertions.assertTrue(
+            ConcurrencyLimiter.isOverload(new SocketTimeoutException("Read timed out"))
+        );
+        Assertions.assertTrue(
+            ConcurrencyLimiter.isOverload(new NoHttpResponseException("No response"))
+        );
+        Assertions.assertFalse(
+            ConcurrencyLimiter.isOverload(new UnexpectedResponseCodeException(404, "404"))
+        );
+        Assertions.assertFalse(
+            ConcurrencyLimiter.isOverload(new UnknownHostException("vcenter"))
+        );
+        Assertions.assertFalse(
+            ConcurrencyLimiter.isOverload(new SSLHandshakeException("handshake"))
+        );
+        Assertions.assertFalse(
+            ConcurrencyLimiter.isOverload(new JsonParseException(null, "malformed"))
+        );
+        Assertions.assertFalse(ConcurrencyLimiter.isOverload(null));
+    }
+
+}
@@ -0,0 +1,54 @@
+package com.rigiresearch.middleware.historian.runtime;
+
+import java.net.URI;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests {@link HttpClientPool}.
+ * @author Miguel Jimenez (miguel@uvic.ca)
+ * @version $Id$
+ * @since 0.1.0
+ */
+public final class HttpClientPoolTest {
+
+    @Test
+    void testImplicitPorts() {
+        Assertions.assertEquals(
+            HttpClientPool.key(URI.create("https://vcenter:443/rest/vcenter/vm")),
+            HttpClientPool.key(URI.create("https://VCenter/rest/vcenter/host"))
+        );
+        Assertions.assertEquals(
+            "http://vcenter:80",
+            HttpClientPool.key(URI.create("http://vcenter/rest"))
+        );
+        Assertions.assertNotEquals(
+            HttpClientPool.key(URI.create("https://vcenter/rest")),
+            HttpClientPool.key(URI.create("https://vcenter:8443/rest"))
+        );
+    }
+
+    @Test
+    void testSharedClients() {
+        try (HttpClientPool pool = new HttpClientPool()) {
+            Assertions.assertSame(
+                pool.client(URI.create("https://vcenter/rest/vcenter/vm")),
+                pool.client(URI.create("https://vcenter:443/rest/vcenter/host"))
+            );
+        }
+    }
+
+    @Test
+    void testSharedLimits() {
+        try (HttpClientPool pool = new HttpClientPool()) {
+            final URI implicit = URI.create("https://vcenter/rest/vcenter/vm");
+            final URI explicit = URI.create("https://vcenter:443/rest/vcenter/host");
+            Assertions.assertSame(pool.bucket(implicit), pool.bucket(explicit));
+            Assertions.assertSame(
+                pool.blockingLimiter(implicit),
+                pool.blockingLimiter(explicit)
+            );
+        }
+    }
+
+}
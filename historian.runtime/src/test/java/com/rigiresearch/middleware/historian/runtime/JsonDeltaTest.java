@@ -0,0 +1,66 @@
+package com.rigiresearch.middleware.historian.runtime;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests {@link JsonDelta}.
+ * @author Miguel Jimenez (miguel@uvic.ca)
+ * @version $Id$
+ * @since 0.1.0
+ */
+public final class JsonDeltaTest {
+
+    @Test
+    void testChanges() {
+        final Map<String, JsonNode> previous = new HashMap<>();
+        previous.put("vm-1", JsonDeltaTest.vm("vm-1", 2));
+        previous.put("vm-2", JsonDeltaTest.vm("vm-2", 2));
+        previous.put("vm-3", JsonDeltaTest.vm("vm-3", 2));
+        final Map<String, JsonNode> current = new HashMap<>();
+        current.put("vm-1", JsonDeltaTest.vm("vm-1", 2));
+        current.put("vm-2", JsonDeltaTest.vm("vm-2", 4));
+        current.put("vm-4", JsonDeltaTest.vm("vm-4", 1));
+        final JsonDelta delta = new JsonDelta(previous, current);
+        Assertions.assertFalse(delta.isEmpty());
+        Assertions.assertEquals(
+            Collections.singletonMap("vm-4", JsonDeltaTest.vm("vm-4", 1)),
+            delta.getAdded()
+        );
+        Assertions.assertEquals(
+            Collections.singletonMap("vm-2", JsonDeltaTest.vm("vm-2", 4)),
+            delta.getChanged()
+        );
+        Assertions.assertEquals(
+            Collections.singletonMap("vm-3", JsonDeltaTest.vm("vm-3", 2)),
+            delta.getRemoved()
+        );
+    }
+
+    @Test
+    void testNoChanges() {
+        final Map<String, JsonNode> previous = new HashMap<>();
+        previous.put("vm-1", JsonDeltaTest.vm("vm-1", 2));
+        final Map<String, JsonNode> current = new HashMap<>();
+        current.put("vm-1", JsonDeltaTest.vm("vm-1", 2));
+        Assertions.assertTrue(new JsonDelta(previous, current).isEmpty());
+    }
+
+    /**
+     * Creates a Json object resembling a virtual machine.
+     * @param identifier The virtual machine's identifier
+     * @param cpus The number of CPUs
+     * @return A non-null Json object
+     */
+    private static JsonNode vm(final String identifier, final int cpus) {
+        return JsonNodeFactory.instance.objectNode()
+            .put("vm", identifier)
+            .put("cpu_count", cpus);
+    }
+
+}
@@ -0,0 +1,45 @@
+package com.rigiresearch.middleware.historian.runtime;
+
+import java.util.Collections;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests {@link RefreshSchedule}.
+ * @author Miguel Jimenez (miguel@uvic.ca)
+ * @version $Id$
+ * @since 0.1.0
+ */
+public final class RefreshScheduleTest {
+
+    @Test
+    void testDeadlines() {
+        final RefreshSchedule schedule = new RefreshSchedule();
+        schedule.advance(0L);
+        Assertions.assertTrue(schedule.isDue("datacenter"));
+        schedule.collected("datacenter", 60L);
+        schedule.collected("vm", 10L);
+        schedule.advance(10_000L);
+        Assertions.assertFalse(schedule.isDue("datacenter"));
+        Assertions.assertTrue(schedule.isDue("vm"));
+        schedule.collected("vm", 10L);
+        schedule.advance(60_000L);
+        Assertions.assertTrue(schedule.isDue("datacenter"));
+        Assertions.assertTrue(schedule.isDue("vm"));
+        Assertions.assertEquals(0, schedule.size());
+    }
+
+    @Test
+    void testForgottenBranches() {
+        final RefreshSchedule schedule = new RefreshSchedule();
+        schedule.advance(0L);
+        schedule.collected("host", 60L);
+        schedule.retain(Collections.emptySet());
+        Assertions.assertTrue(schedule.isDue("host"));
+        schedule.advance(30_000L);
+        schedule.collected("host", 60L);
+        schedule.advance(60_000L);
+        Assertions.assertFalse(schedule.isDue("host"));
+    }
+
+}
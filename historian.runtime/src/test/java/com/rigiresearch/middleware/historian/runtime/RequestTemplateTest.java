@@ -0,0 +1,47 @@
+package com.rigiresearch.middleware.historian.runtime;
+
+import java.net.MalformedURLException;
+import java.net.URI;
+import java.util.Arrays;
+import java.util.Collections;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests {@link RequestTemplate}.
+ * @author Miguel Jimenez (miguel@uvic.ca)
+ * @version $Id$
+ * @since 0.1.0
+ */
+public final class RequestTemplateTest {
+
+    @Test
+    void testBinding() throws MalformedURLException {
+        final RequestTemplate template = new RequestTemplate(
+            "http://localhost/vcenter/vm/{vm}/hardware/{disk}"
+        );
+        Assertions.assertEquals(
+            URI.create(
+                "http://localhost/vcenter/vm/vm-1/hardware/%7Bdisk%7D?filter.names=a&filter.names=b"
+            ),
+            template.uri(
+                Arrays.asList(
+                    new Input("vm", "vm-1", true, Input.Location.PATH),
+                    new Input("filter.names", "a,b", false, Input.Location.QUERY),
+                    new Input("filter.hosts", null, false, Input.Location.QUERY),
+                    new Input("token", "1", true, Input.Location.HEADER)
+                )
+            )
+        );
+    }
+
+    @Test
+    void testWithoutParameters() throws MalformedURLException {
+        Assertions.assertEquals(
+            URI.create("http://localhost/vcenter/host"),
+            new RequestTemplate("http://localhost/vcenter/host")
+                .uri(Collections.emptyList())
+        );
+    }
+
+}
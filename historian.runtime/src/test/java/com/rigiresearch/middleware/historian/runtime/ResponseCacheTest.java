@@ -0,0 +1,50 @@
+package com.rigiresearch.middleware.historian.runtime;
+
+import java.net.URI;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests {@link ResponseCache}.
+ * @author Miguel Jimenez (miguel@uvic.ca)
+ * @version $Id$
+ * @since 0.1.0
+ */
+public final class ResponseCacheTest {
+
+    @Test
+    void testOnlyWithValidators() {
+        final ResponseCache cache = new ResponseCache(2);
+        final URI first = URI.create("http://localhost/vcenter/vm");
+        final URI second = URI.create("http://localhost/vcenter/host");
+        cache.store(first, new Revision("[]", "\"1\"", null));
+        cache.store(second, new Revision("[]", null, null));
+        Assertions.assertEquals("[]", cache.revision(first).getContent());
+        Assertions.assertNull(cache.revision(second));
+        Assertions.assertEquals(1L, cache.stores());
+    }
+
+    @Test
+    void testEviction() {
+        final ResponseCache cache = new ResponseCache(2);
+        final URI first = URI.create("http://localhost/vcenter/vm?filter=1");
+        final URI second = URI.create("http://localhost/vcenter/vm?filter=2");
+        final URI third = URI.create("http://localhost/vcenter/vm?filter=3");
+        cache.store(first, new Revision("1", "\"1\"", null));
+        cache.store(second, new Revision("2", "\"2\"", null));
+        cache.revision(first);
+        cache.store(third, new Revision("3", null, "Sat, 17 Oct 2026 07:00:00 GMT"));
+        Assertions.assertEquals(2, cache.size());
+        Assertions.assertNotNull(cache.revision(first));
+        Assertions.assertNull(cache.revision(second));
+    }
+
+    @Test
+    void testDisabled() {
+        final ResponseCache cache = new ResponseCache(0);
+        final URI uri = URI.create("http://localhost/vcenter/vm");
+        cache.store(uri, new Revision("[]", "\"1\"", null));
+        Assertions.assertNull(cache.revision(uri));
+    }
+
+}
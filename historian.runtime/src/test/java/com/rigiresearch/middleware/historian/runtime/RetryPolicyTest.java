@@ -0,0 +1,113 @@
+package com.rigiresearch.middleware.historian.runtime;
+
+import com.fasterxml.jackson.core.JsonParseException;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.ConnectException;
+import java.net.SocketException;
+import java.net.SocketTimeoutException;
+import java.net.UnknownHostException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.net.ssl.SSLHandshakeException;
+import org.apache.commons.configuration2.PropertiesConfiguration;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests {@link RetryPolicy}.
+ * @author Miguel Jimenez (miguel@uvic.ca)
+ * @version $Id$
+ * @since 0.1.0
+ */
+public final class RetryPolicyTest {
+
+    @Test
+    void testTransientFailures() {
+        Assertions.assertTrue(
+            RetryPolicy.isTransient(new SocketException("Connection reset"))
+        );
+        Assertions.assertTrue(
+            RetryPolicy.isTransient(new SocketTimeoutException("Read timed out"))
+        );
+        Assertions.assertTrue(
+            RetryPolicy.isTransient(new ConnectException("Connection refused"))
+        );
+        Assertions.assertTrue(
+            RetryPolicy.isTransient(new UnexpectedResponseCodeException(503, "busy"))
+        );
+        Assertions.assertTrue(
+            RetryPolicy.isTransient(
+                new CompletionException(new UnexpectedResponseCodeException(429, "slow"))
+            )
+        );
+        Assertions.assertFalse(
+            RetryPolicy.isTransient(new UnexpectedResponseCodeException(404, "gone"))
+        );
+        Assertions.assertFalse(RetryPolicy.isTransient(new InterruptedIOException()));
+    }
+
+    @Test
+    void testDeterministicFailures() {
+        final PropertiesConfiguration config = new PropertiesConfiguration();
+        config.setProperty("http.retry.attempts", 3);
+        final RetryPolicy policy = new RetryPolicy(config, null);
+        Assertions.assertFalse(
+            policy.shouldRetry(new JsonParseException(null, "malformed"), 0)
+        );
+        Assertions.assertFalse(
+            policy.shouldRetry(new UnknownHostException("vcenter"), 0)
+        );
+        Assertions.assertFalse(
+            policy.shouldRetry(new SSLHandshakeException("handshake"), 0)
+        );
+        Assertions.assertFalse(policy.shouldRetry(new IOException("closed"), 0));
+    }
+
+    @Test
+    void testDelays() {
+        final PropertiesConfiguration config = new PropertiesConfiguration();
+        config.setProperty("http.retry.attempts", 2);
+        config.setProperty("http.retry.backoff", 100L);
+        config.setProperty("http.retry.max-backoff", 250L);
+        final RetryPolicy policy = new RetryPolicy(config, null);
+        for (int idx = 0; idx < 100; idx += 1) {
+            Assertions.assertTrue(policy.delay(0) <= 100L);
+            Assertions.assertTrue(policy.delay(5) <= 250L);
+        }
+        final SocketException error = new SocketException("Connection reset");
+        Assertions.assertTrue(policy.shouldRetry(error, 1));
+        Assertions.assertFalse(policy.shouldRetry(error, 2));
+    }
+
+    @Test
+    void testAsynchronousRetries() throws Exception {
+        final PropertiesConfiguration config = new PropertiesConfiguration();
+        config.setProperty("http.retry.attempts", 3);
+        config.setProperty("http.retry.backoff", 1L);
+        final ScheduledExecutorService timer =
+            Executors.newSingleThreadScheduledExecutor();
+        try {
+            final AtomicInteger calls = new AtomicInteger();
+            final CompletableFuture<String> future = new RetryPolicy(config, timer)
+                .retry(() -> {
+                    final CompletableFuture<String> attempt = new CompletableFuture<>();
+                    if (calls.incrementAndGet() < 3) {
+                        attempt.completeExceptionally(new SocketException("Connection reset"));
+                    } else {
+                        attempt.complete("ok");
+                    }
+                    return attempt;
+                });
+            Assertions.assertEquals("ok", future.get(1L, TimeUnit.SECONDS));
+            Assertions.assertEquals(3, calls.get());
+        } finally {
+            timer.shutdownNow();
+        }
+    }
+
+}
@@ -0,0 +1,35 @@
+package com.rigiresearch.middleware.historian.runtime;
+
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests {@link TokenBucket}.
+ * @author Miguel Jimenez (miguel@uvic.ca)
+ * @version $Id$
+ * @since 0.1.0
+ */
+public final class TokenBucketTest {
+
+    @Test
+    void testReservations() {
+        final TokenBucket bucket = new TokenBucket(10.0, 2, null);
+        Assertions.assertEquals(0L, bucket.reserve());
+        Assertions.assertEquals(0L, bucket.reserve());
+        // The third request waits for a token (100 ms), the fourth for two
+        final long third = bucket.reserve();
+        final long fourth = bucket.reserve();
+        Assertions.assertTrue(third > TimeUnit.MILLISECONDS.toNanos(90L));
+        Assertions.assertTrue(fourth > TimeUnit.MILLISECONDS.toNanos(190L));
+    }
+
+    @Test
+    void testDisabled() {
+        final TokenBucket bucket = new TokenBucket(0.0, 1, null);
+        for (int idx = 0; idx < 100; idx += 1) {
+            Assertions.assertEquals(0L, bucket.reserve());
+        }
+    }
+
+}
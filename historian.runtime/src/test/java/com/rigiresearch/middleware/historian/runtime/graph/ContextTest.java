@@ -0,0 +1,57 @@
+package com.rigiresearch.middleware.historian.runtime.graph;
+
+import java.util.HashMap;
+import java.util.Map;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests {@link Context}.
+ * @author Miguel Jimenez (miguel@uvic.ca)
+ * @version $Id$
+ * @since 0.1.0
+ */
+public final class ContextTest {
+
+    @Test
+    void testInheritance() {
+        final Context parent = new Context();
+        parent.put("token", "1");
+        final Context child = parent.child();
+        child.put("vm", "vm-1");
+        child.put("token", "2");
+        Assertions.assertEquals("vm-1", child.get("vm"));
+        Assertions.assertEquals("1", child.get("token"));
+        Assertions.assertNull(parent.get("vm"));
+        parent.put("token", "3");
+        Assertions.assertEquals("3", child.get("token"));
+        final Map<String, Object> expected = new HashMap<>();
+        expected.put("vm", "vm-1");
+        expected.put("token", "3");
+        Assertions.assertEquals(expected, child.asMap());
+    }
+
+    @Test
+    void testUpdate() {
+        final Context context = new Context();
+        Assertions.assertNull(context.put("vm", "vm-1"));
+        Assertions.assertEquals("vm-1", context.put("vm", "vm-2"));
+        Assertions.assertEquals("vm-2", context.get("vm"));
+        Assertions.assertEquals(1, context.asMap().size());
+    }
+
+    @Test
+    void testIndexes() {
+        final Context parent = new Context();
+        parent.put("datacenter", "dc-1");
+        final Context child = parent.child();
+        child.put("cluster", "cl-1");
+        Assertions.assertEquals("dc-1", child.get(Names.index("datacenter")));
+        Assertions.assertEquals("cl-1", child.get(Names.index("cluster")));
+        Assertions.assertNull(parent.get(Names.index("cluster")));
+        Assertions.assertNull(child.get(Names.index("unset")));
+        Assertions.assertNull(child.get("unknown"));
+        Assertions.assertEquals(-1, Names.find("unknown"));
+    }
+
+}
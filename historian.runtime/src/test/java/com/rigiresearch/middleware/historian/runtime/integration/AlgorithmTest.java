@@ -1,20 +1,32 @@
 package com.rigiresearch.middleware.historian.runtime.integration;
 
+import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.rigiresearch.middleware.graph.Graph;
 import com.rigiresearch.middleware.graph.GraphParser;
+import com.rigiresearch.middleware.graph.Node;
 import com.rigiresearch.middleware.historian.runtime.ForkAndCollectAlgorithm;
+import com.rigiresearch.middleware.historian.runtime.HttpClientPool;
+import com.rigiresearch.middleware.historian.runtime.metrics.MetricsRegistry;
+import com.rigiresearch.middleware.historian.runtime.metrics.Summary;
 import java.io.File;
 import java.io.IOException;
 import java.net.URISyntaxException;
 import java.nio.charset.Charset;
 import java.nio.file.Files;
 import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import javax.xml.bind.JAXBException;
 import org.apache.commons.configuration2.Configuration;
 import org.apache.commons.configuration2.FileBasedConfiguration;
 import org.apache.commons.configuration2.PropertiesConfiguration;
 import org.apache.commons.configuration2.builder.FileBasedConfigurationBuilder;
 import org.apache.commons.configuration2.builder.fluent.Parameters;
 import org.apache.commons.configuration2.convert.DefaultListDelimiterHandler;
+import org.apache.commons.configuration2.ex.ConfigurationException;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.CsvSource;
@@ -37,6 +49,16 @@ public final class AlgorithmTest {
      */
     private static final String FORMAT = "%s/%s";
 
+    /**
+     * The time to wait for an asynchronous cycle, in seconds.
+     */
+    private static final long TIMEOUT = 30L;
+
+    /**
+     * The test case with dependent monitors.
+     */
+    private static final String SIMPLE = "simple";
+
     /**
      * A mock server that runs on a Docker container.
      */
@@ -47,38 +69,9 @@ public final class AlgorithmTest {
     @CsvSource({"empty", "nodeps", "simple"})
     @ParameterizedTest
     void testConfiguration(final String path) throws Exception {
-        final Parameters params = new Parameters();
-        final Configuration config =
-            new FileBasedConfigurationBuilder<FileBasedConfiguration>(
-                PropertiesConfiguration.class
-            ).configure(
-                params.properties()
-                    .setListDelimiterHandler(new DefaultListDelimiterHandler(','))
-                    .setFileName(
-                        String.format(
-                            AlgorithmTest.FORMAT,
-                            path,
-                            "default.properties"
-                        )
-                    )
-            ).getConfiguration();
+        final Configuration config = AlgorithmTest.configuration(path);
         final ForkAndCollectAlgorithm algorithm = new ForkAndCollectAlgorithm(
-            new GraphParser()
-                .withBindings("bindings.xml")
-                .instance(
-                    new File(
-                        Thread.currentThread()
-                            .getContextClassLoader()
-                            .getResource(
-                                String.format(
-                                    AlgorithmTest.FORMAT,
-                                    path,
-                                    "graph.xml"
-                                )
-                            )
-                            .getFile()
-                    )
-                ),
+            AlgorithmTest.graph(path),
             config
         );
         final ObjectMapper mapper = new ObjectMapper();
@@ -89,6 +82,254 @@ public final class AlgorithmTest {
         );
     }
 
+    @CsvSource({"empty", "nodeps", "simple"})
+    @ParameterizedTest
+    void testParallelCollection(final String path) throws Exception {
+        final Configuration config = AlgorithmTest.configuration(path);
+        final Map<String, JsonNode> contents;
+        final JsonNode sequential;
+        try (ForkAndCollectAlgorithm algorithm =
+            new ForkAndCollectAlgorithm(AlgorithmTest.graph(path), config)) {
+            sequential = algorithm.data();
+            contents = algorithm.getContents();
+        }
+        config.setProperty("fork.parallelism", 4);
+        try (ForkAndCollectAlgorithm algorithm =
+            new ForkAndCollectAlgorithm(AlgorithmTest.graph(path), config)) {
+            Assertions.assertEquals(
+                sequential,
+                algorithm.data(),
+                "The parallel mode should produce the same output"
+            );
+            Assertions.assertEquals(
+                new ArrayList<>(contents.keySet()),
+                new ArrayList<>(algorithm.getContents().keySet()),
+                "The parallel mode should release the branches in the same order"
+            );
+        }
+        Assertions.assertEquals(
+            new ObjectMapper().readTree(this.resourceContent(path, "output.json")),
+            sequential,
+            "Incorrect output"
+        );
+    }
+
+    @CsvSource({"empty", "nodeps", "simple"})
+    @ParameterizedTest
+    void testAsynchronousCollection(final String path) throws Exception {
+        final Configuration config = AlgorithmTest.configuration(path);
+        try (ForkAndCollectAlgorithm algorithm =
+            new ForkAndCollectAlgorithm(AlgorithmTest.graph(path), config)) {
+            final JsonNode asynchronous = algorithm.dataAsync()
+                .get(AlgorithmTest.TIMEOUT, TimeUnit.SECONDS);
+            Assertions.assertEquals(
+                algorithm.data(),
+                asynchronous,
+                "The asynchronous mode should produce the same output"
+            );
+            Assertions.assertEquals(
+                new ObjectMapper().readTree(this.resourceContent(path, "output.json")),
+                asynchronous,
+                "Incorrect output"
+            );
+        }
+    }
+
+    @CsvSource({"false", "true"})
+    @ParameterizedTest
+    void testConditionalReuse(final boolean async) throws Exception {
+        final Configuration config = AlgorithmTest.configuration(AlgorithmTest.SIMPLE);
+        config.setProperty("fork.conditional", true);
+        config.setProperty("fork.conditional.reuse", 2);
+        final MetricsRegistry metrics = new MetricsRegistry();
+        final JsonNode expected = new ObjectMapper()
+            .readTree(this.resourceContent(AlgorithmTest.SIMPLE, "output.json"));
+        try (HttpClientPool pool = new HttpClientPool(config, metrics);
+            ForkAndCollectAlgorithm algorithm = new ForkAndCollectAlgorithm(
+                AlgorithmTest.graph(AlgorithmTest.SIMPLE),
+                config,
+                pool
+            )) {
+            final long[] requests = new long[5];
+            long previous = 0L;
+            Map<String, JsonNode> contents = Collections.emptyMap();
+            for (int cycle = 0; cycle < requests.length; cycle += 1) {
+                Assertions.assertEquals(
+                    expected,
+                    AlgorithmTest.data(algorithm, async),
+                    "Incorrect output"
+                );
+                final long total = AlgorithmTest.requests(metrics);
+                requests[cycle] = total - previous;
+                previous = total;
+                if (cycle > 0) {
+                    Assertions.assertEquals(
+                        contents,
+                        algorithm.getContents(),
+                        "The replayed descendants should be released"
+                    );
+                }
+                contents = algorithm.getContents();
+            }
+            // The three roots are revalidated in every cycle, whereas the six
+            // dependent requests are replayed for two cycles and then issued
+            // again
+            Assertions.assertArrayEquals(
+                new long[] {9L, 3L, 3L, 9L, 3L},
+                requests,
+                "Unchanged subtrees should be reused for two cycles"
+            );
+        }
+    }
+
+    @CsvSource({"false", "true"})
+    @ParameterizedTest
+    void testRefreshInterval(final boolean async) throws Exception {
+        final String path = "refresh";
+        final Configuration config = AlgorithmTest.configuration(path);
+        final MetricsRegistry metrics = new MetricsRegistry();
+        final JsonNode expected = new ObjectMapper()
+            .readTree(this.resourceContent(path, "output.json"));
+        try (HttpClientPool pool = new HttpClientPool(config, metrics);
+            ForkAndCollectAlgorithm algorithm = new ForkAndCollectAlgorithm(
+                AlgorithmTest.graph(path),
+                config,
+                pool
+            )) {
+            final long[] requests = new long[3];
+            long previous = 0L;
+            for (int cycle = 0; cycle < requests.length; cycle += 1) {
+                Assertions.assertEquals(
+                    expected,
+                    AlgorithmTest.data(algorithm, async),
+                    "Incorrect output"
+                );
+                final long total = AlgorithmTest.requests(metrics);
+                requests[cycle] = total - previous;
+                previous = total;
+            }
+            // The datacenters and hosts are not collected again within their
+            // refresh interval, but the branches forked from them are
+            Assertions.assertArrayEquals(
+                new long[] {9L, 7L, 7L},
+                requests,
+                "Branches should not be collected before their refresh interval"
+            );
+        }
+    }
+
+    @CsvSource({"false", "true"})
+    @ParameterizedTest
+    void testPartialResult(final boolean async) throws Exception {
+        final Configuration config = AlgorithmTest.configuration(AlgorithmTest.SIMPLE);
+        config.setProperty("http.retry.attempts", 0);
+        config.setProperty("listVcenterHost.url", "http://vcenter.invalid/vcenter/host");
+        try (ForkAndCollectAlgorithm algorithm = new ForkAndCollectAlgorithm(
+            AlgorithmTest.graph(AlgorithmTest.SIMPLE),
+            config
+        )) {
+            Assertions.assertThrows(
+                Exception.class,
+                () -> AlgorithmTest.data(algorithm, async),
+                "A failed branch should fail the cycle by default"
+            );
+        }
+        config.setProperty("fork.partial", true);
+        final JsonNode expected;
+        try (ForkAndCollectAlgorithm algorithm = new ForkAndCollectAlgorithm(
+            AlgorithmTest.graph(AlgorithmTest.SIMPLE),
+            config
+        )) {
+            expected = algorithm.data();
+        }
+        try (ForkAndCollectAlgorithm algorithm = new ForkAndCollectAlgorithm(
+            AlgorithmTest.graph(AlgorithmTest.SIMPLE),
+            config
+        )) {
+            final JsonNode partial = AlgorithmTest.data(algorithm, async);
+            Assertions.assertEquals(
+                expected,
+                partial,
+                "Both modes should leave the failed subtree out"
+            );
+            Assertions.assertNotEquals(
+                new ObjectMapper()
+                    .readTree(this.resourceContent(AlgorithmTest.SIMPLE, "output.json")),
+                partial,
+                "The failed subtree should be left out"
+            );
+        }
+    }
+
+    /**
+     * Runs a collection cycle.
+     * @param algorithm The algorithm
+     * @param async Whether to use the asynchronous mode
+     * @return The collected content
+     * @throws Exception If the cycle fails
+     */
+    private static JsonNode data(final ForkAndCollectAlgorithm algorithm,
+        final boolean async) throws Exception {
+        final JsonNode data;
+        if (async) {
+            data = algorithm.dataAsync().get(AlgorithmTest.TIMEOUT, TimeUnit.SECONDS);
+        } else {
+            data = algorithm.data();
+        }
+        return data;
+    }
+
+    /**
+     * Loads the configuration properties of a test case.
+     * @param path The test case's directory
+     * @return The configuration properties
+     * @throws ConfigurationException If the properties cannot be loaded
+     */
+    private static Configuration configuration(final String path)
+        throws ConfigurationException {
+        return new FileBasedConfigurationBuilder<FileBasedConfiguration>(
+            PropertiesConfiguration.class
+        ).configure(
+            new Parameters().properties()
+                .setListDelimiterHandler(new DefaultListDelimiterHandler(','))
+                .setFileName(
+                    String.format(AlgorithmTest.FORMAT, path, "default.properties")
+                )
+        ).getConfiguration();
+    }
+
+    /**
+     * Loads the graph of a test case.
+     * @param path The test case's directory
+     * @return The graph
+     * @throws JAXBException If the graph cannot be parsed
+     */
+    private static Graph<Node> graph(final String path) throws JAXBException {
+        return new GraphParser()
+            .withBindings("bindings.xml")
+            .instance(
+                new File(
+                    Thread.currentThread()
+                        .getContextClassLoader()
+                        .getResource(String.format(AlgorithmTest.FORMAT, path, "graph.xml"))
+                        .getFile()
+                )
+            );
+    }
+
+    /**
+     * Counts the requests recorded so far.
+     * @param metrics The metrics registry
+     * @return The number of requests across monitors
+     */
+    private static long requests(final MetricsRegistry metrics) {
+        return metrics.getLatencies()
+            .values()
+            .stream()
+            .mapToLong(Summary::getCount)
+            .sum();
+    }
+
     /**
      * Reads the content of a resource.
      * @param path The file path
@@ -0,0 +1,91 @@
+package com.rigiresearch.middleware.historian.runtime.integration;
+
+import com.rigiresearch.middleware.graph.GraphParser;
+import com.rigiresearch.middleware.historian.runtime.ForkAndCollectAlgorithm;
+import java.io.File;
+import org.apache.commons.configuration2.Configuration;
+import org.apache.commons.configuration2.FileBasedConfiguration;
+import org.apache.commons.configuration2.PropertiesConfiguration;
+import org.apache.commons.configuration2.builder.FileBasedConfigurationBuilder;
+import org.apache.commons.configuration2.builder.fluent.Parameters;
+import org.apache.commons.configuration2.convert.DefaultListDelimiterHandler;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.testcontainers.containers.GenericContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+/**
+ * Runs {@link ForkAndCollectAlgorithm} for many collection cycles to make
+ * sure that the state kept across cycles does not grow. Rather than measuring
+ * the heap, which depends on the garbage collector, it checks the structures
+ * that could accumulate forked branches: the graph, the forked branches of
+ * the current cycle, and the collected contents.
+ * @author Miguel Jimenez (miguel@uvic.ca)
+ * @version $Id$
+ * @since 0.1.0
+ */
+@Testcontainers
+@SuppressWarnings("checkstyle:ClassDataAbstractionCoupling")
+public final class SoakTest {
+
+    /**
+     * The number of collection cycles.
+     */
+    private static final int CYCLES = 20;
+
+    /**
+     * A mock server that runs on a Docker container.
+     */
+    @Container
+    @SuppressWarnings("PMD.UnusedPrivateField")
+    private final GenericContainer container = new ApiMockServer().setup();
+
+    @Test
+    void testBoundedState() throws Exception {
+        final Configuration config =
+            new FileBasedConfigurationBuilder<FileBasedConfiguration>(
+                PropertiesConfiguration.class
+            ).configure(
+                new Parameters().properties()
+                    .setListDelimiterHandler(new DefaultListDelimiterHandler(','))
+                    .setFileName("simple/default.properties")
+            ).getConfiguration();
+        try (ForkAndCollectAlgorithm algorithm = new ForkAndCollectAlgorithm(
+            new GraphParser()
+                .withBindings("bindings.xml")
+                .instance(
+                    new File(
+                        Thread.currentThread()
+                            .getContextClassLoader()
+                            .getResource("simple/graph.xml")
+                            .getFile()
+                    )
+                ),
+            config
+        )) {
+            final int nodes = algorithm.getGraph().getNodes().size();
+            algorithm.data();
+            final int contents = algorithm.getContents().size();
+            for (int cycle = 1; cycle < SoakTest.CYCLES; cycle += 1) {
+                algorithm.data();
+                Assertions.assertEquals(
+                    nodes,
+                    algorithm.getGraph().getNodes().size(),
+                    "Forked branches should not be added to the graph"
+                );
+                Assertions.assertEquals(
+                    0,
+                    algorithm.forked(),
+                    "Forked branches should be discarded after each cycle"
+                );
+                Assertions.assertEquals(
+                    contents,
+                    algorithm.getContents().size(),
+                    "The contents should not accumulate across cycles"
+                );
+            }
+        }
+    }
+
+}
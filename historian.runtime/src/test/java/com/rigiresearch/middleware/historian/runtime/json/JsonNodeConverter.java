@@ -0,0 +1,115 @@
+package com.rigiresearch.middleware.historian.runtime.json;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.Map;
+
+/**
+ * Converts Jackson 1 (codehaus) trees into equivalent Jackson 2 trees by
+ * walking them, that is, without serializing and parsing them again.
+ * @author Miguel Jimenez (miguel@uvic.ca)
+ * @version $Id$
+ * @since 0.1.0
+ */
+public final class JsonNodeConverter {
+
+    /**
+     * The factory of Jackson 2 nodes.
+     */
+    private final JsonNodeFactory factory;
+
+    /**
+     * Empty constructor.
+     */
+    public JsonNodeConverter() {
+        this(JsonNodeFactory.instance);
+    }
+
+    /**
+     * Default constructor.
+     * @param factory The factory of Jackson 2 nodes
+     */
+    public JsonNodeConverter(final JsonNodeFactory factory) {
+        this.factory = factory;
+    }
+
+    /**
+     * Converts a Jackson 1 node. Missing nodes are converted into null nodes,
+     * as they are serialized by Jackson 1.
+     * @param node The node to convert (possibly null)
+     * @return A non-null, equivalent Jackson 2 node
+     * @throws IOException If a binary node cannot be read
+     */
+    @SuppressWarnings("PMD.CyclomaticComplexity")
+    public JsonNode convert(final org.codehaus.jackson.JsonNode node)
+        throws IOException {
+        final JsonNode result;
+        if (node == null || node.isNull() || node.isMissingNode()) {
+            result = this.factory.nullNode();
+        } else if (node.isObject()) {
+            result = this.object(node);
+        } else if (node.isArray()) {
+            result = this.array(node);
+        } else if (node.isTextual()) {
+            result = this.factory.textNode(node.getTextValue());
+        } else if (node.isBoolean()) {
+            result = this.factory.booleanNode(node.getBooleanValue());
+        } else if (node.isInt()) {
+            result = this.factory.numberNode(node.getIntValue());
+        } else if (node.isLong()) {
+            result = this.factory.numberNode(node.getLongValue());
+        } else if (node.isBigInteger()) {
+            result = this.factory.numberNode(node.getBigIntegerValue());
+        } else if (node.isBigDecimal()) {
+            result = this.factory.numberNode(node.getDecimalValue());
+        } else if (node.isDouble()) {
+            result = this.factory.numberNode(node.getDoubleValue());
+        } else if (node.isBinary()) {
+            result = this.factory.binaryNode(node.getBinaryValue());
+        } else {
+            result = this.factory.pojoNode(
+                ((org.codehaus.jackson.node.POJONode) node).getPojo()
+            );
+        }
+        return result;
+    }
+
+    /**
+     * Converts an object node.
+     * @param node The node to convert
+     * @return A non-null object node
+     * @throws IOException See {@link #convert(org.codehaus.jackson.JsonNode)}
+     */
+    private ObjectNode object(final org.codehaus.jackson.JsonNode node)
+        throws IOException {
+        final ObjectNode object = this.factory.objectNode();
+        final Iterator<Map.Entry<String, org.codehaus.jackson.JsonNode>> fields =
+            node.getFields();
+        while (fields.hasNext()) {
+            final Map.Entry<String, org.codehaus.jackson.JsonNode> field =
+                fields.next();
+            object.set(field.getKey(), this.convert(field.getValue()));
+        }
+        return object;
+    }
+
+    /**
+     * Converts an array node.
+     * @param node The node to convert
+     * @return A non-null array node
+     * @throws IOException See {@link #convert(org.codehaus.jackson.JsonNode)}
+     */
+    private ArrayNode array(final org.codehaus.jackson.JsonNode node)
+        throws IOException {
+        final ArrayNode array = this.factory.arrayNode();
+        for (final org.codehaus.jackson.JsonNode element : node) {
+            array.add(this.convert(element));
+        }
+        return array;
+    }
+
+}
@@ -0,0 +1,154 @@
+package com.rigiresearch.middleware.historian.runtime.json;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.vmware.xpath.json.JsonXpath;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+import java.util.stream.Collectors;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+import org.junit.jupiter.params.provider.ValueSource;
+
+/**
+ * Tests {@link JsonSelector}, comparing its results against the original
+ * implementation (vmware/xpath-for-json).
+ * @author Miguel Jimenez (miguel@uvic.ca)
+ * @version $Id$
+ * @since 0.1.0
+ */
+public final class JsonSelectorTest {
+
+    /**
+     * A Json document resembling vCenter responses.
+     */
+    private static final String VMS = "selectors/vms.json";
+
+    /**
+     * A JSON mapper.
+     */
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    /**
+     * A JSON mapper for the original implementation.
+     */
+    private static final org.codehaus.jackson.map.ObjectMapper LEGACY =
+        new org.codehaus.jackson.map.ObjectMapper();
+
+    @CsvSource({
+        "selectors/vms.json, //vm",
+        "selectors/vms.json, //host",
+        "selectors/vms.json, //datacenter",
+        "selectors/vms.json, //folder",
+        "selectors/vms.json, //resource_pool",
+        "selectors/vms.json, //value",
+        "selectors/vms.json, value",
+        "selectors/vms.json, /value/name",
+        "selectors/vms.json, //disks/value/label",
+        "selectors/vms.json, //missing",
+        "vcenter.json, //name",
+        "vcenter.json, //tags",
+        "vcenter.json, /info/title"
+    })
+    @ParameterizedTest
+    void testSameNodes(final String file, final String selector)
+        throws IOException {
+        final JsonNodeXpathVisitor visitor = new JsonNodeXpathVisitor();
+        JsonXpath.findAndUpdateMultiple(
+            JsonSelectorTest.LEGACY.readTree(JsonSelectorTest.stream(file)),
+            selector,
+            visitor
+        );
+        Assertions.assertEquals(
+            new JsonNodeConverter().convert(visitor.getResult()),
+            JsonSelectorTest.MAPPER.createArrayNode().addAll(
+                new JsonSelector(selector).select(JsonSelectorTest.tree(file))
+            )
+        );
+    }
+
+    @CsvSource({
+        "selectors/vms.json, //vm",
+        "selectors/vms.json, value",
+        "vcenter.json, /info/title"
+    })
+    @ParameterizedTest
+    void testSameSingleNode(final String file, final String selector)
+        throws IOException {
+        Assertions.assertEquals(
+            new JsonNodeConverter().convert(
+                JsonXpath.find(
+                    JsonSelectorTest.LEGACY.readTree(JsonSelectorTest.stream(file)),
+                    selector
+                )
+            ),
+            new JsonSelector(selector).first(JsonSelectorTest.tree(file))
+        );
+    }
+
+    @CsvSource({
+        "'//value[2]/vm', vm-2",
+        "'//disks[last()]/key', 2001",
+        "'//value[power_state=''POWERED_ON'']/vm', vm-1",
+        "'//value[cpu_count=4]/name', db",
+        "'//value[disks]/name', db",
+        "'/value[folder!=\"group-v1\"]/name', ''",
+        "'//*/label', Hard disk 1|Hard disk 2",
+        "'value/./vm', vm-1|vm-2"
+    })
+    @ParameterizedTest
+    void testPredicates(final String selector, final String expected)
+        throws IOException {
+        final List<JsonNode> nodes = new JsonSelector(selector)
+            .select(JsonSelectorTest.tree(JsonSelectorTest.VMS));
+        Assertions.assertEquals(
+            expected,
+            nodes.stream()
+                .map(JsonNode::asText)
+                .collect(Collectors.joining("|"))
+        );
+    }
+
+    @ValueSource(strings = {"value/", "//", "value[1", "value[@id]", "a//b//"})
+    @ParameterizedTest
+    void testUnsupportedSyntax(final String selector) {
+        Assertions.assertThrows(
+            IllegalArgumentException.class,
+            () -> new JsonSelector(selector)
+        );
+    }
+
+    @Test
+    void testMissingNode() throws IOException {
+        Assertions.assertTrue(
+            new JsonSelector("//missing")
+                .first(JsonSelectorTest.tree(JsonSelectorTest.VMS))
+                .isMissingNode()
+        );
+    }
+
+    /**
+     * Parses a test resource.
+     * @param file The resource's path
+     * @return A non-null Json node
+     * @throws IOException If the resource cannot be read
+     */
+    private static JsonNode tree(final String file) throws IOException {
+        return JsonSelectorTest.MAPPER.readTree(JsonSelectorTest.stream(file));
+    }
+
+    /**
+     * Opens a test resource.
+     * @param file The resource's path
+     * @return A non-null stream
+     */
+    private static InputStream stream(final String file) {
+        return Thread.currentThread()
+            .getContextClassLoader()
+            .getResourceAsStream(file);
+    }
+
+}
@@ -0,0 +1,98 @@
+package com.rigiresearch.middleware.historian.runtime.json;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+/**
+ * Tests {@link JsonStreamReader}, comparing its results against
+ * {@link JsonSelector#select(JsonNode)}.
+ * @author Miguel Jimenez (miguel@uvic.ca)
+ * @version $Id$
+ * @since 0.1.0
+ */
+public final class JsonStreamReaderTest {
+
+    /**
+     * A Json document resembling vCenter responses.
+     */
+    private static final String VMS = "selectors/vms.json";
+
+    /**
+     * A JSON mapper.
+     */
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    @ValueSource(strings = {
+        "//vm",
+        "//value",
+        "value",
+        "/value/name",
+        "//disks/value/label",
+        "//*/label",
+        "//missing",
+        "//value[2]/vm"
+    })
+    @ParameterizedTest
+    void testSameNodes(final String expression) throws IOException {
+        final JsonSelector selector = new JsonSelector(expression);
+        final List<JsonNode> streamed = new ArrayList<>(0);
+        final JsonNode tree = JsonStreamReaderTest.read(selector, streamed);
+        Assertions.assertEquals(
+            JsonStreamReaderTest.MAPPER.readTree(JsonStreamReaderTest.stream()),
+            tree
+        );
+        Assertions.assertEquals(
+            new HashSet<>(selector.select(tree)),
+            new HashSet<>(streamed)
+        );
+    }
+
+    @Test
+    void testEmptyContent() throws IOException {
+        final JsonParser parser = JsonStreamReaderTest.MAPPER.getFactory()
+            .createParser("");
+        Assertions.assertTrue(
+            new JsonStreamReader(Collections.emptyMap())
+                .read(parser, (name, node) -> { })
+                .isMissingNode()
+        );
+    }
+
+    /**
+     * Reads the test document.
+     * @param selector The selector to evaluate
+     * @param nodes The list to which the selected nodes are added
+     * @return The parsed document
+     * @throws IOException If the document cannot be read
+     */
+    private static JsonNode read(final JsonSelector selector,
+        final List<JsonNode> nodes) throws IOException {
+        try (JsonParser parser = JsonStreamReaderTest.MAPPER.getFactory()
+            .createParser(JsonStreamReaderTest.stream())) {
+            return new JsonStreamReader(Collections.singletonMap("test", selector))
+                .read(parser, (name, node) -> nodes.add(node));
+        }
+    }
+
+    /**
+     * Opens the test document.
+     * @return A non-null stream
+     */
+    private static InputStream stream() {
+        return Thread.currentThread()
+            .getContextClassLoader()
+            .getResourceAsStream(JsonStreamReaderTest.VMS);
+    }
+
+}
@@ -0,0 +1,38 @@
+package com.rigiresearch.middleware.historian.runtime.json;
+
+import java.util.Arrays;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests {@link SelectorCache}.
+ * @author Miguel Jimenez (miguel@uvic.ca)
+ * @version $Id$
+ * @since 0.1.0
+ */
+public final class SelectorCacheTest {
+
+    @Test
+    void testCompileOnce() {
+        final SelectorCache cache = new SelectorCache()
+            .warm(Arrays.asList("//vm", "//host", "//vm"));
+        Assertions.assertSame(cache.selector("//vm"), cache.selector("//vm"));
+        Assertions.assertEquals(2L, cache.misses());
+        Assertions.assertEquals(3L, cache.hits());
+        Assertions.assertEquals(2, cache.size());
+    }
+
+    @Test
+    void testEviction() {
+        final SelectorCache cache = new SelectorCache(2)
+            .warm(Arrays.asList("//vm", "//host"));
+        cache.selector("//vm");
+        cache.selector("//datacenter");
+        Assertions.assertEquals(2, cache.size());
+        cache.selector("//vm");
+        Assertions.assertEquals(3L, cache.misses());
+        cache.selector("//host");
+        Assertions.assertEquals(4L, cache.misses());
+    }
+
+}
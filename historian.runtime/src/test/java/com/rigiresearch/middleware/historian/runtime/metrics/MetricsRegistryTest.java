@@ -0,0 +1,57 @@
+package com.rigiresearch.middleware.historian.runtime.metrics;
+
+import java.lang.management.ManagementFactory;
+import java.util.Collections;
+import javax.management.JMException;
+import javax.management.ObjectName;
+import javax.management.openmbean.CompositeData;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests {@link MetricsRegistry}.
+ * @author Miguel Jimenez (miguel@uvic.ca)
+ * @version $Id$
+ * @since 0.1.0
+ */
+public final class MetricsRegistryTest {
+
+    @Test
+    void testSummaries() {
+        final MetricsRegistry registry = new MetricsRegistry();
+        for (int idx = 1; idx <= 100; idx += 1) {
+            registry.fanOut("listVcenterVm", idx);
+        }
+        registry.error("getVcenterVm", "503");
+        registry.error("getVcenterVm", "503");
+        final Summary summary = registry.getFanOuts().get("listVcenterVm");
+        Assertions.assertEquals(100L, summary.getCount());
+        Assertions.assertEquals(50.5, summary.getMean(), 0.001);
+        Assertions.assertEquals(100.0, summary.getMax(), 0.001);
+        // Percentiles are approximated within a factor of two
+        Assertions.assertTrue(summary.getMedian() >= 50.0 && summary.getMedian() < 100.0);
+        Assertions.assertEquals(100.0, summary.getPercentile99(), 0.001);
+        Assertions.assertEquals(
+            Collections.singletonMap("getVcenterVm:503", 2L),
+            registry.getErrors()
+        );
+    }
+
+    @Test
+    void testJmx() throws JMException {
+        final String name = "com.rigiresearch.middleware.historian:type=MetricsTest";
+        final MetricsRegistry registry = new MetricsRegistry();
+        registry.cycle(2_000_000L);
+        registry.register(name);
+        try {
+            final CompositeData cycles = (CompositeData) ManagementFactory
+                .getPlatformMBeanServer()
+                .getAttribute(new ObjectName(name), "Cycles");
+            Assertions.assertEquals(1L, cycles.get("count"));
+            Assertions.assertEquals(2.0, (double) cycles.get("mean"), 0.001);
+        } finally {
+            registry.unregister(name);
+        }
+    }
+
+}
@@ -3,6 +3,7 @@ package com.rigiresearch.middleware.historian;
 import com.beust.jcommander.ParameterException;
 import com.rigiresearch.middleware.graph.Graph;
 import com.rigiresearch.middleware.graph.GraphParser;
+import com.rigiresearch.middleware.graph.GraphSnapshot;
 import com.rigiresearch.middleware.graph.Input;
 import com.rigiresearch.middleware.graph.Node;
 import com.rigiresearch.middleware.graph.Parameter;
@@ -16,7 +17,9 @@ import edu.uoc.som.openapi.OpenAPIPackage;
 import edu.uoc.som.openapi.io.OpenAPIImporter;
 import java.io.File;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.io.UnsupportedEncodingException;
+import java.nio.file.Files;
 import java.util.Collections;
 import java.util.Set;
 import java.util.stream.Collectors;
@@ -173,7 +176,8 @@ public final class Application {
 
     /**
      * Generates a gradle project containing the monitoring code for a
-     * particular API specification.
+     * particular API specification. Besides the XML configuration graph, a
+     * binary snapshot of it is generated to speed up the monitor's start.
      * @param model The monitoring model
      * @param directory The output directory
      * @throws JAXBException If there is an exception during the graph
@@ -195,7 +199,12 @@ public final class Application {
         final GraphParser parser = new GraphParser()
             .withBindings(Application.BINDINGS);
         final Graph<Node> graph = this.monitoringGraph(model);
-        parser.write(graph, new File(parent, "configuration.xml"));
+        final File xml = new File(parent, "configuration.xml");
+        parser.write(graph, xml);
+        try (OutputStream output =
+            Files.newOutputStream(new File(parent, "configuration.bin").toPath())) {
+            new GraphSnapshot().write(graph, Files.readAllBytes(xml.toPath()), output);
+        }
         new MonitoringTemplate().generateFiles(model, directory);
     }
 
@@ -92,10 +92,76 @@ final class MonitoringTemplate {
         config.layout.setBlancLinesBefore("periodicity", 1)
         config.layout.setComment("periodicity", "Cron expression requesting data every minute")
 
+        config.setProperty("collection.mode", "skip")
+        config.setProperty("collection.delay", 60)
+        config.setProperty("collection.jitter", 0)
+        config.setProperty("collection.adaptive.factor", 0)
+        config.layout.setBlancLinesBefore("collection.mode", 1)
+        config.layout.setComment("collection.mode", "Overlapping cycles: skip, coalesce or fixed-delay (seconds); adaptive factor of the cycle duration (0 disables it)")
+
         config.setProperty("base", root.baseUrl)
         config.layout.setBlancLinesBefore("base", 1)
         config.layout.setComment("base", "The base URL")
 
+        config.setProperty("fork.parallelism", 1)
+        config.layout.setBlancLinesBefore("fork.parallelism", 1)
+        config.layout.setComment("fork.parallelism", "Number of threads collecting forked branches concurrently (1 is sequential)")
+
+        config.setProperty("http.pool.max-per-route", 20)
+        config.setProperty("http.pool.idle-timeout", 30)
+        config.setProperty("http.pool.keep-alive", 30)
+        config.layout.setBlancLinesBefore("http.pool.max-per-route", 1)
+        config.layout.setComment("http.pool.max-per-route", "Pooled HTTP connections per host (timeouts in seconds)")
+
+        config.setProperty("http.cache.size", 0)
+        config.layout.setBlancLinesBefore("http.cache.size", 1)
+        config.layout.setComment("http.cache.size", "Cached responses revalidated with conditional requests (0 disables the cache)")
+
+        config.setProperty("fork.async", false)
+        config.setProperty("http.async.max-per-host", 16)
+        config.layout.setBlancLinesBefore("fork.async", 1)
+        config.layout.setComment("fork.async", "Non-blocking collection, limited to a number of in-flight requests per host")
+
+        config.setProperty("http.rate.limit", 0)
+        config.setProperty("http.rate.burst", 1)
+        config.layout.setBlancLinesBefore("http.rate.limit", 1)
+        config.layout.setComment("http.rate.limit", "Requests per second per host, in bursts of up to a number of requests (0 disables the limit)")
+
+        config.setProperty("http.limit.adaptive", false)
+        config.setProperty("http.limit.min", 1)
+        config.setProperty("http.limit.latency", 0)
+        config.setProperty("http.limit.backoff", 0.5)
+        config.layout.setBlancLinesBefore("http.limit.adaptive", 1)
+        config.layout.setComment("http.limit.adaptive", "Adapt the concurrent requests per host to 429/503 responses, timeouts, connection resets and latency (milliseconds, 0 ignores it)")
+
+        config.setProperty("http.retry.attempts", 0)
+        config.setProperty("http.retry.backoff", 100)
+        config.setProperty("http.retry.max-backoff", 10000)
+        config.layout.setBlancLinesBefore("http.retry.attempts", 1)
+        config.layout.setComment("http.retry.attempts", "Retries of requests failing with timeouts, dropped or refused connections, or 429/502/503/504 responses, after a jittered exponential backoff (milliseconds)")
+
+        config.setProperty("fork.streaming", false)
+        config.layout.setBlancLinesBefore("fork.streaming", 1)
+        config.layout.setComment("fork.streaming", "Parse responses as they are received instead of buffering them")
+
+        config.setProperty("fork.conditional", false)
+        config.setProperty("fork.conditional.reuse", 0)
+        config.layout.setBlancLinesBefore("fork.conditional", 1)
+        config.layout.setComment("fork.conditional", "Conditional requests, reusing unchanged subtrees for a number of cycles")
+
+        config.setProperty("fork.partial", false)
+        config.setProperty("fork.partial.budget", 3)
+        config.layout.setBlancLinesBefore("fork.partial", 1)
+        config.layout.setComment("fork.partial", "Tolerate failed branches, reusing their last known content for a number of consecutive failures")
+
+        config.setProperty("selectors.cache-size", 256)
+        config.layout.setBlancLinesBefore("selectors.cache-size", 1)
+        config.layout.setComment("selectors.cache-size", "Maximum number of compiled output/transformation selectors")
+
+        config.setProperty("metrics.jmx", false)
+        config.layout.setBlancLinesBefore("metrics.jmx", 1)
+        config.layout.setComment("metrics.jmx", "Export the collection metrics (latency, sizes, fan-out, errors) through JMX")
+
         config.setProperty("auth", root.authRequirements.map[r|r.method.id].join(", ").toString)
         config.layout.setBlancLinesBefore("auth", 1)
         // TODO It may be necessary to support authentication methods specifically for monitors individually
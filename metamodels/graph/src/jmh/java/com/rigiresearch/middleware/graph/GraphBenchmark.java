@@ -0,0 +1,126 @@
+package com.rigiresearch.middleware.graph;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Compares looking up the dependents of a node in the graph's index against
+ * scanning the inputs of every node, as the graph did before it was indexed.
+ * Each node depends on a parent node, forming a tree with a fixed fan-out.
+ * @author Miguel Jimenez (miguel@uvic.ca)
+ * @version $Id$
+ * @since 0.1.0
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class GraphBenchmark {
+
+    /**
+     * The number of dependents per node.
+     */
+    private static final int FANOUT = 4;
+
+    /**
+     * The number of nodes in the graph.
+     */
+    @Param({"100", "1000", "10000"})
+    private int size;
+
+    /**
+     * The graph.
+     */
+    private Graph<Node> graph;
+
+    /**
+     * The nodes, in order of creation.
+     */
+    private List<Node> nodes;
+
+    /**
+     * The next node to look up.
+     */
+    private int next;
+
+    /**
+     * Creates the graph.
+     */
+    @Setup
+    public void setup() {
+        this.nodes = new ArrayList<>(this.size);
+        final Set<Node> set = new TreeSet<>();
+        for (int idx = 0; idx < this.size; idx += 1) {
+            final Set<Parameter> params = new TreeSet<>();
+            final Output output = new Output("output", "value");
+            params.add(output);
+            if (idx > 0) {
+                params.add(
+                    new Input(
+                        "input",
+                        output.getName(),
+                        this.nodes.get((idx - 1) / GraphBenchmark.FANOUT)
+                    )
+                );
+            }
+            final Node node = new Node(
+                String.format("node%d", idx),
+                params,
+                Collections.emptySet()
+            );
+            this.nodes.add(node);
+            set.add(node);
+        }
+        this.graph = new Graph<>(set);
+        this.graph.dependents(this.nodes.get(0));
+    }
+
+    /**
+     * Looks up the dependents of a node in the index.
+     * @return The dependents
+     */
+    @Benchmark
+    public Set<Node> indexed() {
+        return this.graph.dependents(this.target());
+    }
+
+    /**
+     * Finds the dependents of a node by scanning the inputs of every node.
+     * @return The dependents
+     */
+    @Benchmark
+    public Set<Node> scan() {
+        final Node node = this.target();
+        return this.graph.getNodes()
+            .stream()
+            .filter(temp ->
+                temp.getParameters(true).stream()
+                    .filter(Input.class::isInstance)
+                    .map(Input.class::cast)
+                    .anyMatch(input -> node.equals(input.getSource()))
+            )
+            .collect(Collectors.toSet());
+    }
+
+    /**
+     * Selects the next node to look up.
+     * @return A node from the graph
+     */
+    private Node target() {
+        this.next = (this.next + 1) % this.nodes.size();
+        return this.nodes.get(this.next);
+    }
+
+}
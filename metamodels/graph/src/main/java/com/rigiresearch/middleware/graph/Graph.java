@@ -1,16 +1,36 @@
 package com.rigiresearch.middleware.graph;
 
 import java.io.Serializable;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
 import java.util.TreeSet;
-import java.util.stream.Collectors;
+import javax.xml.bind.Marshaller;
+import javax.xml.bind.Unmarshaller;
 import javax.xml.bind.annotation.XmlElement;
 import javax.xml.bind.annotation.XmlRootElement;
 
 /**
  * A DAG with input/output dependencies.
+ * <p>
+ * Nodes are stored by identifier (see {@link Node#getIdentifier()}), which
+ * must not change once a node is added. Adding a node whose identifier is
+ * already in use has no effect. Nodes are sorted only when the graph is
+ * marshalled.
+ * <p>
+ * The dependencies and dependents of each node are indexed the first time
+ * they are looked up, and the indexes are updated as nodes are added through
+ * {@link #getNodes()}. Removing nodes invalidates the indexes, which are
+ * rebuilt on the next lookup.
  * @author Miguel Jimenez (miguel@uvic.ca)
  * @version $Id$
  * @since 0.1.0
@@ -34,26 +54,47 @@ public class Graph<T extends Node> implements Serializable, Comparator<T> {
     private static final long serialVersionUID = 6108711703700072578L;
 
     /**
-     * The set of nodes.
+     * The sorted set of nodes, used only while marshalling and unmarshalling
+     * this graph. It is null otherwise.
      */
     @XmlElement(name = "node")
     private Set<T> nodes;
 
+    /**
+     * The nodes, indexed by identifier.
+     */
+    private final Map<String, T> store;
+
+    /**
+     * The dependencies of each node (i.e., forward index).
+     */
+    private transient Map<T, Set<Node>> forward;
+
+    /**
+     * The dependents of each node, indexed by the node's name (i.e., reverse
+     * index). Names are used because subtypes of {@link Node} may not
+     * compute hash codes consistently with the nodes used as input sources.
+     */
+    private transient Map<String, Set<T>> reverse;
+
+    /**
+     * Whether the indexes are up to date.
+     */
+    private transient boolean indexed;
+
     /**
      * Empty constructor.
      */
     public Graph() {
-        this(new TreeSet<>());
+        this(Collections.emptySet());
     }
 
     /**
      * Default constructor.
      * @param nodes The set of nodes
      */
-    @SuppressWarnings("PMD.ConstructorOnlyInitializesOrCallOtherConstructors")
     public Graph(final Set<T> nodes) {
-        this.nodes = new TreeSet<>(this);
-        this.nodes.addAll(nodes);
+        this.store = Graph.store(nodes);
     }
 
     /**
@@ -62,19 +103,123 @@ public class Graph<T extends Node> implements Serializable, Comparator<T> {
      * @return A set of dependent nodes
      */
     public Set<T> dependents(final T node) {
-        if (!this.nodes.contains(node)) {
+        if (!this.contains(node)) {
             throw new IllegalArgumentException(
                 String.format("Node %s was not found in this graph", node)
             );
         }
-        return this.nodes.stream()
-            .filter(temp ->
-                temp.getParameters(true).stream()
-                    .filter(Input.class::isInstance)
-                    .map(Input.class::cast)
-                    .anyMatch(input -> node.equals(input.getSource()))
-            )
-            .collect(Collectors.toSet());
+        this.index();
+        final Set<T> candidates =
+            this.reverse.getOrDefault(node.getName(), Collections.emptySet());
+        final Set<T> dependents = new HashSet<>(candidates.size());
+        for (final T candidate : candidates) {
+            if (this.forward.get(candidate).stream().anyMatch(node::equals)) {
+                dependents.add(candidate);
+            }
+        }
+        return dependents;
+    }
+
+    /**
+     * Finds the nodes on which a given node depends. Unlike
+     * {@link Node#dependencies()}, the result is looked up in an index.
+     * @param node The graph node
+     * @return A non-null, unmodifiable set of nodes
+     */
+    public Set<Node> dependencies(final T node) {
+        if (!this.contains(node)) {
+            throw new IllegalArgumentException(
+                String.format("Node %s was not found in this graph", node)
+            );
+        }
+        this.index();
+        return this.forward.get(node);
+    }
+
+    /**
+     * Finds the nodes referenced as input sources that are not part of this
+     * graph.
+     * @return A non-null set of nodes
+     */
+    public Set<Node> unresolved() {
+        this.index();
+        final Set<Node> unresolved = new HashSet<>(0);
+        for (final Set<Node> sources : this.forward.values()) {
+            for (final Node source : sources) {
+                if (!this.contains(source)) {
+                    unresolved.add(source);
+                }
+            }
+        }
+        return unresolved;
+    }
+
+    /**
+     * Finds the nodes that are part of a dependency cycle, or that depend on
+     * a node that is. Unresolved sources (see {@link #unresolved()}) are not
+     * considered.
+     * @return A non-null set of nodes
+     */
+    public Set<T> cycles() {
+        final Set<T> cycles = new HashSet<>(this.store.values());
+        this.levels(true).forEach(cycles::removeAll);
+        return cycles;
+    }
+
+    /**
+     * Decomposes this graph into topological levels. The first level
+     * contains the nodes without dependencies, and each of the following
+     * levels contains the nodes whose dependencies are all in previous
+     * levels. Therefore, the nodes of a level can be processed in parallel
+     * once the previous levels have been processed. Nodes that are part of a
+     * cycle or that depend on an unresolved source are not included.
+     * @return A non-null list of unmodifiable sets
+     */
+    public List<Set<T>> levels() {
+        return this.levels(false);
+    }
+
+    /**
+     * Decomposes this graph into topological levels (i.e., Kahn's algorithm,
+     * one level at a time).
+     * @param resolved Whether to count only the dependencies that are part of
+     *  this graph
+     * @return A non-null list of unmodifiable sets
+     */
+    private List<Set<T>> levels(final boolean resolved) {
+        this.index();
+        final Map<T, Integer> pending = new HashMap<>(this.store.size());
+        Set<T> level = new HashSet<>(0);
+        for (final T node : this.store.values()) {
+            int count = 0;
+            for (final Node source : this.forward.get(node)) {
+                if (!resolved || this.contains(source)) {
+                    count += 1;
+                }
+            }
+            if (count == 0) {
+                level.add(node);
+            } else {
+                pending.put(node, count);
+            }
+        }
+        final List<Set<T>> levels = new ArrayList<>(0);
+        while (!level.isEmpty()) {
+            levels.add(Collections.unmodifiableSet(level));
+            final Set<T> next = new HashSet<>(0);
+            for (final T node : level) {
+                for (final T dependent : this.dependents(node)) {
+                    final Integer count = pending.remove(dependent);
+                    if (count != null && count > 1) {
+                        pending.put(dependent, count - 1);
+                    } else if (count != null) {
+                        next.add(dependent);
+                    }
+                }
+            }
+            level = next;
+        }
+        return levels;
     }
 
     /**
@@ -134,7 +279,194 @@ public class Graph<T extends Node> implements Serializable, Comparator<T> {
      * @return A set
      */
     public Set<T> getNodes() {
-        return this.nodes;
+        return new Nodes();
+    }
+
+    /**
+     * Whether a node is part of this graph.
+     * @param object The node
+     * @return Whether the node with the same identifier is equivalent
+     */
+    private boolean contains(final Object object) {
+        boolean contains = false;
+        if (object instanceof Node) {
+            final T node = this.store.get(((Node) object).getIdentifier());
+            contains = node != null && object.equals(node);
+        }
+        return contains;
+    }
+
+    /**
+     * Builds the indexes, unless they are up to date.
+     */
+    private void index() {
+        if (!this.indexed) {
+            this.forward = new HashMap<>(this.store.size());
+            this.reverse = new HashMap<>(this.store.size());
+            this.indexed = true;
+            this.store.values().forEach(this::index);
+        }
+    }
+
+    /**
+     * Adds a node to the indexes, if they have been built. Equivalent nodes
+     * (e.g., nodes based on the same node) are indexed only once.
+     * @param node The new node
+     */
+    private void index(final T node) {
+        if (this.indexed && !this.forward.containsKey(node)) {
+            this.index(node, node.dependencies());
+        }
+    }
+
+    /**
+     * Replaces the indexes with precomputed dependencies (e.g., read from a
+     * {@link GraphSnapshot}).
+     * @param dependencies The dependencies of each node of this graph
+     */
+    void index(final Map<T, Set<Node>> dependencies) {
+        this.forward = new HashMap<>(dependencies.size());
+        this.reverse = new HashMap<>(dependencies.size());
+        this.indexed = true;
+        dependencies.forEach(this::index);
+    }
+
+    /**
+     * Adds a node and its dependencies to the indexes.
+     * @param node The node
+     * @param sources The node's dependencies
+     */
+    private void index(final T node, final Set<Node> sources) {
+        this.forward.put(node, Collections.unmodifiableSet(sources));
+        for (final Node source : sources) {
+            this.reverse
+                .computeIfAbsent(source.getName(), key -> new HashSet<>(1))
+                .add(node);
+        }
+    }
+
+    /**
+     * Sorts the nodes before marshalling this graph.
+     * @param marshaller The XML marshaller
+     */
+    @SuppressWarnings({
+        "PMD.UnusedFormalParameter",
+        "PMD.UnusedPrivateMethod"
+    })
+    private void beforeMarshal(final Marshaller marshaller) {
+        this.nodes = new TreeSet<>(this);
+        this.nodes.addAll(this.store.values());
+    }
+
+    /**
+     * Discards the sorted nodes after marshalling this graph.
+     * @param marshaller The XML marshaller
+     */
+    @SuppressWarnings({
+        "PMD.NullAssignment",
+        "PMD.UnusedFormalParameter",
+        "PMD.UnusedPrivateMethod"
+    })
+    private void afterMarshal(final Marshaller marshaller) {
+        this.nodes = null;
+    }
+
+    /**
+     * Stores the unmarshalled nodes by identifier and invalidates the
+     * indexes.
+     * @param unmarshaller The XML unmarshaller
+     * @param parent The parent object
+     */
+    @SuppressWarnings({
+        "PMD.NullAssignment",
+        "PMD.UnusedFormalParameter",
+        "PMD.UnusedPrivateMethod"
+    })
+    private void afterUnmarshal(final Unmarshaller unmarshaller,
+        final Object parent) {
+        if (this.nodes != null) {
+            this.store.clear();
+            this.store.putAll(Graph.store(this.nodes));
+            this.nodes = null;
+        }
+        this.indexed = false;
+    }
+
+    /**
+     * Indexes nodes by identifier, keeping the first node of each
+     * identifier.
+     * @param nodes The nodes
+     * @param <T> The type of node
+     * @return A new map, in the order of the given nodes
+     */
+    private static <T extends Node> Map<String, T> store(final Set<T> nodes) {
+        final Map<String, T> store = new LinkedHashMap<>(nodes.size());
+        for (final T node : nodes) {
+            store.putIfAbsent(node.getIdentifier(), node);
+        }
+        return store;
+    }
+
+    /**
+     * A view of the set of nodes that keeps the indexes up to date.
+     * @author Miguel Jimenez (miguel@uvic.ca)
+     * @version $Id$
+     * @since 0.1.0
+     */
+    private final class Nodes extends AbstractSet<T> {
+
+        @Override
+        public Iterator<T> iterator() {
+            final Iterator<T> iterator = Graph.this.store.values().iterator();
+            return new Iterator<T>() {
+                @Override
+                public boolean hasNext() {
+                    return iterator.hasNext();
+                }
+
+                @Override
+                public T next() {
+                    return iterator.next();
+                }
+
+                @Override
+                public void remove() {
+                    iterator.remove();
+                    Graph.this.indexed = false;
+                }
+            };
+        }
+
+        @Override
+        public int size() {
+            return Graph.this.store.size();
+        }
+
+        @Override
+        public boolean contains(final Object object) {
+            return Graph.this.contains(object);
+        }
+
+        @Override
+        public boolean add(final T node) {
+            final boolean added =
+                Graph.this.store.putIfAbsent(node.getIdentifier(), node) == null;
+            if (added) {
+                Graph.this.index(node);
+            }
+            return added;
+        }
+
+        @Override
+        public boolean remove(final Object object) {
+            final boolean removed = Graph.this.contains(object);
+            if (removed) {
+                Graph.this.store.remove(((Node) object).getIdentifier());
+                Graph.this.indexed = false;
+            }
+            return removed;
+        }
+
     }
 
 }
@@ -1,23 +1,35 @@
 package com.rigiresearch.middleware.graph;
 
-import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.StringReader;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import javax.xml.bind.JAXBContext;
 import javax.xml.bind.JAXBException;
 import javax.xml.bind.Marshaller;
+import javax.xml.bind.Unmarshaller;
 import javax.xml.transform.stream.StreamSource;
-import org.eclipse.persistence.jaxb.JAXBContext;
+import org.eclipse.persistence.jaxb.JAXBContextFactory;
 import org.eclipse.persistence.jaxb.JAXBContextProperties;
 
 /**
  * A {@link Graph} parser.
+ * <p>
+ * Creating a Jaxb context is expensive, especially with binding files, so
+ * contexts are created once per set of bindings and shared by all the
+ * parsers. Since the bindings are resolved by the thread's context class
+ * loader, the contexts are cached per class loader as well. The cache lives
+ * as long as the JVM (i.e., contexts are never evicted). Each thread reuses
+ * its own marshaller and unmarshaller.
  * @author Miguel Jimenez (miguel@uvic.ca)
  * @version $Id$
  * @since 0.1.0
@@ -30,20 +42,21 @@ public final class GraphParser {
     private static final Class<?>[] CLASS = {Graph.class};
 
     /**
-     * Default buffer size.
+     * The Jaxb contexts, indexed by class loader and bindings resource names.
      */
-    private static final int BUFFER_SIZE = 8 * 1024;
+    private static final ConcurrentMap<GraphParser.Key, GraphParser.Context> CONTEXTS =
+        new ConcurrentHashMap<>();
 
     /**
-     * A Jaxb properties map.
+     * The bindings resource names.
      */
-    private final Map<String, Object> properties;
+    private final List<String> bindings;
 
     /**
      * Default constructor.
      */
     public GraphParser() {
-        this.properties = new HashMap<>(0);
+        this.bindings = new ArrayList<>(0);
     }
 
     /**
@@ -52,16 +65,8 @@ public final class GraphParser {
      * @return This parser (for chaining)
      */
     public GraphParser withBindings(final String... filenames) {
-        final List<InputStream> streams = new ArrayList<>(filenames.length);
-        Arrays.stream(filenames)
-            .forEach(
-                filename -> streams.add(
-                    Thread.currentThread()
-                        .getContextClassLoader()
-                        .getResourceAsStream(filename)
-                )
-            );
-        this.properties.put(JAXBContextProperties.OXM_METADATA_SOURCE, streams);
+        this.bindings.clear();
+        this.bindings.addAll(Arrays.asList(filenames));
         return this;
     }
 
@@ -75,34 +80,28 @@ public final class GraphParser {
     @SuppressWarnings("unchecked")
     public <T extends Node> Graph<T> instance(final File file)
         throws JAXBException {
-        return (Graph<T>) JAXBContext.newInstance(
-            GraphParser.CLASS,
-            this.properties
-        ).createUnmarshaller()
+        return (Graph<T>) this.context()
+            .unmarshaller()
             .unmarshal(file);
     }
 
     /**
-     * Unmarshalls a graph instance.
+     * Unmarshalls a graph instance. The stream is closed afterwards.
      * @param input An input stream
      * @param <T> The subtype of {@link Node}
      * @return The unmarshalled graph
      * @throws JAXBException If there is an error unmarshalling the graph
      * @throws IOException If there's an I/O error
      */
+    @SuppressWarnings("unchecked")
     public <T extends Node> Graph<T> instance(final InputStream input)
         throws JAXBException, IOException {
         if (input != null) {
-            final ByteArrayOutputStream output = new ByteArrayOutputStream();
-            final byte[] buffer = new byte[GraphParser.BUFFER_SIZE];
-            int length = input.read(buffer);
-            while (length > 0) {
-                output.write(buffer, 0, length);
-                length = input.read(buffer);
+            try (InputStream stream = input) {
+                return (Graph<T>) this.context()
+                    .unmarshaller()
+                    .unmarshal(new StreamSource(stream));
             }
-            input.close();
-            output.close();
-            return this.instance(output.toString());
         }
         throw new IllegalArgumentException("Input stream is null");
     }
@@ -117,10 +116,8 @@ public final class GraphParser {
     @SuppressWarnings("unchecked")
     public <T extends Node> Graph<T> instance(final String xml)
         throws JAXBException {
-        return (Graph<T>) JAXBContext.newInstance(
-            GraphParser.CLASS,
-            this.properties
-        ).createUnmarshaller()
+        return (Graph<T>) this.context()
+            .unmarshaller()
             .unmarshal(new StreamSource(new StringReader(xml)));
     }
 
@@ -133,12 +130,246 @@ public final class GraphParser {
      */
     public <T extends Node> void write(final Graph<T> graph, final File file)
         throws JAXBException {
-        final Marshaller marshaller = JAXBContext.newInstance(
-            GraphParser.CLASS,
-            this.properties
-        ).createMarshaller();
-        marshaller.setProperty(Marshaller.JAXB_FORMATTED_OUTPUT, Boolean.TRUE);
-        marshaller.marshal(graph, file);
+        this.context()
+            .marshaller()
+            .marshal(graph, file);
+    }
+
+    /**
+     * Finds the Jaxb context for the configured bindings, creating it if
+     * necessary.
+     * @return A shared context
+     * @throws JAXBException If there is an error creating the context
+     */
+    private GraphParser.Context context() throws JAXBException {
+        final GraphParser.Key key = new GraphParser.Key(
+            Thread.currentThread().getContextClassLoader(),
+            Collections.unmodifiableList(new ArrayList<>(this.bindings))
+        );
+        try {
+            // Only one thread creates the context of each key
+            return GraphParser.CONTEXTS.computeIfAbsent(
+                key,
+                GraphParser::newContext
+            );
+        } catch (final GraphParser.ContextException exception) {
+            throw exception.getCause();
+        }
+    }
+
+    /**
+     * Creates a Jaxb context.
+     * @param key The class loader and bindings resource names
+     * @return A new context
+     * @throws GraphParser.ContextException If there is an error creating the
+     *  context
+     */
+    private static GraphParser.Context newContext(final GraphParser.Key key) {
+        try {
+            return new GraphParser.Context(
+                GraphParser.newContext(key.getLoader(), key.getBindings())
+            );
+        } catch (final JAXBException exception) {
+            throw new GraphParser.ContextException(exception);
+        }
+    }
+
+    /**
+     * Creates a Jaxb context.
+     * @param loader The class loader resolving the bindings
+     * @param filenames The bindings resource names
+     * @return A new context
+     * @throws JAXBException If there is an error creating the context
+     */
+    private static JAXBContext newContext(final ClassLoader loader,
+        final List<String> filenames) throws JAXBException {
+        final Map<String, Object> properties = new HashMap<>(1);
+        final List<InputStream> streams = new ArrayList<>(filenames.size());
+        for (final String filename : filenames) {
+            streams.add(loader.getResourceAsStream(filename));
+        }
+        if (!streams.isEmpty()) {
+            properties.put(JAXBContextProperties.OXM_METADATA_SOURCE, streams);
+        }
+        try {
+            return JAXBContextFactory.createContext(GraphParser.CLASS, properties);
+        } finally {
+            GraphParser.close(streams);
+        }
+    }
+
+    /**
+     * Closes the bindings streams.
+     * @param streams The streams
+     * @throws JAXBException If a stream cannot be closed
+     */
+    private static void close(final List<InputStream> streams)
+        throws JAXBException {
+        for (final InputStream stream : streams) {
+            if (stream != null) {
+                try {
+                    stream.close();
+                } catch (final IOException exception) {
+                    throw new JAXBException(exception);
+                }
+            }
+        }
+    }
+
+    /**
+     * The key of a cached Jaxb context. Class loaders are compared by
+     * identity.
+     * @author Miguel Jimenez (miguel@uvic.ca)
+     * @version $Id$
+     * @since 0.1.0
+     */
+    private static final class Key {
+
+        /**
+         * The class loader resolving the bindings.
+         */
+        private final ClassLoader loader;
+
+        /**
+         * The bindings resource names.
+         */
+        private final List<String> bindings;
+
+        /**
+         * Default constructor.
+         * @param loader The class loader resolving the bindings
+         * @param bindings The bindings resource names
+         */
+        Key(final ClassLoader loader, final List<String> bindings) {
+            this.loader = loader;
+            this.bindings = bindings;
+        }
+
+        /**
+         * The class loader resolving the bindings.
+         * @return The class loader
+         */
+        ClassLoader getLoader() {
+            return this.loader;
+        }
+
+        /**
+         * The bindings resource names.
+         * @return An unmodifiable list
+         */
+        List<String> getBindings() {
+            return this.bindings;
+        }
+
+        @Override
+        public boolean equals(final Object object) {
+            return object instanceof GraphParser.Key
+                && this.loader == ((GraphParser.Key) object).loader
+                && this.bindings.equals(((GraphParser.Key) object).bindings);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(System.identityHashCode(this.loader), this.bindings);
+        }
+
+    }
+
+    /**
+     * An error creating a Jaxb context within
+     * {@link ConcurrentMap#computeIfAbsent(Object, java.util.function.Function)}.
+     * @author Miguel Jimenez (miguel@uvic.ca)
+     * @version $Id$
+     * @since 0.1.0
+     */
+    private static final class ContextException extends RuntimeException {
+
+        /**
+         * A serial version UID.
+         */
+        private static final long serialVersionUID = -2781146357318409203L;
+
+        /**
+         * Default constructor.
+         * @param cause The error creating the context
+         */
+        ContextException(final JAXBException cause) {
+            super(cause);
+        }
+
+        @Override
+        public synchronized JAXBException getCause() {
+            return (JAXBException) super.getCause();
+        }
+
+    }
+
+    /**
+     * A Jaxb context along with the marshaller and unmarshaller of each
+     * thread, which are not thread-safe.
+     * @author Miguel Jimenez (miguel@uvic.ca)
+     * @version $Id$
+     * @since 0.1.0
+     */
+    private static final class Context {
+
+        /**
+         * The Jaxb context.
+         */
+        private final JAXBContext context;
+
+        /**
+         * The unmarshaller of each thread.
+         */
+        private final ThreadLocal<Unmarshaller> unmarshallers;
+
+        /**
+         * The marshaller of each thread.
+         */
+        private final ThreadLocal<Marshaller> marshallers;
+
+        /**
+         * Default constructor.
+         * @param context The Jaxb context
+         */
+        Context(final JAXBContext context) {
+            this.context = context;
+            this.unmarshallers = new ThreadLocal<>();
+            this.marshallers = new ThreadLocal<>();
+        }
+
+        /**
+         * The current thread's unmarshaller.
+         * @return A reusable unmarshaller
+         * @throws JAXBException If there is an error creating the unmarshaller
+         */
+        Unmarshaller unmarshaller() throws JAXBException {
+            Unmarshaller unmarshaller = this.unmarshallers.get();
+            if (unmarshaller == null) {
+                unmarshaller = this.context.createUnmarshaller();
+                this.unmarshallers.set(unmarshaller);
+            }
+            return unmarshaller;
+        }
+
+        /**
+         * The current thread's marshaller, producing formatted output.
+         * @return A reusable marshaller
+         * @throws JAXBException If there is an error creating the marshaller
+         */
+        Marshaller marshaller() throws JAXBException {
+            Marshaller marshaller = this.marshallers.get();
+            if (marshaller == null) {
+                marshaller = this.context.createMarshaller();
+                marshaller.setProperty(
+                    Marshaller.JAXB_FORMATTED_OUTPUT,
+                    Boolean.TRUE
+                );
+                this.marshallers.set(marshaller);
+            }
+            return marshaller;
+        }
+
     }
 
 }
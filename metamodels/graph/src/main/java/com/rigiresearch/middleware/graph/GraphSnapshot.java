@@ -0,0 +1,592 @@
+package com.rigiresearch.middleware.graph;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+import java.io.StreamCorruptedException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.zip.CRC32;
+
+/**
+ * A compact binary representation of a {@link Graph}, meant to be loaded
+ * faster than the XML representation.
+ * <p>
+ * The XML representation remains the source of truth: each snapshot stores a
+ * checksum of the XML content from which it was written, and reading it
+ * against different content yields nothing. Strings are interned in a table
+ * and referenced by index, nodes are referenced by their position, and the
+ * dependencies of each node are stored so that the graph indexes need not be
+ * computed again. Plain metadata properties are written field by field;
+ * subclasses of {@link Property} are written together using Java
+ * serialization, so that their class descriptors are written only once.
+ * <p>
+ * Reading a truncated or corrupted snapshot fails with an
+ * {@link IOException} (e.g., {@link java.io.EOFException},
+ * {@link StreamCorruptedException} or
+ * {@link java.io.InvalidClassException}), so that callers can fall back to
+ * the XML representation.
+ * @author Miguel Jimenez (miguel@uvic.ca)
+ * @version $Id$
+ * @since 0.1.0
+ */
+public final class GraphSnapshot {
+
+    /**
+     * The magic number identifying snapshots.
+     */
+    private static final int MAGIC = 0x47524150;
+
+    /**
+     * The version of the format.
+     */
+    private static final int VERSION = 1;
+
+    /**
+     * A missing reference (e.g., a null string or a node without template).
+     */
+    private static final int NONE = -1;
+
+    /**
+     * The kind of {@link Input} parameters.
+     */
+    private static final byte INPUT = 0;
+
+    /**
+     * The kind of {@link Output} parameters.
+     */
+    private static final byte OUTPUT = 1;
+
+    /**
+     * The kind of plain metadata properties.
+     */
+    private static final byte PLAIN = 0;
+
+    /**
+     * The kind of serialized metadata properties.
+     */
+    private static final byte SERIALIZED = 1;
+
+    /**
+     * The size of the buffer used to read snapshots.
+     */
+    private static final int BUFFER_SIZE = 8192;
+
+    /**
+     * Writes a snapshot of a graph.
+     * @param graph The graph
+     * @param source The XML content from which the graph was read
+     * @param output The output stream (it is not closed)
+     * @param <T> The subtype of {@link Node}
+     * @throws IOException If there's an I/O error
+     */
+    public <T extends Node> void write(final Graph<T> graph,
+        final byte[] source, final OutputStream output) throws IOException {
+        final GraphSnapshot.Encoder encoder =
+            new GraphSnapshot.Encoder(graph.getNodes());
+        encoder.encode(graph);
+        final DataOutputStream data = new DataOutputStream(output);
+        data.writeInt(GraphSnapshot.MAGIC);
+        data.writeInt(GraphSnapshot.VERSION);
+        data.writeLong(GraphSnapshot.checksum(source));
+        encoder.writeTo(data);
+        data.flush();
+    }
+
+    /**
+     * Reads a snapshot. The stream is closed afterwards.
+     * @param input The input stream
+     * @param source The current XML content of the graph
+     * @return The graph, or empty if the snapshot was not written from the
+     *  same XML content or with the same version of the format
+     * @throws IOException If there's an I/O error or the snapshot is
+     *  truncated or corrupted
+     */
+    public Optional<Graph<Node>> read(final InputStream input,
+        final byte[] source) throws IOException {
+        Optional<Graph<Node>> graph = Optional.empty();
+        try (DataInputStream data = new DataInputStream(input)) {
+            if (data.readInt() == GraphSnapshot.MAGIC
+                && data.readInt() == GraphSnapshot.VERSION
+                && data.readLong() == GraphSnapshot.checksum(source)) {
+                // The body is buffered so that sizes can be checked against it
+                final DataInputStream body = new DataInputStream(
+                    new ByteArrayInputStream(GraphSnapshot.bytes(data))
+                );
+                graph = Optional.of(new GraphSnapshot.Decoder(body).decode());
+            }
+        }
+        return graph;
+    }
+
+    /**
+     * Reads the remaining contents of a stream.
+     * @param input The input stream
+     * @return The bytes read
+     * @throws IOException If there's an I/O error
+     */
+    private static byte[] bytes(final InputStream input) throws IOException {
+        final ByteArrayOutputStream output = new ByteArrayOutputStream();
+        final byte[] buffer = new byte[GraphSnapshot.BUFFER_SIZE];
+        int read = input.read(buffer);
+        while (read != -1) {
+            output.write(buffer, 0, read);
+            read = input.read(buffer);
+        }
+        return output.toByteArray();
+    }
+
+    /**
+     * Computes the checksum of some content.
+     * @param source The content
+     * @return The CRC-32 checksum
+     */
+    private static long checksum(final byte[] source) {
+        final CRC32 crc = new CRC32();
+        crc.update(source);
+        return crc.getValue();
+    }
+
+    /**
+     * Writes the nodes of a graph, interning strings along the way.
+     * @author Miguel Jimenez (miguel@uvic.ca)
+     * @version $Id$
+     * @since 0.1.0
+     */
+    private static final class Encoder {
+
+        /**
+         * The nodes in the order they are written.
+         */
+        private final List<Node> nodes;
+
+        /**
+         * The position of each node, indexed by name.
+         */
+        private final Map<String, Integer> positions;
+
+        /**
+         * The interned strings along with their position.
+         */
+        private final Map<String, Integer> strings;
+
+        /**
+         * The metadata properties to serialize, referenced by position.
+         */
+        private final List<Property> serialized;
+
+        /**
+         * The encoded nodes.
+         */
+        private final ByteArrayOutputStream bytes;
+
+        /**
+         * A data view of the encoded nodes.
+         */
+        private final DataOutputStream body;
+
+        /**
+         * Default constructor.
+         * @param nodes The nodes to encode
+         */
+        Encoder(final Set<? extends Node> nodes) {
+            this.nodes = new ArrayList<>(nodes);
+            this.positions = new HashMap<>(nodes.size());
+            this.strings = new HashMap<>(nodes.size());
+            this.serialized = new ArrayList<>(0);
+            this.bytes = new ByteArrayOutputStream();
+            this.body = new DataOutputStream(this.bytes);
+        }
+
+        /**
+         * Encodes the nodes and their dependencies.
+         * @param graph The graph containing the nodes
+         * @param <T> The subtype of {@link Node}
+         * @throws IOException If there's an I/O error
+         */
+        @SuppressWarnings("unchecked")
+        <T extends Node> void encode(final Graph<T> graph) throws IOException {
+            for (int idx = 0; idx < this.nodes.size(); idx += 1) {
+                this.positions.put(this.nodes.get(idx).getName(), idx);
+            }
+            this.body.writeInt(this.nodes.size());
+            for (final Node node : this.nodes) {
+                this.node(node);
+            }
+            for (final Node node : this.nodes) {
+                final Set<Node> dependencies = graph.dependencies((T) node);
+                this.body.writeInt(dependencies.size());
+                for (final Node dependency : dependencies) {
+                    this.body.writeInt(this.position(dependency));
+                }
+            }
+            this.body.flush();
+        }
+
+        /**
+         * Writes the string table and the serialized properties, followed by
+         * the encoded nodes.
+         * @param output The output stream
+         * @throws IOException If there's an I/O error
+         */
+        void writeTo(final DataOutputStream output) throws IOException {
+            final String[] table = new String[this.strings.size()];
+            this.strings.forEach((string, idx) -> table[idx] = string);
+            output.writeInt(table.length);
+            for (final String string : table) {
+                output.writeUTF(string);
+            }
+            final ByteArrayOutputStream objects = new ByteArrayOutputStream();
+            if (!this.serialized.isEmpty()) {
+                try (ObjectOutputStream stream = new ObjectOutputStream(objects)) {
+                    stream.writeObject(new ArrayList<>(this.serialized));
+                }
+            }
+            output.writeInt(objects.size());
+            objects.writeTo(output);
+            this.bytes.writeTo(output);
+        }
+
+        /**
+         * Encodes a node.
+         * @param node The node
+         * @throws IOException If there's an I/O error
+         */
+        private void node(final Node node) throws IOException {
+            this.string(node.getName());
+            if (node.isTemplateBased()) {
+                this.body.writeInt(this.position(node.getTemplate()));
+            } else {
+                this.body.writeInt(GraphSnapshot.NONE);
+            }
+            final Set<Parameter> parameters = node.getParameters(false);
+            this.body.writeInt(parameters.size());
+            for (final Parameter parameter : parameters) {
+                this.parameter(parameter);
+            }
+            this.body.writeInt(node.getMetadata().size());
+            for (final Property property : node.getMetadata()) {
+                this.property(property);
+            }
+        }
+
+        /**
+         * Encodes a parameter.
+         * @param parameter The parameter
+         * @throws IOException If there's an I/O error
+         */
+        private void parameter(final Parameter parameter) throws IOException {
+            if (parameter instanceof Input) {
+                final Input input = (Input) parameter;
+                this.body.writeByte(GraphSnapshot.INPUT);
+                this.string(input.getName());
+                this.string(input.getValue());
+                if (input.hasSource()) {
+                    this.body.writeInt(this.position(input.getSource()));
+                } else {
+                    this.body.writeInt(GraphSnapshot.NONE);
+                }
+            } else {
+                final Output output = (Output) parameter;
+                this.body.writeByte(GraphSnapshot.OUTPUT);
+                this.string(output.getName());
+                this.string(output.getSelector());
+                this.body.writeBoolean(Boolean.TRUE.equals(output.isMultivalued()));
+            }
+        }
+
+        /**
+         * Encodes a metadata property.
+         * @param property The property
+         * @throws IOException If there's an I/O error
+         */
+        private void property(final Property property) throws IOException {
+            if (property.getClass().equals(Property.class)) {
+                this.body.writeByte(GraphSnapshot.PLAIN);
+                this.string(property.getName());
+                this.string(property.getValue());
+            } else {
+                this.body.writeByte(GraphSnapshot.SERIALIZED);
+                this.body.writeInt(this.serialized.size());
+                this.serialized.add(property);
+            }
+        }
+
+        /**
+         * Encodes a reference to an interned string.
+         * @param string The string, or null
+         * @throws IOException If there's an I/O error
+         */
+        private void string(final String string) throws IOException {
+            if (string == null) {
+                this.body.writeInt(GraphSnapshot.NONE);
+            } else {
+                this.body.writeInt(
+                    this.strings.computeIfAbsent(string, key -> this.strings.size())
+                );
+            }
+        }
+
+        /**
+         * Finds the position of a node.
+         * @param node The node
+         * @return The position of the node with the same name
+         */
+        private int position(final Node node) {
+            final Integer position = this.positions.get(node.getName());
+            if (position == null) {
+                throw new IllegalArgumentException(
+                    String.format("Node %s was not found in this graph", node)
+                );
+            }
+            return position;
+        }
+
+    }
+
+    /**
+     * Reads the nodes of a graph.
+     * @author Miguel Jimenez (miguel@uvic.ca)
+     * @version $Id$
+     * @since 0.1.0
+     */
+    private static final class Decoder {
+
+        /**
+         * The input stream.
+         */
+        private final DataInputStream data;
+
+        /**
+         * The read nodes.
+         */
+        private final List<Node> nodes;
+
+        /**
+         * The position of the source of each input.
+         */
+        private final Map<Input, Integer> sources;
+
+        /**
+         * The interned strings.
+         */
+        private String[] strings;
+
+        /**
+         * The serialized metadata properties.
+         */
+        private List<Property> serialized;
+
+        /**
+         * The number of nodes.
+         */
+        private int total;
+
+        /**
+         * Default constructor.
+         * @param data The input stream
+         */
+        Decoder(final DataInputStream data) {
+            this.data = data;
+            this.nodes = new ArrayList<>(0);
+            this.sources = new IdentityHashMap<>(0);
+            this.strings = new String[0];
+            this.serialized = new ArrayList<>(0);
+        }
+
+        /**
+         * Decodes the graph.
+         * @return A non-null graph
+         * @throws IOException If there's an I/O error
+         */
+        Graph<Node> decode() throws IOException {
+            this.strings = new String[this.size()];
+            for (int idx = 0; idx < this.strings.length; idx += 1) {
+                this.strings[idx] = this.data.readUTF();
+            }
+            this.serialized = this.properties();
+            final int[] templates = new int[this.size()];
+            this.total = templates.length;
+            for (int idx = 0; idx < templates.length; idx += 1) {
+                final String name = this.string();
+                templates[idx] = this.index(this.total);
+                this.nodes.add(new Node(name, this.parameters(), this.metadata()));
+            }
+            for (int idx = 0; idx < templates.length; idx += 1) {
+                if (templates[idx] != GraphSnapshot.NONE) {
+                    this.nodes.get(idx).setTemplate(this.nodes.get(templates[idx]));
+                }
+            }
+            this.sources.forEach(
+                (input, position) -> input.setSource(this.nodes.get(position))
+            );
+            final Map<Node, Set<Node>> dependencies =
+                new HashMap<>(this.nodes.size());
+            for (final Node node : this.nodes) {
+                final int size = this.size();
+                final Set<Node> set = new HashSet<>(size);
+                for (int idx = 0; idx < size; idx += 1) {
+                    set.add(this.nodes.get(this.position(this.total)));
+                }
+                dependencies.put(node, set);
+            }
+            final Graph<Node> graph = new Graph<>(new LinkedHashSet<>(this.nodes));
+            graph.index(dependencies);
+            return graph;
+        }
+
+        /**
+         * Decodes the parameters of a node.
+         * @return A non-null set
+         * @throws IOException If there's an I/O error
+         */
+        private Set<Parameter> parameters() throws IOException {
+            final int size = this.size();
+            final Set<Parameter> parameters = new TreeSet<>();
+            for (int idx = 0; idx < size; idx += 1) {
+                if (this.data.readByte() == GraphSnapshot.INPUT) {
+                    final Input input = new Input(this.string(), this.string());
+                    final int source = this.index(this.total);
+                    if (source != GraphSnapshot.NONE) {
+                        this.sources.put(input, source);
+                    }
+                    parameters.add(input);
+                } else {
+                    parameters.add(
+                        new Output(this.string(), this.string(), this.data.readBoolean())
+                    );
+                }
+            }
+            return parameters;
+        }
+
+        /**
+         * Decodes the metadata of a node.
+         * @return A non-null set
+         * @throws IOException If there's an I/O error
+         */
+        private Set<Property> metadata() throws IOException {
+            final int size = this.size();
+            final Set<Property> metadata = new TreeSet<>();
+            for (int idx = 0; idx < size; idx += 1) {
+                if (this.data.readByte() == GraphSnapshot.PLAIN) {
+                    metadata.add(new Property(this.string(), this.string()));
+                } else {
+                    metadata.add(
+                        this.serialized.get(this.position(this.serialized.size()))
+                    );
+                }
+            }
+            return metadata;
+        }
+
+        /**
+         * Decodes the serialized metadata properties.
+         * @return A non-null list
+         * @throws IOException If there's an I/O error
+         */
+        private List<Property> properties() throws IOException {
+            final byte[] bytes = new byte[this.size()];
+            this.data.readFully(bytes);
+            final List<Property> properties = new ArrayList<>(0);
+            if (bytes.length > 0) {
+                final Object object;
+                try (ObjectInputStream stream =
+                    new ObjectInputStream(new ByteArrayInputStream(bytes))) {
+                    object = stream.readObject();
+                } catch (final ClassNotFoundException exception) {
+                    throw new IOException(exception);
+                }
+                if (!(object instanceof List)) {
+                    throw new StreamCorruptedException("Expected a list of properties");
+                }
+                for (final Object element : (List<?>) object) {
+                    if (!(element instanceof Property)) {
+                        throw new StreamCorruptedException("Expected a property");
+                    }
+                    properties.add((Property) element);
+                }
+            }
+            return properties;
+        }
+
+        /**
+         * Decodes a reference to an interned string.
+         * @return The string, or null
+         * @throws IOException If there's an I/O error
+         */
+        private String string() throws IOException {
+            final int position = this.index(this.strings.length);
+            String string = null;
+            if (position != GraphSnapshot.NONE) {
+                string = this.strings[position];
+            }
+            return string;
+        }
+
+        /**
+         * Decodes the size of a collection. Every element takes at least one
+         * byte, so a size larger than the remaining bytes is corrupted.
+         * @return A positive number or zero
+         * @throws IOException If there's an I/O error or the size is not
+         *  valid
+         */
+        private int size() throws IOException {
+            final int size = this.data.readInt();
+            if (size < 0 || size > this.data.available()) {
+                throw new StreamCorruptedException(
+                    String.format("Invalid size %d", size)
+                );
+            }
+            return size;
+        }
+
+        /**
+         * Decodes a position within a collection, or a missing reference.
+         * @param size The size of the collection
+         * @return A valid position or {@link GraphSnapshot#NONE}
+         * @throws IOException If there's an I/O error or the position is not
+         *  valid
+         */
+        private int index(final int size) throws IOException {
+            final int position = this.data.readInt();
+            if (position != GraphSnapshot.NONE && (position < 0 || position >= size)) {
+                throw new StreamCorruptedException(
+                    String.format("Invalid position %d (size: %d)", position, size)
+                );
+            }
+            return position;
+        }
+
+        /**
+         * Decodes a position within a collection.
+         * @param size The size of the collection
+         * @return A valid position
+         * @throws IOException If there's an I/O error or the position is not
+         *  valid
+         */
+        private int position(final int size) throws IOException {
+            final int position = this.index(size);
+            if (position == GraphSnapshot.NONE) {
+                throw new StreamCorruptedException("Missing position");
+            }
+            return position;
+        }
+
+    }
+
+}
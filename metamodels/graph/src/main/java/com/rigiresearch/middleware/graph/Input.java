@@ -136,6 +136,17 @@ public class Input extends Parameter {
         this.value = value;
     }
 
+    /**
+     * Updates the containing node of the referenced output. It is meant to be
+     * used only while the graph is being built (e.g., by
+     * {@link GraphSnapshot}).
+     * @param source The containing node
+     */
+    @SuppressWarnings("checkstyle:HiddenField")
+    void setSource(final Node source) {
+        this.source = source;
+    }
+
     /**
      * A node.
      * @return The containing node of the referenced output
@@ -1,14 +1,14 @@
 package com.rigiresearch.middleware.graph;
 
 import java.io.Serializable;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.Objects;
-import java.util.Optional;
 import java.util.Set;
 import java.util.TreeSet;
-import java.util.function.Function;
 import java.util.stream.Collectors;
 import javax.xml.bind.Marshaller;
 import javax.xml.bind.annotation.XmlAttribute;
@@ -80,6 +80,12 @@ public class Node implements Serializable, Comparable<Node> {
     @XmlElementWrapper(name = "metadata")
     private Set<Property> metadata;
 
+    /**
+     * The merged parameters, computed on demand. The view is immutable, so
+     * concurrent readers at most compute it more than once.
+     */
+    private transient Node.Merged merged;
+
     /**
      * Empty constructor.
      */
@@ -115,16 +121,26 @@ public class Node implements Serializable, Comparable<Node> {
     }
 
     /**
-     * Finds the dependencies of this node.
-     * @return A set of dependent nodes
+     * Copy constructor. Unlike the other constructors, the copy shares the
+     * parameters, metadata and merged parameters of the original node rather
+     * than copying them, so neither node should modify them afterwards.
+     * @param node The original node
+     */
+    protected Node(final Node node) {
+        this.name = node.name;
+        this.template = node.template;
+        this.parameters = node.parameters;
+        this.metadata = node.metadata;
+        this.merged = node.merged();
+    }
+
+    /**
+     * Finds the dependencies of this node. The set is computed once per
+     * merged view, so the inputs' sources must be resolved beforehand.
+     * @return An unmodifiable set of dependent nodes
      */
     public Set<Node> dependencies() {
-        return this.getParameters(true).stream()
-            .filter(Input.class::isInstance)
-            .map(Input.class::cast)
-            .filter(Input::hasSource)
-            .map(Input::getSource)
-            .collect(Collectors.toSet());
+        return this.merged().sources();
     }
 
     /**
@@ -244,6 +260,15 @@ public class Node implements Serializable, Comparable<Node> {
         return this.name;
     }
 
+    /**
+     * A stable identifier for this node within a graph. Subtypes whose
+     * instances share the name must override it.
+     * @return The name, by default
+     */
+    public String getIdentifier() {
+        return this.name;
+    }
+
     /**
      * A node on which this node is based.
      * @return The template node or the template pill
@@ -252,6 +277,16 @@ public class Node implements Serializable, Comparable<Node> {
         return this.template;
     }
 
+    /**
+     * Updates the node on which this node is based. It is meant to be used
+     * only while the graph is being built (e.g., by {@link GraphSnapshot}).
+     * @param template The template node
+     */
+    @SuppressWarnings("checkstyle:HiddenField")
+    void setTemplate(final Node template) {
+        this.template = template;
+    }
+
     /**
      * Whether this node is based on a template.
      * @return Whether this node is based on a template.
@@ -261,45 +296,52 @@ public class Node implements Serializable, Comparable<Node> {
     }
 
     /**
-     * A set of parameters.
+     * A set of parameters. Neither set can be modified; the merged set is
+     * computed once and reused until this node's template changes.
      * @param merge Whether to merge the parameters for template-based nodes
-     * @return The set of parameters
+     * @return An unmodifiable set of parameters
      */
     public Set<Parameter> getParameters(final boolean merge) {
-        Set<Parameter> set = new HashSet<>(this.parameters.size());
-        if (merge && this.isTemplateBased()) {
-            // Get the inherited parameters
-            final Set<Parameter> inherited =
-                this.template.getParameters(true);
-            final Map<String, Input> inputs = inherited.stream()
-                .filter(Input.class::isInstance)
-                .map(Input.class::cast)
-                .collect(
-                    Collectors.toMap(Input::getName, Function.identity())
-                );
-            final Map<String, Output> outputs = inherited.stream()
-                .filter(Output.class::isInstance)
-                .map(Output.class::cast)
-                .collect(
-                    Collectors.toMap(Output::getName, Function.identity())
-                );
-            // Add/replace the parameters based on this node's own parameters
-            this.parameters.stream()
-                .filter(Input.class::isInstance)
-                .map(Input.class::cast)
-                .forEach(input -> inputs.put(input.getName(), input));
-            this.parameters.stream()
-                .filter(Output.class::isInstance)
-                .map(Output.class::cast)
-                .forEach(output -> outputs.put(output.getName(), output));
-            set.addAll(inputs.values());
-            set.addAll(outputs.values());
+        final Set<Parameter> set;
+        if (merge) {
+            set = this.merged().parameters;
         } else {
-            set = this.parameters;
+            set = Collections.unmodifiableSet(this.parameters);
         }
         return set;
     }
 
+    /**
+     * The inputs of this node, including those inherited from its template.
+     * @return An unmodifiable collection of inputs
+     */
+    public Collection<Input> getInputs() {
+        return this.merged().inputs.values();
+    }
+
+    /**
+     * The outputs of this node, including those inherited from its template.
+     * @return An unmodifiable collection of outputs
+     */
+    public Collection<Output> getOutputs() {
+        return this.merged().outputs.values();
+    }
+
+    /**
+     * The merged parameters of this node, computing them if they have not
+     * been computed or if the template (or any template up the chain) has
+     * changed since they were.
+     * @return The merged parameters
+     */
+    private Node.Merged merged() {
+        Node.Merged current = this.merged;
+        if (current == null || !current.isValidFor(this)) {
+            current = new Node.Merged(this);
+            this.merged = current;
+        }
+        return current;
+    }
+
     /**
      * Finds a parameter by name.
      * @param merge Whether to merge the parameters for template-based nodes
@@ -311,14 +353,16 @@ public class Node implements Serializable, Comparable<Node> {
      */
     public <T extends Parameter> T getParameter(final boolean merge,
         final String param, final Class<T> type) throws IllegalArgumentException {
-        final Optional<T> parameter = this.getParameters(merge)
-            .stream()
-            .filter(type::isInstance)
-            .map(type::cast)
-            .filter(tmp -> tmp.getName().equals(param))
-            .findFirst();
-        if (parameter.isPresent()) {
-            return parameter.get();
+        final Collection<Parameter> candidates;
+        if (merge) {
+            candidates = Node.candidates(this.merged(), param);
+        } else {
+            candidates = this.parameters;
+        }
+        for (final Parameter parameter : candidates) {
+            if (type.isInstance(parameter) && parameter.getName().equals(param)) {
+                return type.cast(parameter);
+            }
         }
         throw new IllegalArgumentException(
             String.format(
@@ -336,4 +380,199 @@ public class Node implements Serializable, Comparable<Node> {
     public Set<Property> getMetadata() {
         return this.metadata;
     }
+
+    /**
+     * Finds the merged parameters with a given name.
+     * @param merged The merged parameters
+     * @param name The parameter's name
+     * @return The input and output with the given name, if any
+     */
+    private static Collection<Parameter> candidates(final Node.Merged merged,
+        final String name) {
+        final Collection<Parameter> candidates = new HashSet<>(2);
+        final Input input = merged.inputs.get(name);
+        if (input != null) {
+            candidates.add(input);
+        }
+        final Output output = merged.outputs.get(name);
+        if (output != null) {
+            candidates.add(output);
+        }
+        return candidates;
+    }
+
+    /**
+     * An immutable view of the parameters of a node merged with those of its
+     * template, indexed by name and type.
+     * @author Miguel Jimenez (miguel@uvic.ca)
+     * @version $Id$
+     * @since 0.1.0
+     */
+    private static final class Merged {
+
+        /**
+         * The node's template when the parameters were merged.
+         */
+        private final Node template;
+
+        /**
+         * The template's merged parameters when the parameters were merged.
+         */
+        private final Node.Merged inherited;
+
+        /**
+         * The merged inputs, indexed by name.
+         */
+        private final Map<String, Input> inputs;
+
+        /**
+         * The merged outputs, indexed by name.
+         */
+        private final Map<String, Output> outputs;
+
+        /**
+         * All of the merged parameters.
+         */
+        private final Set<Parameter> parameters;
+
+        /**
+         * The sources of the merged inputs, computed on demand. Concurrent
+         * readers at most compute them more than once.
+         */
+        private volatile Set<Node> sources;
+
+        /**
+         * Secondary constructor. It merges the parameters of a node.
+         * @param node The node
+         */
+        Merged(final Node node) {
+            this(node, Node.Merged.inherited(node));
+        }
+
+        /**
+         * Default constructor.
+         * @param node The node
+         * @param inherited The template's merged parameters, or null
+         */
+        Merged(final Node node, final Node.Merged inherited) {
+            this.template = node.template;
+            this.inherited = inherited;
+            this.inputs = Collections.unmodifiableMap(
+                Node.Merged.merge(node, inherited, Input.class)
+            );
+            this.outputs = Collections.unmodifiableMap(
+                Node.Merged.merge(node, inherited, Output.class)
+            );
+            this.parameters = Collections.unmodifiableSet(
+                Node.Merged.union(node, this.inputs, this.outputs)
+            );
+        }
+
+        /**
+         * Whether these parameters are still up to date for a node, that is,
+         * whether the template chain has not changed since they were merged.
+         * @param node The node
+         * @return Whether the parameters can be reused
+         */
+        boolean isValidFor(final Node node) {
+            boolean valid = this.template == node.template;
+            if (valid && node.isTemplateBased()) {
+                valid = this.inherited == node.template.merged();
+            }
+            return valid;
+        }
+
+        /**
+         * The sources of the merged inputs, computing them if they have not
+         * been computed.
+         * @return An unmodifiable set of nodes
+         */
+        Set<Node> sources() {
+            Set<Node> current = this.sources;
+            if (current == null) {
+                current = Collections.unmodifiableSet(
+                    this.inputs.values().stream()
+                        .filter(Input::hasSource)
+                        .map(Input::getSource)
+                        .collect(Collectors.toSet())
+                );
+                this.sources = current;
+            }
+            return current;
+        }
+
+        /**
+         * Finds the merged parameters of a node's template.
+         * @param node The node
+         * @return The merged parameters, or null if the node is not based on
+         *  a template
+         */
+        @SuppressWarnings("PMD.NullAssignment")
+        private static Node.Merged inherited(final Node node) {
+            Node.Merged inherited = null;
+            if (node.isTemplateBased()) {
+                inherited = node.template.merged();
+            }
+            return inherited;
+        }
+
+        /**
+         * Merges the inherited parameters of a type with the node's own
+         * parameters, which replace the inherited ones with the same name.
+         * @param node The node
+         * @param inherited The template's merged parameters, or null
+         * @param type The parameter type
+         * @param <T> The type of the parameter (e.g., {@link Input})
+         * @return A new map indexed by parameter name
+         */
+        private static <T extends Parameter> Map<String, T> merge(
+            final Node node, final Node.Merged inherited, final Class<T> type) {
+            final Map<String, T> map =
+                new LinkedHashMap<>(node.parameters.size());
+            if (inherited != null) {
+                Node.Merged.put(map, inherited.parameters, type);
+            }
+            Node.Merged.put(map, node.parameters, type);
+            return map;
+        }
+
+        /**
+         * Adds the parameters of a type to a map, replacing those with the
+         * same name.
+         * @param map The map indexed by parameter name
+         * @param parameters The parameters to add
+         * @param type The parameter type
+         * @param <T> The type of the parameter (e.g., {@link Input})
+         */
+        private static <T extends Parameter> void put(final Map<String, T> map,
+            final Set<Parameter> parameters, final Class<T> type) {
+            for (final Parameter parameter : parameters) {
+                if (type.isInstance(parameter)) {
+                    map.put(parameter.getName(), type.cast(parameter));
+                }
+            }
+        }
+
+        /**
+         * Collects the merged inputs and outputs into a single set. Nodes
+         * not based on a template keep their own (sorted) set.
+         * @param node The node
+         * @param inputs The merged inputs
+         * @param outputs The merged outputs
+         * @return A set of parameters
+         */
+        private static Set<Parameter> union(final Node node,
+            final Map<String, Input> inputs, final Map<String, Output> outputs) {
+            final Set<Parameter> set;
+            if (node.isTemplateBased()) {
+                set = new HashSet<>(inputs.size() + outputs.size());
+                set.addAll(inputs.values());
+                set.addAll(outputs.values());
+            } else {
+                set = node.parameters;
+            }
+            return set;
+        }
+
+    }
 }
@@ -0,0 +1,192 @@
+package com.rigiresearch.middleware.graph;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeSet;
+import javax.xml.bind.JAXBException;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests {@link GraphSnapshot}.
+ * @author Miguel Jimenez (miguel@uvic.ca)
+ * @version $Id$
+ * @since 0.1.0
+ */
+@SuppressWarnings("PMD.AvoidDuplicateLiterals")
+final class GraphSnapshotTest {
+
+    /**
+     * The XML content of the graph.
+     */
+    private static final byte[] XML = String.join(
+        "\n",
+        "<?xml version=\"1.0\" encoding=\"UTF-8\"?>",
+        String.format("<graph xmlns=\"%s\">", Graph.NAMESPACE),
+        "    <node name=\"a\">",
+        "        <output name=\"out\" selector=\"value\" multivalued=\"true\"/>",
+        "        <metadata>",
+        "            <property name=\"key\" value=\"value\"/>",
+        "        </metadata>",
+        "    </node>",
+        "    <node name=\"b\">",
+        "        <input name=\"in\" source=\"a\">out</input>",
+        "        <input name=\"limit\">10</input>",
+        "    </node>",
+        "    <node name=\"c\" template=\"b\">",
+        "        <input name=\"limit\">20</input>",
+        "    </node>",
+        "</graph>"
+    ).getBytes(StandardCharsets.UTF_8);
+
+    /**
+     * The size of the snapshot header, in bytes.
+     */
+    private static final int HEADER = 16;
+
+    @Test
+    void testRoundTrip() throws JAXBException, IOException {
+        final Graph<Node> original = new GraphParser()
+            .instance(new ByteArrayInputStream(GraphSnapshotTest.XML));
+        final Set<Property> metadata = new TreeSet<>();
+        metadata.add(new GraphSnapshotTest.Tag("tag", "value"));
+        original.getNodes().add(
+            new Node("d", Collections.emptySet(), metadata)
+        );
+        final Graph<Node> graph = GraphSnapshotTest.snapshot(
+            original,
+            GraphSnapshotTest.XML
+        ).get();
+        Assertions.assertEquals(original, graph, "The graphs should be equal");
+        final Node node = GraphSnapshotTest.find(graph, "c");
+        Assertions.assertSame(
+            GraphSnapshotTest.find(graph, "b"),
+            node.getTemplate(),
+            "\"c\" should be based on \"b\""
+        );
+        final Input input = node.getParameter(true, "in", Input.class);
+        Assertions.assertSame(
+            GraphSnapshotTest.find(graph, "a"),
+            input.getSource(),
+            "The source should be resolved"
+        );
+        Assertions.assertEquals(
+            "20",
+            node.getParameter(true, "limit", Input.class).getValue(),
+            "The template's input should be overridden"
+        );
+        Assertions.assertTrue(
+            GraphSnapshotTest.find(graph, "a")
+                .getParameter(false, "out", Output.class)
+                .isMultivalued(),
+            "The output should be multivalued"
+        );
+        Assertions.assertEquals(
+            original.dependents(GraphSnapshotTest.find(original, "a")),
+            graph.dependents(GraphSnapshotTest.find(graph, "a")),
+            "The dependents should be equal"
+        );
+        Assertions.assertTrue(
+            GraphSnapshotTest.find(graph, "d").getMetadata().iterator().next()
+                instanceof GraphSnapshotTest.Tag,
+            "The metadata subclass should be preserved"
+        );
+    }
+
+    @Test
+    void testOutdatedSnapshot() throws JAXBException, IOException {
+        final Graph<Node> graph = new GraphParser()
+            .instance(new ByteArrayInputStream(GraphSnapshotTest.XML));
+        Assertions.assertFalse(
+            GraphSnapshotTest.snapshot(graph, new byte[0]).isPresent(),
+            "The snapshot should be ignored when the XML changes"
+        );
+    }
+
+    @Test
+    void testCorruptedSnapshot() throws JAXBException, IOException {
+        final Graph<Node> graph = new GraphParser()
+            .instance(new ByteArrayInputStream(GraphSnapshotTest.XML));
+        final GraphSnapshot snapshot = new GraphSnapshot();
+        final ByteArrayOutputStream output = new ByteArrayOutputStream();
+        snapshot.write(graph, GraphSnapshotTest.XML, output);
+        final byte[] bytes = output.toByteArray();
+        final byte[] truncated = Arrays.copyOf(bytes, bytes.length / 2);
+        Assertions.assertThrows(
+            IOException.class,
+            () -> snapshot.read(new ByteArrayInputStream(truncated), GraphSnapshotTest.XML),
+            "A truncated snapshot should fail with an I/O error"
+        );
+        // Keep the header (magic number, version and checksum) intact
+        final byte[] corrupted = bytes.clone();
+        Arrays.fill(corrupted, GraphSnapshotTest.HEADER, corrupted.length, (byte) 0x7F);
+        Assertions.assertThrows(
+            IOException.class,
+            () -> snapshot.read(new ByteArrayInputStream(corrupted), GraphSnapshotTest.XML),
+            "A corrupted snapshot should fail with an I/O error"
+        );
+    }
+
+    /**
+     * Writes a snapshot of a graph and reads it back.
+     * @param graph The graph
+     * @param source The XML content against which the snapshot is read
+     * @return The graph read
+     * @throws IOException If there's an I/O error
+     */
+    private static Optional<Graph<Node>> snapshot(final Graph<Node> graph,
+        final byte[] source) throws IOException {
+        final GraphSnapshot snapshot = new GraphSnapshot();
+        final ByteArrayOutputStream output = new ByteArrayOutputStream();
+        snapshot.write(graph, GraphSnapshotTest.XML, output);
+        return snapshot.read(
+            new ByteArrayInputStream(output.toByteArray()),
+            source
+        );
+    }
+
+    /**
+     * Finds a node by name.
+     * @param graph The graph
+     * @param name The node's name
+     * @return The node
+     */
+    private static Node find(final Graph<Node> graph, final String name) {
+        return graph.getNodes()
+            .stream()
+            .filter(node -> node.getName().equals(name))
+            .findFirst()
+            .get();
+    }
+
+    /**
+     * A metadata property subclass.
+     * @author Miguel Jimenez (miguel@uvic.ca)
+     * @version $Id$
+     * @since 0.1.0
+     */
+    private static final class Tag extends Property {
+
+        /**
+         * A serial version UID.
+         */
+        private static final long serialVersionUID = 2108459392871950125L;
+
+        /**
+         * Default constructor.
+         * @param name The name of this property
+         * @param value The value of this property
+         */
+        Tag(final String name, final String value) {
+            super(name, value);
+        }
+
+    }
+
+}
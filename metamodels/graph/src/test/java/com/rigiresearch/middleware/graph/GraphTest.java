@@ -3,9 +3,14 @@ package com.rigiresearch.middleware.graph;
 import java.io.IOException;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
 import java.util.TreeSet;
+import java.util.stream.Collectors;
+import javax.xml.bind.JAXBException;
 import javax.xml.bind.SchemaOutputResolver;
 import javax.xml.transform.Result;
 import javax.xml.transform.stream.StreamResult;
@@ -81,6 +86,152 @@ final class GraphTest {
         );
     }
 
+    @Test
+    void testIncrementalIndex() {
+        final Set<Parameter> fparams = new TreeSet<>();
+        final Output output = new Output("output1", "value");
+        fparams.add(output);
+        final Node first = new Node("first", fparams, Collections.emptySet());
+        final Set<Node> nodes = new TreeSet<>();
+        nodes.add(first);
+        final Graph<Node> graph = new Graph<>(nodes);
+        Assertions.assertEquals(
+            Collections.emptySet(),
+            graph.dependents(first),
+            "\"first\" should not have dependents yet"
+        );
+        final Set<Parameter> sparams = new TreeSet<>();
+        sparams.add(new Input("input1", output.getName(), first));
+        final Node second = new Node("second", sparams, Collections.emptySet());
+        graph.getNodes().add(second);
+        Assertions.assertFalse(
+            graph.getNodes().add(
+                new Node("second", Collections.emptySet(), Collections.emptySet())
+            ),
+            "Nodes should be stored by identifier"
+        );
+        Assertions.assertEquals(
+            Collections.singleton(second),
+            graph.dependents(first),
+            "The index should include \"second\""
+        );
+        Assertions.assertEquals(
+            Collections.singleton(first),
+            graph.dependencies(second),
+            "\"first\" should be a dependency"
+        );
+        graph.getNodes().remove(second);
+        Assertions.assertEquals(
+            Collections.emptySet(),
+            graph.dependents(first),
+            "The index should no longer include \"second\""
+        );
+    }
+
+    @Test
+    void testLevelsAndCycles() throws JAXBException {
+        final Graph<Node> graph = new GraphParser()
+            .instance(
+                String.join(
+                    "\n",
+                    "<?xml version=\"1.0\" encoding=\"UTF-8\"?>",
+                    String.format("<graph xmlns=\"%s\">", Graph.NAMESPACE),
+                    "    <node name=\"a\">",
+                    "        <output name=\"out\" selector=\"value\"/>",
+                    "    </node>",
+                    "    <node name=\"b\">",
+                    "        <input name=\"in\" source=\"a\">out</input>",
+                    "        <output name=\"out\" selector=\"value\"/>",
+                    "    </node>",
+                    "    <node name=\"c\">",
+                    "        <input name=\"in1\" source=\"b\">out</input>",
+                    "        <input name=\"in2\" source=\"d\">out</input>",
+                    "        <output name=\"out\" selector=\"value\"/>",
+                    "    </node>",
+                    "    <node name=\"d\">",
+                    "        <input name=\"in\" source=\"c\">out</input>",
+                    "        <output name=\"out\" selector=\"value\"/>",
+                    "    </node>",
+                    "</graph>"
+                )
+            );
+        final List<Set<String>> levels = graph.levels()
+            .stream()
+            .map(GraphTest::names)
+            .collect(Collectors.toList());
+        Assertions.assertEquals(
+            Arrays.asList(Collections.singleton("a"), Collections.singleton("b")),
+            levels,
+            "Nodes in a cycle should not be part of any level"
+        );
+        Assertions.assertEquals(
+            new HashSet<>(Arrays.asList("c", "d")),
+            GraphTest.names(graph.cycles()),
+            "\"c\" and \"d\" should be part of a cycle"
+        );
+        Assertions.assertEquals(
+            Collections.emptySet(),
+            graph.unresolved(),
+            "All of the sources should be resolved"
+        );
+    }
+
+    @Test
+    void testUnresolved() {
+        final Set<Parameter> fparams = new TreeSet<>();
+        fparams.add(new Output("output1", "value"));
+        final Node first = new Node("first", fparams, Collections.emptySet());
+        final Set<Parameter> sparams = new TreeSet<>();
+        sparams.add(new Input("input1", "output1", first));
+        final Node second = new Node("second", sparams, Collections.emptySet());
+        final Graph<Node> graph = new Graph<>(Collections.singleton(second));
+        Assertions.assertEquals(
+            Collections.singleton(first),
+            graph.unresolved(),
+            "\"first\" is not part of the graph"
+        );
+        Assertions.assertEquals(
+            Collections.emptyList(),
+            graph.levels(),
+            "\"second\" can never be processed"
+        );
+    }
+
+    @Test
+    void testMergedParameters() {
+        final Set<Parameter> tparams = new TreeSet<>();
+        tparams.add(new Input("input1", "default"));
+        tparams.add(new Output("output1", "value"));
+        final Node template =
+            new Node("template", tparams, Collections.emptySet());
+        final Set<Parameter> nparams = new TreeSet<>();
+        final Input override = new Input("input1", "override");
+        nparams.add(override);
+        nparams.add(new Input("input2", "value"));
+        final Node node =
+            new Node("node", template, nparams, Collections.emptySet());
+        Assertions.assertEquals(
+            2,
+            node.getInputs().size(),
+            "The node should inherit and override inputs"
+        );
+        Assertions.assertSame(
+            override,
+            node.getParameter(true, "input1", Input.class),
+            "The node's own input should replace the inherited one"
+        );
+        Assertions.assertEquals(
+            "value",
+            node.getParameter(true, "output1", Output.class).getSelector(),
+            "The node should inherit outputs"
+        );
+        Assertions.assertSame(
+            node.getParameters(true),
+            node.getParameters(true),
+            "The merged parameters should be reused"
+        );
+    }
+
     @Test
     void testMetadata() {
         final Node first =
@@ -132,4 +283,15 @@ final class GraphTest {
             .generateSchema(resolver);
     }
 
+    /**
+     * Collects the names of some nodes.
+     * @param nodes The nodes
+     * @return A set of names
+     */
+    private static Set<String> names(final Set<Node> nodes) {
+        return nodes.stream()
+            .map(Node::getName)
+            .collect(Collectors.toSet());
+    }
+
 }
@@ -1,5 +1,6 @@
 package com.rigiresearch.middleware.vmware.hcl.agent;
 
+import com.rigiresearch.middleware.historian.runtime.GraphValidationException;
 import com.rigiresearch.middleware.historian.runtime.UnexpectedResponseCodeException;
 import java.io.IOException;
 import javax.xml.bind.JAXBException;
@@ -38,7 +39,7 @@ public final class Application {
             Runtime.getRuntime()
                 .addShutdownHook(new Thread(agent::stop));
         } catch (final IOException | ConfigurationException | JAXBException
-            | UnexpectedResponseCodeException exception) {
+            | UnexpectedResponseCodeException | GraphValidationException exception) {
             Application.LOGGER.error(exception.getMessage(), exception);
         }
     }
@@ -1,7 +1,9 @@
 package com.rigiresearch.middleware.vmware.hcl.agent;
 
 import com.fasterxml.jackson.databind.JsonNode;
+import com.rigiresearch.middleware.historian.runtime.GraphValidationException;
 import com.rigiresearch.middleware.historian.runtime.HistorianMonitor;
+import com.rigiresearch.middleware.historian.runtime.HttpClientPool;
 import com.rigiresearch.middleware.historian.runtime.UnexpectedResponseCodeException;
 import com.rigiresearch.middleware.metamodels.SerializationParser;
 import com.rigiresearch.middleware.metamodels.hcl.Specification;
@@ -19,8 +21,7 @@ import org.apache.commons.configuration2.ex.ConfigurationException;
 import org.apache.http.client.methods.CloseableHttpResponse;
 import org.apache.http.client.methods.HttpPost;
 import org.apache.http.entity.StringEntity;
-import org.apache.http.impl.client.CloseableHttpClient;
-import org.apache.http.impl.client.HttpClients;
+import org.apache.http.util.EntityUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -94,9 +95,10 @@ public final class RuntimeAgent {
      * @throws IOException If something bad happens in the monitor
      * @throws UnexpectedResponseCodeException If there is an unexpected
      *  response while collecting the data
+     * @throws GraphValidationException If the configuration graph is not valid
      */
-    public void start()
-        throws JAXBException, IOException, UnexpectedResponseCodeException {
+    public void start() throws JAXBException, IOException,
+        UnexpectedResponseCodeException, GraphValidationException {
         this.monitor.subscribe(this::handle);
         this.monitor.start();
         RuntimeAgent.LOGGER.info("Started the Historian monitor");
@@ -117,13 +119,13 @@ public final class RuntimeAgent {
     public void handle(final JsonNode data) {
         final Data2Hcl transformation = new Data2Hcl(data);
         final Specification specification = transformation.specification();
-        try {
-            final CloseableHttpResponse response = RuntimeAgent.postRequest(
-                this.config.getString("coordinator.url"),
-                "application/xml",
-                this.parser.asXml(specification)
-            );
+        try (CloseableHttpResponse response = this.postRequest(
+            this.config.getString("coordinator.url"),
+            "application/xml",
+            this.parser.asXml(specification)
+        )) {
             final int code = response.getStatusLine().getStatusCode();
+            EntityUtils.consume(response.getEntity());
             if (code == RuntimeAgent.OKAY) {
                 RuntimeAgent.LOGGER.info(
                     "Sent current specification to the evolution coordinator"
@@ -206,21 +208,22 @@ public final class RuntimeAgent {
     }
 
     /**
-     * Makes a POST request to a certain URL.
+     * Makes a POST request to a certain URL. The request reuses the pooled
+     * HTTP clients of the Historian monitor.
      * @param url The target URL
      * @param type The type of content being sent
      * @param body The content
      * @return The request's response
      * @throws IOException If there's an I/O error
      */
-    private static CloseableHttpResponse postRequest(final String url,
+    private CloseableHttpResponse postRequest(final String url,
         final String type, final String body) throws IOException {
-        final CloseableHttpClient client = HttpClients.createDefault();
+        final HttpClientPool pool = this.monitor.getPool();
         final HttpPost request = new HttpPost(url);
         request.setHeader("Accept", type);
         request.setHeader("Content-Type", type);
         request.setEntity(new StringEntity(body));
-        return client.execute(request);
+        return pool.client(request.getURI()).execute(request);
     }
 
 }